@@ -0,0 +1,52 @@
+package fr.univ.holitrip.model;
+
+/**
+ * Represents one change to the transport inventory (new departure, price change, cancellation).
+ *
+ * A transport is identified by its departure city, arrival city, departure date-time and
+ * mode (cities and modes are compared case-insensitively):
+ *   - INSERT adds the transport
+ *   - UPDATE replaces the transports with the same identity (or adds it if there is none)
+ *   - DELETE removes the transports with the same identity (only the identity fields are read)
+ *
+ * Example (one line of a change log):
+ *   {"operation": "UPDATE", "transport": {"departureCity": "Bordeaux", ..., "price": 65.0}}
+ */
+
+public class TransportChange {
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private Operation operation;
+    private Transport transport;
+
+    public TransportChange() {
+    }
+
+    public TransportChange(Operation operation, Transport transport) {
+        this.operation = operation;
+        this.transport = transport;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    public String toString() {
+        return "TransportChange{" + operation + " " + transport + "}";
+    }
+}
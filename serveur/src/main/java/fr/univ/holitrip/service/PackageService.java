@@ -1,6 +1,10 @@
 package fr.univ.holitrip.service;
 
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import fr.univ.holitrip.model.Package;
 
 public interface PackageService {
@@ -31,4 +35,47 @@ public interface PackageService {
                                int tripDurationDays, double maxBudget, String transportMode,
                                String transportPriority, int minHotelRating, String hotelPriority,
                                List<String> activityCategories, double maxDistanceKm);
+
+    /**
+     * Finds the best package for each start date from departureDate - flexibleDays to
+     * departureDate + flexibleDays, with the same criteria as {@link #findPackages}.
+     * The best package of a date is the cheapest valid one, or the cheapest one if none is valid.
+     *
+     * The default implementation calls {@link #findPackages} for each start date.
+     *
+     * @param departureDate the central departure date (format: "2025-01-15")
+     * @param flexibleDays the number of days the departure may move earlier or later
+     * @return the best package per start date, in date order; dates without any package are absent
+     */
+    default Map<LocalDate, Package> findBestPackagesByStartDate(String departureCity, String destinationCity,
+                                                                 String departureDate, int flexibleDays,
+                                                                 int tripDurationDays, double maxBudget,
+                                                                 String transportMode, String transportPriority,
+                                                                 int minHotelRating, String hotelPriority,
+                                                                 List<String> activityCategories, double maxDistanceKm) {
+        Map<LocalDate, Package> best = new TreeMap<>();
+        LocalDate center;
+        try {
+            center = LocalDate.parse(departureDate);
+        } catch (Exception e) {
+            return best;
+        }
+        Comparator<Package> order = Comparator.comparing((Package p) -> !p.isValid())
+                .thenComparingDouble(p -> p.getTotalPrice(tripDurationDays));
+        int flex = Math.max(0, flexibleDays);
+        for (int offset = -flex; offset <= flex; offset++) {
+            LocalDate startDate = center.plusDays(offset);
+            List<Package> packages = findPackages(departureCity, destinationCity, startDate.toString(), tripDurationDays,
+                    maxBudget, transportMode, transportPriority, minHotelRating, hotelPriority,
+                    activityCategories, maxDistanceKm);
+            if (packages == null) {
+                continue;
+            }
+            packages.stream()
+                    .filter(p -> p != null && p.getOutboundTrip() != null)
+                    .min(order)
+                    .ifPresent(p -> best.put(startDate, p));
+        }
+        return best;
+    }
 }
@@ -1,8 +1,17 @@
 package fr.univ.holitrip.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.util.TransportHelper;
 
 public interface TransportService {
     /**
@@ -15,4 +24,164 @@ public interface TransportService {
      * @return a list of transports matching the criteria
      */
     List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode);
+
+    /**
+     * Finds candidate journeys (direct or with connections) between two cities.
+     * Implementations that can compare journeys return the Pareto-optimal set over
+     * (total price, total duration, number of legs), so the caller can pick the best one
+     * for its own priority.
+     *
+     * The default implementation wraps {@link #findTransports}: each direct transport
+     * becomes a one-leg trip and a multi-leg result becomes a single trip.
+     *
+     * @param departureCity the departure city
+     * @param arrivalCity the arrival city
+     * @param departureDate the desired departure date and time
+     * @param mode the transport mode ("TRAIN" or "PLANE"), or null for all modes
+     * @return the candidate journeys, or an empty list if none exists
+     */
+    default List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        List<Transport> transports = findTransports(departureCity, arrivalCity, departureDate, mode);
+        if (transports == null || transports.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (TransportHelper.isMultiLeg(transports)) {
+            return Collections.singletonList(new Trip(transports));
+        }
+        List<Trip> trips = new ArrayList<>();
+        for (Transport t : transports) {
+            trips.add(new Trip(Collections.singletonList(t)));
+        }
+        return trips;
+    }
+
+    /**
+     * Finds the k best journeys (direct or with connections) between two cities for a priority:
+     * "PRICE" ranks by total price, "DURATION"/"TIME" by total duration (ties broken by the
+     * other criterion, then by the number of legs). Unknown priorities rank by price.
+     *
+     * The default implementation ranks the candidates of
+     * {@link #findJourneys(String, String, LocalDateTime, String)}.
+     *
+     * @param departureCity the departure city
+     * @param arrivalCity the arrival city
+     * @param departureDate the desired departure date and time
+     * @param mode the transport mode ("TRAIN" or "PLANE"), or null for all modes
+     * @param priority the ranking priority
+     * @param k the maximum number of journeys to return
+     * @return at most k journeys, best first, or an empty list if none exists
+     */
+    default List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate,
+                                    String mode, String priority, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        List<Trip> journeys = findJourneys(departureCity, arrivalCity, departureDate, mode);
+        if (journeys == null || journeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return journeys.stream()
+                .sorted(TransportHelper.journeyComparator(priority))
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the best journey for each departure date of a window ("what if I leave a day
+     * earlier"), ranked as in {@link #findJourneys(String, String, LocalDateTime, String, String, int)}.
+     *
+     * The default implementation asks for the best journey of each date in turn.
+     *
+     * @param departureCity the departure city
+     * @param arrivalCity the arrival city
+     * @param firstDate the first departure date of the window
+     * @param lastDate the last departure date of the window (inclusive)
+     * @param mode the transport mode ("TRAIN" or "PLANE"), or null for all modes
+     * @param priority the ranking priority ("PRICE" or "DURATION"/"TIME")
+     * @return the best journey per departure date, in date order; dates without any journey are absent
+     */
+    default Map<LocalDate, Trip> findBestJourneysByDate(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                        LocalDate lastDate, String mode, String priority) {
+        Map<LocalDate, Trip> best = new TreeMap<>();
+        if (firstDate == null || lastDate == null) {
+            return best;
+        }
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            List<Trip> journeys = findJourneys(departureCity, arrivalCity, date.atStartOfDay(), mode, priority, 1);
+            if (journeys != null && !journeys.isEmpty()) {
+                best.put(date, journeys.get(0));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the lowest price of a journey, direct or with connections, for each departure
+     * date of a window ("cheapest day to leave"), as the price of the best journey by price
+     * of {@link #findBestJourneysByDate(String, String, LocalDate, LocalDate, String, String)}.
+     *
+     * The default implementation asks for the best journeys by price of the window.
+     *
+     * @param departureCity the departure city
+     * @param arrivalCity the arrival city
+     * @param firstDate the first departure date of the window
+     * @param lastDate the last departure date of the window (inclusive)
+     * @param mode the transport mode ("TRAIN" or "PLANE"), or null for all modes
+     * @return the lowest price per departure date, in date order; dates without any journey are absent
+     */
+    default Map<LocalDate, Double> findMinPrices(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                 LocalDate lastDate, String mode) {
+        Map<LocalDate, Double> prices = new TreeMap<>();
+        Map<LocalDate, Trip> best = findBestJourneysByDate(departureCity, arrivalCity, firstDate, lastDate, mode,
+            "PRICE");
+        if (best != null) {
+            best.forEach((date, trip) -> prices.put(date, trip.getTotalPrice()));
+        }
+        return prices;
+    }
+
+    /**
+     * Finds the journeys leaving the departure city within a time range and arriving by a
+     * deadline ("get me home by Sunday night"), latest departure first. Implementations that
+     * compute a latest-departure profile return one journey per departure from the departure
+     * city that can still make the deadline.
+     *
+     * The default implementation keeps the candidates of
+     * {@link #findJourneys(String, String, LocalDateTime, String)} for each day of the range
+     * that fit in it.
+     *
+     * @param departureCity the departure city
+     * @param arrivalCity the arrival city
+     * @param earliestDeparture the earliest departure, or null for the start of the deadline's day
+     * @param arrivalDeadline the latest arrival
+     * @param mode the transport mode ("TRAIN" or "PLANE"), or null for all modes
+     * @return the journeys, latest departure first (then fewest legs), or an empty list if none exists
+     */
+    default List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                            LocalDateTime arrivalDeadline, String mode) {
+        List<Trip> result = new ArrayList<>();
+        if (arrivalDeadline == null) {
+            return result;
+        }
+        LocalDateTime earliest = earliestDeparture == null
+            ? arrivalDeadline.toLocalDate().atStartOfDay() : earliestDeparture;
+        for (LocalDate date = earliest.toLocalDate(); !date.isAfter(arrivalDeadline.toLocalDate()); date = date.plusDays(1)) {
+            List<Trip> journeys = findJourneys(departureCity, arrivalCity, date.atStartOfDay(), mode);
+            if (journeys == null) {
+                continue;
+            }
+            for (Trip trip : journeys) {
+                List<Transport> legs = trip.getTransports();
+                if (legs != null && !legs.isEmpty()
+                        && !legs.get(0).getDepartureDateTime().isBefore(earliest)
+                        && !legs.get(legs.size() - 1).getArrivalDateTime().isAfter(arrivalDeadline)) {
+                    result.add(trip);
+                }
+            }
+        }
+        result.sort(Comparator.comparing((Trip trip) -> trip.getTransports().get(0).getDepartureDateTime())
+            .reversed()
+            .thenComparingInt(trip -> trip.getTransports().size()));
+        return result;
+    }
 }
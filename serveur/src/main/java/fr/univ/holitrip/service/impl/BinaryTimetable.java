@@ -0,0 +1,430 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Columnar binary timetable, queried in place from a memory-mapped file.
+ *
+ * Layout (little-endian), with rows sorted by departure time:
+ * <pre>
+ * int magic "HTTB", int version, int rows, int cities, int modes, int stringBytes,
+ * int leg limit of the reachability matrix (0 without matrix)
+ * strings: cities then modes, each as an unsigned short length and UTF-8 bytes,
+ *          padded to a multiple of 4 bytes
+ * int[rows] departure city id     int[rows] arrival city id
+ * int[rows] departure epoch minute
+ * int[rows] arrival epoch minute  int[rows] price in cents
+ * int[cities + 1] offsets of each city in the next column
+ * int[rows] row indexes grouped by departure city, in departure order
+ * byte[rows] mode id
+ * byte[(modes + 1) * cities * cities] minimum legs between cities per mode, then for any
+ *          mode (see {@link ReachabilityMatrix}), if the leg limit is not 0
+ * </pre>
+ * Only the city and mode names are loaded on the heap when the file is opened; every
+ * row, and the reachability matrix, is read from the mapping, and a {@link Transport} is
+ * created only when a row is returned. A single mapping is limited to 2 GB, about 70
+ * million rows. Files of version 1 have no leg limit nor matrix.
+ */
+final class BinaryTimetable implements ConnectionTimetable {
+    static final int MAGIC = 0x48545442; // "HTTB"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+    private static final int VERSION_1_HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final String[] cityNames;
+    private final String[] modeNames;
+    private final Map<String, Integer> cityIds = new HashMap<>();
+    private final Map<String, Integer> modeIds = new HashMap<>();
+    private final int rows;
+    private final IntBuffer departureCities;
+    private final IntBuffer arrivalCities;
+    private final IntBuffer departureMinutes;
+    private final IntBuffer arrivalMinutes;
+    private final IntBuffer priceCents;
+    private final IntBuffer cityOffsets;
+    private final IntBuffer departuresByCity;
+    private final ByteBuffer modes;
+    private final ReachabilityMatrix reachability; // null if the file has none
+
+    private BinaryTimetable(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < VERSION_1_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary timetable");
+        }
+        int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported binary timetable version: " + version);
+        }
+        int headerBytes = version == 1 ? VERSION_1_HEADER_BYTES : HEADER_BYTES;
+        this.rows = buffer.getInt(8);
+        int cityCount = buffer.getInt(12);
+        int modeCount = buffer.getInt(16);
+        int stringBytes = buffer.getInt(20);
+        int reachabilityLegs = version == 1 ? 0 : buffer.getInt(24);
+
+        ByteBuffer strings = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        strings.position(headerBytes);
+        this.cityNames = new String[cityCount];
+        for (int c = 0; c < cityCount; c++) {
+            cityNames[c] = readString(strings);
+            cityIds.put(CityRegistry.normalize(cityNames[c]), c);
+        }
+        this.modeNames = new String[modeCount];
+        for (int m = 0; m < modeCount; m++) {
+            modeNames[m] = readString(strings);
+            modeIds.put(TransportCatalog.normalizeMode(modeNames[m]), m);
+        }
+
+        int offset = headerBytes + stringBytes;
+        this.departureCities = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.arrivalCities = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.departureMinutes = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.arrivalMinutes = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.priceCents = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.cityOffsets = intColumn(buffer, offset, cityCount + 1);
+        offset += (cityCount + 1) * Integer.BYTES;
+        this.departuresByCity = intColumn(buffer, offset, rows);
+        offset += rows * Integer.BYTES;
+        this.modes = buffer.duplicate().position(offset).limit(offset + rows).slice();
+        offset += rows;
+        if (reachabilityLegs > 0) {
+            int matrixBytes = (int) ReachabilityMatrix.bytes(cityCount, modeCount);
+            this.reachability = ReachabilityMatrix.mapped(
+                buffer.duplicate().position(offset).limit(offset + matrixBytes).slice(), cityCount, modeCount,
+                reachabilityLegs);
+        } else {
+            this.reachability = null;
+        }
+    }
+
+    /**
+     * Maps a binary timetable file. The mapping stays valid after the channel is closed.
+     *
+     * @throws IOException if the file cannot be read or is not a binary timetable
+     */
+    static BinaryTimetable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary timetable larger than 2 GB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryTimetable(buffer);
+        }
+    }
+
+    /**
+     * A timetable without any connection.
+     */
+    static BinaryTimetable empty() {
+        try {
+            return new BinaryTimetable(encode(new ArrayList<>(), 0));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes transports to a binary timetable file. Rows without cities, dates or mode are
+     * skipped, as in {@link TransportCatalog}; prices are rounded to the cent. The
+     * reachability matrix of the rows is written after them unless it would be larger than
+     * {@value ReachabilityMatrix#MAX_BYTES} bytes.
+     *
+     * @param maxLegs leg limit of the reachability matrix, or 0 to write none
+     * @return the number of rows written
+     */
+    static int write(List<Transport> transports, Path file, int maxLegs) throws IOException {
+        List<Transport> rows = new ArrayList<>();
+        for (Transport t : transports) {
+            if (t != null && t.getDepartureCity() != null && t.getArrivalCity() != null
+                    && t.getDepartureDateTime() != null && t.getArrivalDateTime() != null
+                    && t.getMode() != null) {
+                rows.add(t);
+            }
+        }
+        ByteBuffer buffer = encode(rows, maxLegs);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return rows.size();
+    }
+
+    private static ByteBuffer encode(List<Transport> rows, int maxLegs) {
+        rows.sort(Comparator.comparing(Transport::getDepartureDateTime)); // stable: file order on ties
+        int n = rows.size();
+        Map<String, Integer> cities = new HashMap<>();
+        List<String> cityNames = new ArrayList<>();
+        Map<String, Integer> modes = new HashMap<>();
+        List<String> modeNames = new ArrayList<>();
+        int[] from = new int[n];
+        int[] to = new int[n];
+        byte[] mode = new byte[n];
+        for (int i = 0; i < n; i++) {
+            Transport t = rows.get(i);
+            from[i] = idOf(cities, cityNames, CityRegistry.normalize(t.getDepartureCity()), t.getDepartureCity().trim());
+            to[i] = idOf(cities, cityNames, CityRegistry.normalize(t.getArrivalCity()), t.getArrivalCity().trim());
+            int m = idOf(modes, modeNames, TransportCatalog.normalizeMode(t.getMode()), t.getMode());
+            if (m > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many transport modes for a binary timetable");
+            }
+            mode[i] = (byte) m;
+        }
+
+        List<byte[]> encodedStrings = new ArrayList<>();
+        int stringBytes = 0;
+        for (String name : cityNames) {
+            stringBytes += addString(encodedStrings, name);
+        }
+        for (String name : modeNames) {
+            stringBytes += addString(encodedStrings, name);
+        }
+        stringBytes = (stringBytes + 3) & ~3;
+
+        int cityCount = cityNames.size();
+        int size = HEADER_BYTES + stringBytes + (6 * n + cityCount + 1) * Integer.BYTES + n;
+        long matrixBytes = ReachabilityMatrix.bytes(cityCount, modeNames.size());
+        boolean withMatrix = maxLegs > 0 && matrixBytes <= ReachabilityMatrix.MAX_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(withMatrix ? size + (int) matrixBytes : size)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(cityCount).putInt(modeNames.size()).putInt(stringBytes)
+            .putInt(0);
+        for (byte[] bytes : encodedStrings) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.position(HEADER_BYTES + stringBytes);
+
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(from[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(to[i]);
+        }
+        for (Transport t : rows) {
+            buffer.putInt(TransportCatalog.toEpochMinute(t.getDepartureDateTime()));
+        }
+        for (Transport t : rows) {
+            buffer.putInt(TransportCatalog.toEpochMinute(t.getArrivalDateTime()));
+        }
+        for (Transport t : rows) {
+            buffer.putInt(TransportCatalog.toCents(t.getPrice()));
+        }
+
+        // Rows grouped by departure city (counting sort keeps the departure order)
+        int[] offsets = new int[cityCount + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int c = 0; c < cityCount; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] byCity = new int[n];
+        int[] next = offsets.clone();
+        for (int i = 0; i < n; i++) {
+            byCity[next[from[i]]++] = i;
+        }
+        for (int offset : offsets) {
+            buffer.putInt(offset);
+        }
+        for (int i : byCity) {
+            buffer.putInt(i);
+        }
+        buffer.put(mode);
+        if (withMatrix) {
+            // Built from the rows just encoded, read as a timetable without matrix
+            ByteBuffer encoded = buffer.duplicate().position(0).limit(size).slice();
+            try {
+                ReachabilityMatrix.build(new BinaryTimetable(encoded), maxLegs).writeTo(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            buffer.putInt(24, maxLegs);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int idOf(Map<String, Integer> ids, List<String> names, String key, String name) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = names.size();
+            ids.put(key, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    private static int addString(List<byte[]> encoded, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Name too long for a binary timetable: " + value);
+        }
+        encoded.add(bytes);
+        return Short.BYTES + bytes.length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IntBuffer intColumn(ByteBuffer buffer, int offset, int length) {
+        return buffer.duplicate().position(offset).limit(offset + length * Integer.BYTES).slice()
+            .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * @return the reachability matrix of the file if it was written for the given leg limit, or null
+     */
+    ReachabilityMatrix reachability(int maxLegs) {
+        return reachability != null && reachability.maxLegs() == maxLegs ? reachability : null;
+    }
+
+    @Override
+    public int cityId(String city) {
+        Integer id = city == null ? null : cityIds.get(CityRegistry.normalize(city));
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public int cityCount() {
+        return cityNames.length;
+    }
+
+    @Override
+    public int modeId(String mode) {
+        Integer id = mode == null ? null : modeIds.get(TransportCatalog.normalizeMode(mode));
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public int modeCount() {
+        return modeNames.length;
+    }
+
+    @Override
+    public int connectionCount() {
+        return rows;
+    }
+
+    @Override
+    public int firstConnectionAtOrAfter(int epochMinute) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureMinutes.get(mid) < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rows are sorted by departure time, so a connection id is its position.
+     */
+    @Override
+    public int connectionAt(int position) {
+        return position;
+    }
+
+    /**
+     * The departures of a city are the positions [departuresStart, departuresEnd) of the
+     * by-city column, in departure order; {@link #departureAt} gives their rows.
+     */
+    int departuresStart(int cityId) {
+        return cityOffsets.get(cityId);
+    }
+
+    int departuresEnd(int cityId) {
+        return cityOffsets.get(cityId + 1);
+    }
+
+    /**
+     * @return the row at a position of the by-city departure column
+     */
+    int departureAt(int position) {
+        return departuresByCity.get(position);
+    }
+
+    /**
+     * Position of the first departure of a city at or after the given epoch minute.
+     */
+    int firstDepartureAtOrAfter(int cityId, int epochMinute) {
+        int low = departuresStart(cityId);
+        int high = departuresEnd(cityId);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureMinutes.get(departuresByCity.get(mid)) < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int departureCityId(int i) {
+        return departureCities.get(i);
+    }
+
+    @Override
+    public int arrivalCityId(int i) {
+        return arrivalCities.get(i);
+    }
+
+    @Override
+    public int modeIdOf(int i) {
+        return modes.get(i);
+    }
+
+    @Override
+    public int departureMinute(int i) {
+        return departureMinutes.get(i);
+    }
+
+    @Override
+    public int arrivalMinute(int i) {
+        return arrivalMinutes.get(i);
+    }
+
+    @Override
+    public int priceCents(int i) {
+        return priceCents.get(i);
+    }
+
+    @Override
+    public Transport connection(int i) {
+        return new Transport(cityNames[departureCities.get(i)], cityNames[arrivalCities.get(i)],
+            TransportCatalog.fromEpochMinute(departureMinutes.get(i)),
+            TransportCatalog.fromEpochMinute(arrivalMinutes.get(i)),
+            modeNames[modes.get(i)], priceCents.get(i) / 100.0);
+    }
+}
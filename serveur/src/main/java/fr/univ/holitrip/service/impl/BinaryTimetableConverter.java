@@ -0,0 +1,61 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.univ.holitrip.model.Transport;
+
+/**
+ * Offline converter from a JSON transport file to the binary timetable read by
+ * {@link MappedTransportService}.
+ *
+ * Usage (from serveur/):
+ * mvn exec:java -Dexec.mainClass="fr.univ.holitrip.service.impl.BinaryTimetableConverter" \
+ *     -Dexec.args="data/transports.json target/transports.bin"
+ *
+ * The input is a file path, or a classpath resource if no such file exists. The minimum
+ * legs between cities ({@link ReachabilityMatrix}) are computed here and written into the
+ * file, so that the service maps them instead of computing them at startup.
+ */
+public final class BinaryTimetableConverter {
+
+    private BinaryTimetableConverter() {
+        // Utility class - prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryTimetableConverter <transports.json> <transports.bin>");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        try (InputStream json = Files.isRegularFile(input)
+                ? Files.newInputStream(input) : CatalogReader.openResource(args[0])) {
+            if (json == null) {
+                throw new IOException("No such file or resource: " + args[0]);
+            }
+            int rows = convert(json, Paths.get(args[1]));
+            System.out.println(rows + " transports written to " + args[1]);
+        }
+    }
+
+    /**
+     * Converts a JSON array of transports to a binary timetable file.
+     *
+     * @return the number of transports written
+     */
+    public static int convert(InputStream json, Path output) throws IOException {
+        List<Transport> transports = new ArrayList<>();
+        try (CatalogReader reader = new CatalogReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+            reader.forEachTransport(transports::add);
+        }
+        return BinaryTimetable.write(transports, output, MappedTransportService.MAX_LEGS);
+    }
+}
@@ -0,0 +1,67 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative counters of a {@link CachingTransportService} or of the slice cache of a
+ * {@link PartitionedTransportService}.
+ */
+public final class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void evicted() {
+        evictions.increment();
+    }
+
+    void invalidated(int entries) {
+        invalidations.add(entries);
+    }
+
+    /**
+     * @return the number of queries answered from the cache, including the queries that
+     *         waited for the same query already running in another thread
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries sent to the underlying service
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because the cache was full (least recently used first)
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because they expired or the catalog snapshot changed
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + getHits()
+            + ", misses=" + getMisses()
+            + ", evictions=" + getEvictions()
+            + ", invalidations=" + getInvalidations() + '}';
+    }
+}
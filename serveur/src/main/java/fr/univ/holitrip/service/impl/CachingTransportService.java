@@ -0,0 +1,251 @@
+package fr.univ.holitrip.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.util.CityRegistry;
+import fr.univ.holitrip.util.TransportHelper;
+
+/**
+ * TransportService decorator caching the results of another service per query
+ * (departure city, arrival city, departure date-time, mode, and for the k best journeys
+ * the priority and k). Cities and modes are compared case-insensitively.
+ *
+ * The cache holds at most a fixed number of queries and drops the least recently used one
+ * when it is full. An entry is dropped when it is older than its time to live, and every
+ * entry is dropped as soon as the underlying catalog publishes a new snapshot, so a
+ * reload or an applied change is never hidden by the cache.
+ *
+ * The cache can be shared between threads. A query that is not cached yet is computed
+ * once: concurrent callers asking for the same query wait for that result instead of
+ * computing it again. Each caller gets its own copy of the result list, but the
+ * transports and trips in it are shared with the cache and every other caller: callers
+ * must not modify them.
+ */
+public class CachingTransportService implements TransportService {
+    private final TransportService delegate;
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final LongSupplier snapshotVersion;
+    private final Clock clock;
+    private final CacheStats stats = new CacheStats();
+    private final Map<QueryKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long cachedVersion;
+
+    private enum Kind { TRANSPORTS, JOURNEYS, BEST_JOURNEYS }
+
+    private static final class QueryKey {
+        private final Kind kind;
+        private final String departureCity;
+        private final String arrivalCity;
+        private final LocalDateTime departureDate;
+        private final String mode;
+        private final boolean byDuration;
+        private final int k;
+
+        QueryKey(Kind kind, String departureCity, String arrivalCity, LocalDateTime departureDate,
+                 String mode, boolean byDuration, int k) {
+            this.kind = kind;
+            this.departureCity = CityRegistry.normalize(departureCity);
+            this.arrivalCity = CityRegistry.normalize(arrivalCity);
+            this.departureDate = departureDate;
+            this.mode = mode == null ? null : TransportCatalog.normalizeMode(mode);
+            this.byDuration = byDuration;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof QueryKey)) return false;
+            QueryKey other = (QueryKey) o;
+            return kind == other.kind
+                && byDuration == other.byDuration
+                && k == other.k
+                && Objects.equals(departureCity, other.departureCity)
+                && Objects.equals(arrivalCity, other.arrivalCity)
+                && Objects.equals(departureDate, other.departureDate)
+                && Objects.equals(mode, other.mode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, departureCity, arrivalCity, departureDate, mode, byDuration, k);
+        }
+    }
+
+    /**
+     * Result of one query, complete once the underlying service has answered.
+     */
+    private static final class Entry {
+        final long expiresAt;
+        final CompletableFuture<List<?>> result = new CompletableFuture<>();
+
+        Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Caches a service; if it is a {@link JsonTransportService}, its snapshot version
+     * invalidates the cache.
+     *
+     * @param maxEntries maximum number of cached queries
+     * @param timeToLive how long a result is reused, or null to keep it until its snapshot changes
+     */
+    public CachingTransportService(TransportService delegate, int maxEntries, Duration timeToLive) {
+        this(delegate, maxEntries, timeToLive,
+            delegate instanceof JsonTransportService ? ((JsonTransportService) delegate)::getSnapshotVersion : () -> 0L,
+            Clock.systemUTC());
+    }
+
+    /**
+     * @param snapshotVersion version of the data of the delegate; the cache is cleared when it changes
+     * @param clock clock used for the time to live
+     */
+    public CachingTransportService(TransportService delegate, int maxEntries, Duration timeToLive,
+                                   LongSupplier snapshotVersion, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.snapshotVersion = snapshotVersion;
+        this.clock = clock;
+        this.cachedVersion = snapshotVersion.getAsLong();
+    }
+
+    /**
+     * @return hits, misses, evictions and invalidations of this cache so far
+     */
+    public CacheStats getCacheStats() {
+        return stats;
+    }
+
+    @Override
+    public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        return cached(new QueryKey(Kind.TRANSPORTS, departureCity, arrivalCity, departureDate, mode, false, 0),
+            () -> delegate.findTransports(departureCity, arrivalCity, departureDate, mode));
+    }
+
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        return cached(new QueryKey(Kind.JOURNEYS, departureCity, arrivalCity, departureDate, mode, false, 0),
+            () -> delegate.findJourneys(departureCity, arrivalCity, departureDate, mode));
+    }
+
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate,
+                                   String mode, String priority, int k) {
+        boolean byDuration = TransportHelper.isDurationPriority(priority);
+        return cached(new QueryKey(Kind.BEST_JOURNEYS, departureCity, arrivalCity, departureDate, mode, byDuration, k),
+            () -> delegate.findJourneys(departureCity, arrivalCity, departureDate, mode,
+                byDuration ? "DURATION" : "PRICE", k));
+    }
+
+    /**
+     * Not cached: the window is answered by the underlying service in one call.
+     */
+    @Override
+    public Map<LocalDate, Trip> findBestJourneysByDate(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                       LocalDate lastDate, String mode, String priority) {
+        return delegate.findBestJourneysByDate(departureCity, arrivalCity, firstDate, lastDate, mode, priority);
+    }
+
+    /**
+     * Not cached: the prices are read from the calendar of the underlying service.
+     */
+    @Override
+    public Map<LocalDate, Double> findMinPrices(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                LocalDate lastDate, String mode) {
+        return delegate.findMinPrices(departureCity, arrivalCity, firstDate, lastDate, mode);
+    }
+
+    /**
+     * Not cached: the range is answered by the underlying service in one call.
+     */
+    @Override
+    public List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                           LocalDateTime arrivalDeadline, String mode) {
+        return delegate.findLatestDepartures(departureCity, arrivalCity, earliestDeparture, arrivalDeadline, mode);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> cached(QueryKey key, Supplier<List<T>> query) {
+        Entry entry;
+        boolean compute = false;
+        synchronized (entries) {
+            long now = clock.millis();
+            long version = snapshotVersion.getAsLong();
+            if (version != cachedVersion) {
+                stats.invalidated(entries.size());
+                entries.clear();
+                cachedVersion = version;
+            }
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                entries.remove(key);
+                stats.invalidated(1);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(timeToLive == null ? Long.MAX_VALUE : now + timeToLive.toMillis());
+                entries.put(key, entry);
+                evictOverflow();
+                compute = true;
+                stats.miss();
+            } else {
+                stats.hit();
+            }
+        }
+
+        if (compute) {
+            try {
+                List<T> result = query.get();
+                entry.result.complete(result == null
+                    ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(result)));
+            } catch (RuntimeException | Error e) {
+                // Failures are not cached: the waiting callers get the error, the next one retries
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return new ArrayList<>((List<T>) entry.result.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            stats.evicted();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import fr.univ.holitrip.model.Activity;
+import fr.univ.holitrip.model.Coordinates;
+import fr.univ.holitrip.model.Hotel;
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+
+/**
+ * Streaming reader for the JSON catalogs (a top-level array of objects) and for the
+ * transport change log (one object per line).
+ *
+ * Rows are read one at a time with a {@link JsonReader} and handed to a consumer, so a
+ * catalog only ever holds its own index in memory and never a full parsed copy of the
+ * file. Fields are read by hand (no reflection); unknown fields are skipped and missing
+ * or null fields keep their default value, as with Gson data binding. Repeated strings
+ * (cities, modes, categories) are shared between rows.
+ */
+final class CatalogReader implements Closeable {
+    private final JsonReader json;
+    private final Map<String, String> sharedStrings = new HashMap<>();
+
+    CatalogReader(Reader reader) {
+        this.json = new JsonReader(reader);
+    }
+
+    /**
+     * Opens a classpath resource.
+     *
+     * @return the stream, or null if the path is null or the resource does not exist
+     */
+    static InputStream openResource(String resourcePath) {
+        return resourcePath == null ? null : CatalogReader.class.getClassLoader().getResourceAsStream(resourcePath);
+    }
+
+    void forEachTransport(Consumer<Transport> sink) throws IOException {
+        forEachObject(() -> sink.accept(readTransportFields()));
+    }
+
+    /**
+     * Reads a change log: one JSON object per line (NDJSON), each with an "operation"
+     * (INSERT, UPDATE or DELETE) and a "transport". Blank lines and null entries are skipped.
+     *
+     * @throws IOException if a line is malformed or has an unknown operation
+     */
+    void forEachTransportChange(Consumer<TransportChange> sink) throws IOException {
+        json.setLenient(true); // several top-level values
+        while (json.peek() != JsonToken.END_DOCUMENT) {
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            TransportChange change = new TransportChange();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "operation": change.setOperation(nextOperation()); break;
+                    case "transport": change.setTransport(nextTransport()); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+            sink.accept(change);
+        }
+    }
+
+    void forEachHotel(Consumer<Hotel> sink) throws IOException {
+        forEachObject(() -> {
+            Hotel h = new Hotel();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name": h.setName(nextString()); break;
+                    case "address": h.setAddress(nextString()); break;
+                    case "city": h.setCity(nextSharedString()); break;
+                    case "rating": h.setRating(nextInt()); break;
+                    case "pricePerNight": h.setPricePerNight(nextDouble()); break;
+                    default: json.skipValue();
+                }
+            }
+            sink.accept(h);
+        });
+    }
+
+    void forEachActivity(Consumer<Activity> sink) throws IOException {
+        forEachObject(() -> {
+            Activity a = new Activity();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name": a.setName(nextString()); break;
+                    case "address": a.setAddress(nextString()); break;
+                    case "city": a.setCity(nextSharedString()); break;
+                    case "date": a.setDate(nextDate()); break;
+                    case "category": a.setCategory(nextSharedString()); break;
+                    case "price": a.setPrice(nextDouble()); break;
+                    default: json.skipValue();
+                }
+            }
+            sink.accept(a);
+        });
+    }
+
+    /**
+     * Reads a table of city locations: objects with a "city", a "latitude" and a "longitude".
+     * Rows without a city are skipped.
+     */
+    void forEachCityLocation(BiConsumer<String, Coordinates> sink) throws IOException {
+        forEachObject(() -> {
+            String city = null;
+            double latitude = 0;
+            double longitude = 0;
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "city": city = nextString(); break;
+                    case "latitude": latitude = nextDouble(); break;
+                    case "longitude": longitude = nextDouble(); break;
+                    default: json.skipValue();
+                }
+            }
+            if (city != null) {
+                sink.accept(city, new Coordinates(latitude, longitude));
+            }
+        });
+    }
+
+    private Transport readTransportFields() throws IOException {
+        Transport t = new Transport();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "departureCity": t.setDepartureCity(nextSharedString()); break;
+                case "arrivalCity": t.setArrivalCity(nextSharedString()); break;
+                case "departureDateTime": t.setDepartureDateTime(nextDateTime()); break;
+                case "arrivalDateTime": t.setArrivalDateTime(nextDateTime()); break;
+                case "mode": t.setMode(nextSharedString()); break;
+                case "price": t.setPrice(nextDouble()); break;
+                default: json.skipValue();
+            }
+        }
+        return t;
+    }
+
+    private Transport nextTransport() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        json.beginObject();
+        Transport t = readTransportFields();
+        json.endObject();
+        return t;
+    }
+
+    private TransportChange.Operation nextOperation() throws IOException {
+        String value = nextString();
+        if (value == null) {
+            return null;
+        }
+        try {
+            return TransportChange.Operation.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown change operation: " + value);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    private interface RowBody {
+        void read() throws IOException;
+    }
+
+    /**
+     * Reads the top-level array; a null document is an empty catalog and null rows are skipped.
+     */
+    private void forEachObject(RowBody body) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            json.beginObject();
+            body.read();
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private String nextString() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    private String nextSharedString() throws IOException {
+        String value = nextString();
+        if (value == null) {
+            return null;
+        }
+        String shared = sharedStrings.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    private double nextDouble() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return 0;
+        }
+        return json.nextDouble();
+    }
+
+    private int nextInt() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return 0;
+        }
+        return json.nextInt();
+    }
+
+    private LocalDate nextDate() throws IOException {
+        String value = nextString();
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private LocalDateTime nextDateTime() throws IOException {
+        String value = nextString();
+        return value == null ? null : parseDateTime(value);
+    }
+
+    /**
+     * Parses "yyyy-MM-ddTHH:mm" and "yyyy-MM-ddTHH:mm:ss" directly; any other ISO form
+     * goes through {@link LocalDateTime#parse}.
+     */
+    static LocalDateTime parseDateTime(String value) {
+        int length = value.length();
+        if ((length == 16 || length == 19)
+                && value.charAt(4) == '-' && value.charAt(7) == '-' && value.charAt(10) == 'T'
+                && value.charAt(13) == ':' && (length == 16 || value.charAt(16) == ':')) {
+            int year = digits(value, 0, 4);
+            int month = digits(value, 5, 7);
+            int day = digits(value, 8, 10);
+            int hour = digits(value, 11, 13);
+            int minute = digits(value, 14, 16);
+            int second = length == 19 ? digits(value, 17, 19) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    /**
+     * @return the decimal value of value[from, to), or -1 if a character is not a digit
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.univ.holitrip.exception.GeocodingException;
+import fr.univ.holitrip.model.Coordinates;
+import fr.univ.holitrip.service.GeocodingService;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Table of city coordinates used to bound the remaining travel of a journey
+ * (city names are compared case-insensitively).
+ *
+ * The table is either read from a JSON file of {"city", "latitude", "longitude"} objects
+ * (the bundled one is {@value #BUNDLED_RESOURCE}) or built once with a {@link GeocodingService}.
+ * A city missing from the table only disables the bound for the modes serving it.
+ */
+public final class CityLocations {
+    static final String BUNDLED_RESOURCE = "data/cities.json";
+
+    private static final CityLocations EMPTY = new CityLocations(Map.of());
+    private static volatile CityLocations bundled;
+
+    private final Map<String, Coordinates> byCity = new HashMap<>();
+
+    /**
+     * @param coordinates coordinates per city name
+     */
+    public CityLocations(Map<String, Coordinates> coordinates) {
+        coordinates.forEach((city, c) -> {
+            if (city != null && c != null) {
+                byCity.put(CityRegistry.normalize(city), c);
+            }
+        });
+    }
+
+    /**
+     * @return a table without any city (no geographic bound)
+     */
+    public static CityLocations empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the table bundled with the application, read once
+     */
+    public static CityLocations bundled() {
+        CityLocations table = bundled;
+        if (table == null) {
+            table = fromResource(BUNDLED_RESOURCE);
+            bundled = table;
+        }
+        return table;
+    }
+
+    /**
+     * @param resourcePath classpath resource containing the table
+     * @return the table, or an empty table if the resource is missing or malformed
+     */
+    public static CityLocations fromResource(String resourcePath) {
+        Map<String, Coordinates> coordinates = new HashMap<>();
+        try (InputStream is = CatalogReader.openResource(resourcePath)) {
+            if (is == null) {
+                return EMPTY;
+            }
+            try (CatalogReader reader = new CatalogReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                reader.forEachCityLocation(coordinates::put);
+            }
+        } catch (Exception e) {
+            return EMPTY;
+        }
+        return new CityLocations(coordinates);
+    }
+
+    /**
+     * Geocodes each city once; cities that cannot be geocoded are left out.
+     */
+    public static CityLocations geocode(GeocodingService geocodingService, Collection<String> cities) {
+        Map<String, Coordinates> coordinates = new HashMap<>();
+        for (String city : cities) {
+            try {
+                Coordinates c = geocodingService.geocode(city);
+                if (c != null) {
+                    coordinates.put(city, c);
+                }
+            } catch (GeocodingException | RuntimeException e) {
+                // leave the city out: its modes get no bound
+            }
+        }
+        return new CityLocations(coordinates);
+    }
+
+    /**
+     * @return the coordinates of a city, or null if it is not in the table
+     */
+    public Coordinates locate(String city) {
+        return city == null ? null : byCity.get(CityRegistry.normalize(city));
+    }
+
+    public int size() {
+        return byCity.size();
+    }
+}
@@ -0,0 +1,336 @@
+package fr.univ.holitrip.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+
+/**
+ * Earliest-arrival journey search based on the Connection Scan Algorithm (CSA).
+ *
+ * Connections of the catalog are scanned once, in departure order, starting at the
+ * first departure of the requested day. For every mode and every number of legs the
+ * engine keeps the earliest known arrival time at each city, so mode homogeneity and
+ * the leg limit are enforced without enumerating paths. The scan stops as soon as a
+ * connection departs after the best arrival found at the destination. With a
+ * {@link ReachabilityMatrix}, pairs without a route within the leg limit are answered at
+ * once and no label is kept at a city that cannot reach the destination with the legs left.
+ * Searches for any mode can be split into one scan per mode ({@link ParallelModeSearch}).
+ *
+ * The same labels scanned backward from an arrival deadline give the latest-departure
+ * profile: for every departure from the origin, whether (and how) the destination can still
+ * be reached in time ({@link #findLatestDepartures}).
+ */
+final class ConnectionScanEngine {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int UNSET = Integer.MIN_VALUE;
+
+    private final ConnectionTimetable catalog;
+    private final int maxLegs;
+    private final long minConnectionMinutes;
+    private final ReachabilityMatrix reachability; // null to search without it
+    private final ParallelModeSearch parallel;
+
+    ConnectionScanEngine(ConnectionTimetable catalog, int maxLegs, long minConnectionMinutes) {
+        this(catalog, maxLegs, minConnectionMinutes, null, ParallelModeSearch.SEQUENTIAL);
+    }
+
+    ConnectionScanEngine(ConnectionTimetable catalog, int maxLegs, long minConnectionMinutes,
+                         ReachabilityMatrix reachability, ParallelModeSearch parallel) {
+        this.catalog = catalog;
+        this.maxLegs = maxLegs;
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.reachability = reachability;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Finds the journey arriving first at the destination.
+     * The first leg must leave on the given day (any day if null); following legs
+     * must use the same mode and leave strictly more than the minimum connection
+     * time after the previous arrival. Ties are broken by the number of legs.
+     *
+     * @param mode the transport mode, or null for all modes
+     * @return the legs of the journey in travel order, or an empty list if none exists
+     */
+    List<Transport> findEarliestArrival(String departureCity, String arrivalCity, LocalDate date, String mode) {
+        int origin = catalog.cityId(departureCity);
+        int target = catalog.cityId(arrivalCity);
+        if (origin < 0 || target < 0 || origin == target) {
+            return Collections.emptyList();
+        }
+        int modeFilter = -1;
+        if (mode != null) {
+            modeFilter = catalog.modeId(mode);
+            if (modeFilter < 0) {
+                return Collections.emptyList();
+            }
+        }
+        if (reachability != null && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return Collections.emptyList();
+        }
+
+        int first = 0;
+        int firstDayEnd = Integer.MAX_VALUE;
+        if (date != null) {
+            int dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+            first = catalog.firstConnectionAtOrAfter(dayStart);
+            firstDayEnd = dayStart + 24 * 60;
+        }
+
+        Scan best;
+        if (parallel.appliesTo(catalog, modeFilter)) {
+            // Modes never mix: scan each one on its own and keep the best destination label
+            int from = first;
+            int dayEnd = firstDayEnd;
+            best = null;
+            for (Scan scan : parallel.run(catalog.modeCount(), m -> reachability == null
+                    || reachability.reachable(m, origin, target, maxLegs) ? scan(origin, target, m, from, dayEnd) : new Scan())) {
+                if (scan.bestMode >= 0 && (best == null || scan.isBetterThan(best))) {
+                    best = scan;
+                }
+            }
+        } else {
+            best = scan(origin, target, modeFilter, first, firstDayEnd);
+        }
+        if (best == null || best.bestMode < 0) {
+            return Collections.emptyList();
+        }
+
+        // Follow parent connections back from the destination
+        Transport[] legs = new Transport[best.bestLegs];
+        int city = target;
+        for (int k = best.bestLegs; k >= 1; k--) {
+            int connection = best.parent[best.bestMode][k][city];
+            legs[k - 1] = catalog.connection(connection);
+            city = catalog.departureCityId(connection);
+        }
+        return new ArrayList<>(Arrays.asList(legs));
+    }
+
+    /**
+     * Finds the journeys leaving the origin between two times and arriving at the destination
+     * by a deadline, latest departure first: one journey per departing connection of the
+     * origin, with the fewest legs. After the first leg, each journey takes the latest
+     * connections that still arrive in time. Legs must use the same mode and leave strictly
+     * more than the minimum connection time after the previous arrival.
+     *
+     * Connections are scanned once, backward from the deadline, keeping for every mode, number
+     * of legs left and city the latest departure that still reaches the destination in time.
+     * Departures only decrease during the scan, so the first label set is the latest one.
+     *
+     * @param earliestDeparture first leg departures must not be before this time
+     *                          (the start of the deadline's day if null)
+     * @param mode the transport mode, or null for all modes
+     * @return the journeys, or an empty list if none exists
+     */
+    List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                    LocalDateTime arrivalDeadline, String mode) {
+        int origin = catalog.cityId(departureCity);
+        int target = catalog.cityId(arrivalCity);
+        if (origin < 0 || target < 0 || origin == target || arrivalDeadline == null) {
+            return Collections.emptyList();
+        }
+        int modeFilter = -1;
+        if (mode != null) {
+            modeFilter = catalog.modeId(mode);
+            if (modeFilter < 0) {
+                return Collections.emptyList();
+            }
+        }
+        if (reachability != null && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return Collections.emptyList();
+        }
+        int deadline = TransportCatalog.toEpochMinute(arrivalDeadline);
+        int earliest = TransportCatalog.toEpochMinute(earliestDeparture == null
+            ? arrivalDeadline.toLocalDate().atStartOfDay() : earliestDeparture);
+        if (earliest > deadline) {
+            return Collections.emptyList();
+        }
+
+        int cities = catalog.cityCount();
+        int modes = catalog.modeCount();
+        // Labels indexed by [mode][legs left][city]; legs left goes from 1 to maxLegs - 1
+        // (labels are never needed at the origin)
+        int[][][] latest = new int[modes][maxLegs][];
+        int[][][] next = new int[modes][maxLegs][];
+        for (int m = 0; m < modes; m++) {
+            if (modeFilter >= 0 && m != modeFilter) {
+                continue;
+            }
+            for (int k = 1; k < maxLegs; k++) {
+                latest[m][k] = new int[cities];
+                next[m][k] = new int[cities];
+                Arrays.fill(latest[m][k], UNSET);
+            }
+        }
+
+        List<Trip> journeys = new ArrayList<>();
+        for (int p = catalog.firstConnectionAtOrAfter(deadline + 1) - 1; p >= 0; p--) {
+            int i = catalog.connectionAt(p);
+            int departure = catalog.departureMinute(i);
+            if (departure < earliest) {
+                break;
+            }
+            int arrivalMinute = catalog.arrivalMinute(i);
+            int m = catalog.modeIdOf(i);
+            if (arrivalMinute > deadline || (modeFilter >= 0 && m != modeFilter)) {
+                continue;
+            }
+            int from = catalog.departureCityId(i);
+            int to = catalog.arrivalCityId(i);
+            if (to == origin || from == target) {
+                continue; // never loop back to the origin nor travel beyond the destination
+            }
+            // Legs left counting this connection: enough to reach the destination from its arrival,
+            // few enough to leave room for the legs needed to come from the origin
+            int fewestLegs = 1;
+            int mostLegs = from == origin ? maxLegs : maxLegs - 1;
+            if (reachability != null) {
+                fewestLegs = reachability.minLegs(m, to, target) + 1;
+                if (from != origin) {
+                    mostLegs = maxLegs - reachability.minLegs(m, origin, from);
+                }
+            }
+            for (int k = Math.max(1, fewestLegs); k <= mostLegs; k++) {
+                boolean inTime;
+                if (k == 1) {
+                    inTime = to == target;
+                } else {
+                    int following = latest[m][k - 1][to];
+                    inTime = following != UNSET && following > arrivalMinute + minConnectionMinutes;
+                }
+                if (!inTime) {
+                    continue;
+                }
+                if (from == origin) {
+                    journeys.add(new Trip(legsFrom(i, m, k, next)));
+                    break; // fewest legs for this departure
+                }
+                if (latest[m][k][from] == UNSET) {
+                    latest[m][k][from] = departure;
+                    next[m][k][from] = i;
+                }
+            }
+        }
+        // Already in departure order; fewest legs first within a minute
+        journeys.sort(Comparator.comparing((Trip trip) -> trip.getTransports().get(0).getDepartureDateTime())
+            .reversed()
+            .thenComparingInt(trip -> trip.getTransports().size()));
+        return journeys;
+    }
+
+    /**
+     * @return the legs of a backward-scan journey, from its first connection on
+     */
+    private List<Transport> legsFrom(int first, int mode, int legs, int[][][] next) {
+        List<Transport> result = new ArrayList<>(legs);
+        result.add(catalog.connection(first));
+        int city = catalog.arrivalCityId(first);
+        for (int k = legs - 1; k >= 1; k--) {
+            int connection = next[mode][k][city];
+            result.add(catalog.connection(connection));
+            city = catalog.arrivalCityId(connection);
+        }
+        return result;
+    }
+
+    /**
+     * Labels of one scan and the best one found at the destination.
+     */
+    private static final class Scan {
+        int[][][] parent;
+        int bestArrival = UNREACHED;
+        int bestMode = -1;
+        int bestLegs = -1;
+        int bestPosition = -1; // of the last connection in departure order
+
+        /**
+         * Same order as within a scan: earlier arrival, then fewer legs, then the label
+         * found first (its last connection comes first in departure order).
+         */
+        boolean isBetterThan(Scan other) {
+            if (bestArrival != other.bestArrival) {
+                return bestArrival < other.bestArrival;
+            }
+            if (bestLegs != other.bestLegs) {
+                return bestLegs < other.bestLegs;
+            }
+            return bestPosition < other.bestPosition;
+        }
+    }
+
+    /**
+     * Scans the connections from the first index on.
+     *
+     * @param modeFilter the mode id, or -1 for all modes
+     * @param firstDayEnd first leg departures must be before this epoch minute
+     */
+    private Scan scan(int origin, int target, int modeFilter, int first, int firstDayEnd) {
+        int cities = catalog.cityCount();
+        int modes = catalog.modeCount();
+        // Labels indexed by [mode][legs][city]; legs goes from 1 to maxLegs
+        int[][][] arrival = new int[modes][maxLegs + 1][];
+        int[][][] parent = new int[modes][maxLegs + 1][];
+        for (int m = 0; m < modes; m++) {
+            if (modeFilter >= 0 && m != modeFilter) {
+                continue;
+            }
+            for (int k = 1; k <= maxLegs; k++) {
+                arrival[m][k] = new int[cities];
+                parent[m][k] = new int[cities];
+                Arrays.fill(arrival[m][k], UNREACHED);
+            }
+        }
+
+        Scan result = new Scan();
+        result.parent = parent;
+        int n = catalog.connectionCount();
+        for (int p = first; p < n; p++) {
+            int i = catalog.connectionAt(p);
+            int departure = catalog.departureMinute(i);
+            if (departure >= result.bestArrival) {
+                break; // no later connection can improve the destination label
+            }
+            int m = catalog.modeIdOf(i);
+            if (modeFilter >= 0 && m != modeFilter) {
+                continue;
+            }
+            int from = catalog.departureCityId(i);
+            int to = catalog.arrivalCityId(i);
+            if (to == origin || from == target) {
+                continue; // never loop back to the origin nor travel beyond the destination
+            }
+            int arrivalMinute = catalog.arrivalMinute(i);
+            // Labels with more legs than this cannot reach the destination any more
+            int lastUsefulLegs = reachability == null ? maxLegs : maxLegs - reachability.minLegs(m, to, target);
+            for (int k = 1; k <= lastUsefulLegs; k++) {
+                boolean boardable;
+                if (k == 1) {
+                    boardable = from == origin && departure < firstDayEnd;
+                } else {
+                    int previous = arrival[m][k - 1][from];
+                    boardable = previous != UNREACHED && departure > previous + minConnectionMinutes;
+                }
+                if (boardable && arrivalMinute < arrival[m][k][to]) {
+                    arrival[m][k][to] = arrivalMinute;
+                    parent[m][k][to] = i;
+                    if (to == target && (arrivalMinute < result.bestArrival
+                            || (arrivalMinute == result.bestArrival && k < result.bestLegs))) {
+                        result.bestArrival = arrivalMinute;
+                        result.bestMode = m;
+                        result.bestLegs = k;
+                        result.bestPosition = p;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
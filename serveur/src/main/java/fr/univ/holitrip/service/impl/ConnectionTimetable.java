@@ -0,0 +1,60 @@
+package fr.univ.holitrip.service.impl;
+
+import fr.univ.holitrip.model.Transport;
+
+/**
+ * Read-only view of a timetable as connections sorted by departure time, with cities and
+ * modes mapped to dense int ids and times stored as epoch minutes
+ * (see {@link TransportCatalog#toEpochMinute}) and prices in cents. This is all the
+ * journey searches need, whether the connections live on the heap or in a mapped file.
+ * Connections are read by id; {@link #connectionAt(int)} gives the id at a position in
+ * departure order, and ids of equal departure minutes are in departure order.
+ */
+interface ConnectionTimetable {
+    /**
+     * @return the id of a city, or -1 if the timetable does not know it
+     */
+    int cityId(String city);
+
+    /**
+     * @return an upper bound of the city ids
+     */
+    int cityCount();
+
+    /**
+     * @return the id of a mode, or -1 if no connection uses it
+     */
+    int modeId(String mode);
+
+    int modeCount();
+
+    int connectionCount();
+
+    /**
+     * Position of the first connection departing at or after the given epoch minute.
+     */
+    int firstConnectionAtOrAfter(int epochMinute);
+
+    /**
+     * @param position a position in departure order, from 0 to {@link #connectionCount()} - 1
+     * @return the id of the connection at that position
+     */
+    int connectionAt(int position);
+
+    int departureCityId(int i);
+
+    int arrivalCityId(int i);
+
+    int modeIdOf(int i);
+
+    int departureMinute(int i);
+
+    int arrivalMinute(int i);
+
+    int priceCents(int i);
+
+    /**
+     * @return the connection as a transport (may create the object)
+     */
+    Transport connection(int i);
+}
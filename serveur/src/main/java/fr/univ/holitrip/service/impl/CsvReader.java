@@ -0,0 +1,164 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming reader for CSV files with a header line (RFC 4180: comma separators, fields
+ * optionally quoted with double quotes, quotes doubled inside quoted fields, CRLF or LF line
+ * ends), as used by GTFS feeds.
+ *
+ * Records are read one at a time into a reused array, so a file of any size is read with
+ * the memory of its longest record. Columns are looked up by header name once; a leading
+ * byte order mark and spaces around header names are ignored.
+ */
+final class CsvReader implements Closeable {
+    private final Reader reader;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private String[] record = new String[0];
+    private long line;
+
+    /**
+     * Reads the header line.
+     *
+     * @throws IOException if the file is empty
+     */
+    CsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        if (!readRecord()) {
+            throw new IOException("Missing CSV header");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim();
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.putIfAbsent(name, i);
+        }
+    }
+
+    /**
+     * @return the index of a column, or -1 if the header does not have it
+     */
+    int column(String name) {
+        Integer index = columns.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the index of a column
+     * @throws IOException if the header does not have it
+     */
+    int requiredColumn(String name) throws IOException {
+        int index = column(name);
+        if (index < 0) {
+            throw new IOException("Missing CSV column: " + name);
+        }
+        return index;
+    }
+
+    /**
+     * Reads the next record, skipping blank lines.
+     *
+     * @return false at the end of the file
+     */
+    boolean next() throws IOException {
+        while (readRecord()) {
+            if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+                record = fields.toArray(record.length >= fields.size() ? record : new String[fields.size()]);
+                if (record.length > fields.size()) {
+                    Arrays.fill(record, fields.size(), record.length, null);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param column a column index, or -1
+     * @return the field of the current record, or an empty string if the column is missing
+     *         from the header or the record
+     */
+    String get(int column) {
+        if (column < 0 || column >= record.length || record[column] == null) {
+            return "";
+        }
+        return record[column];
+    }
+
+    /**
+     * @return the number of the current line (1 for the header)
+     */
+    long line() {
+        return line;
+    }
+
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        if (!fill()) {
+            return false;
+        }
+        line++;
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (fill()) {
+            char c = buffer[position++];
+            if (quoted) {
+                if (c != '"') {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append(c);
+                } else if (fill() && buffer[position] == '"') {
+                    field.append('"');
+                    position++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,253 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.univ.holitrip.model.Coordinates;
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+import fr.univ.holitrip.service.DistanceService;
+
+/**
+ * Lower bounds of the remaining duration and price of a journey, from the great-circle
+ * distance between its current city and the destination (A* heuristic).
+ *
+ * For each mode the catalog gives the highest speed (km per minute) and the lowest price
+ * per km of its connections. Any remaining path of that mode is at least as long as the
+ * straight line, so it takes at least distance / highest speed minutes and costs at least
+ * distance x lowest price per km: the bounds never overestimate and the search stays exact.
+ * A mode with a connection between cities that cannot be located, or with a zero-minute
+ * connection, gets bounds of 0.
+ * After inventory changes the bounds are only lowered ({@link #withChanges}): removed
+ * connections leave them as they are, which still never overestimates.
+ */
+final class GeoHeuristic {
+    private static final double SAFETY = 1 - 1e-9; // keeps rounding errors on the safe side
+
+    private final CityLocations cityLocations;
+    private final DistanceService distances;
+    private final Coordinates[] locations; // by city id
+    private final double[] maxKmPerMinute; // by mode, 0 if the mode has no bound
+    private final double[] minCentsPerKm; // by mode
+    private final boolean[] bounded; // by mode, false once a connection of the mode gave bounds of 0
+
+    GeoHeuristic(TransportCatalog catalog, CityLocations cityLocations, DistanceService distances) {
+        this.cityLocations = cityLocations;
+        this.distances = distances;
+        this.locations = locate(catalog, cityLocations, new Coordinates[0]);
+        int modes = catalog.modeCount();
+        this.maxKmPerMinute = new double[modes];
+        this.minCentsPerKm = new double[modes];
+        Arrays.fill(minCentsPerKm, Double.POSITIVE_INFINITY);
+        this.bounded = new boolean[modes];
+        Arrays.fill(bounded, true);
+        for (Map.Entry<Long, int[]> route : routeBounds(catalog).entrySet()) {
+            long key = route.getKey();
+            int mode = (int) (key & 0xFF);
+            if (!bounded[mode]) {
+                continue;
+            }
+            Coordinates from = location((int) (key >>> 40));
+            Coordinates to = location((int) (key >>> 8));
+            if (from == null || to == null) {
+                bounded[mode] = false;
+                continue;
+            }
+            double km = distances.calculateDistance(from, to);
+            int minutes = route.getValue()[0];
+            if (km <= 0) {
+                continue; // no constraint on speed or price per km
+            }
+            if (minutes <= 0) {
+                bounded[mode] = false;
+                continue;
+            }
+            maxKmPerMinute[mode] = Math.max(maxKmPerMinute[mode], km / minutes);
+            minCentsPerKm[mode] = Math.min(minCentsPerKm[mode], route.getValue()[1] / km);
+        }
+        for (int mode = 0; mode < modes; mode++) {
+            if (!bounded[mode] || maxKmPerMinute[mode] == 0) {
+                maxKmPerMinute[mode] = 0;
+                minCentsPerKm[mode] = 0;
+            }
+        }
+    }
+
+    /**
+     * Lowest duration (minutes) and price (cents) of the connections of each route of a
+     * catalog, so that each route is located and measured once. A route is keyed by its
+     * departure city, arrival city and mode ids.
+     */
+    private static Map<Long, int[]> routeBounds(TransportCatalog catalog) {
+        Map<Long, int[]> bounds = new HashMap<>();
+        for (int position = 0; position < catalog.connectionCount(); position++) {
+            int i = catalog.connectionAt(position);
+            long key = (long) catalog.departureCityId(i) << 40 | (long) catalog.arrivalCityId(i) << 8
+                | catalog.modeIdOf(i);
+            int minutes = catalog.arrivalMinute(i) - catalog.departureMinute(i);
+            int[] bound = bounds.get(key);
+            if (bound == null) {
+                bounds.put(key, new int[] {minutes, catalog.priceCents(i)});
+            } else {
+                bound[0] = Math.min(bound[0], minutes);
+                bound[1] = Math.min(bound[1], catalog.priceCents(i));
+            }
+        }
+        return bounds;
+    }
+
+    private GeoHeuristic(GeoHeuristic base, Coordinates[] locations, double[] maxKmPerMinute, double[] minCentsPerKm,
+                         boolean[] bounded) {
+        this.cityLocations = base.cityLocations;
+        this.distances = base.distances;
+        this.locations = locations;
+        this.maxKmPerMinute = maxKmPerMinute;
+        this.minCentsPerKm = minCentsPerKm;
+        this.bounded = bounded;
+    }
+
+    /**
+     * @return the locations of the cities of a catalog, reusing the ones already located
+     */
+    private static Coordinates[] locate(TransportCatalog catalog, CityLocations cityLocations, Coordinates[] located) {
+        if (located.length == catalog.cityCount()) {
+            return located;
+        }
+        Coordinates[] locations = Arrays.copyOf(located, catalog.cityCount());
+        for (int city = located.length; city < locations.length; city++) {
+            locations[city] = cityLocations.locate(catalog.cityName(city));
+        }
+        return locations;
+    }
+
+    /**
+     * Heuristic of a catalog derived by changes from the one of this heuristic, whose city
+     * and mode ids it keeps: only the new cities are located, and only the inserted
+     * connections can lower the bounds of their mode.
+     *
+     * @return this heuristic if the changes add no city and lower no bound
+     */
+    GeoHeuristic withChanges(TransportCatalog catalog, List<TransportChange> changes) {
+        Coordinates[] nextLocations = locate(catalog, cityLocations, locations);
+        int modes = catalog.modeCount();
+        double[] nextMaxKmPerMinute = Arrays.copyOf(maxKmPerMinute, modes);
+        double[] nextMinCentsPerKm = Arrays.copyOf(minCentsPerKm, modes);
+        boolean[] nextBounded = Arrays.copyOf(bounded, modes);
+        Arrays.fill(nextBounded, bounded.length, modes, true);
+        boolean changed = nextLocations != locations || modes != bounded.length;
+        for (TransportChange change : changes) {
+            if (change == null || change.getOperation() == null
+                    || change.getOperation() == TransportChange.Operation.DELETE) {
+                continue;
+            }
+            Transport t = change.getTransport();
+            if (t == null || t.getDepartureCity() == null || t.getArrivalCity() == null || t.getMode() == null
+                    || t.getDepartureDateTime() == null || t.getArrivalDateTime() == null) {
+                continue;
+            }
+            int mode = catalog.modeId(t.getMode());
+            if (mode < 0 || !nextBounded[mode]) {
+                continue;
+            }
+            int fromCity = catalog.cityId(t.getDepartureCity());
+            int toCity = catalog.cityId(t.getArrivalCity());
+            Coordinates from = fromCity < 0 ? null : nextLocations[fromCity];
+            Coordinates to = toCity < 0 ? null : nextLocations[toCity];
+            if (from == null || to == null) {
+                nextBounded[mode] = false;
+                changed = true;
+                continue;
+            }
+            double km = distances.calculateDistance(from, to);
+            int minutes = TransportCatalog.toEpochMinute(t.getArrivalDateTime())
+                - TransportCatalog.toEpochMinute(t.getDepartureDateTime());
+            if (km <= 0) {
+                continue;
+            }
+            if (minutes <= 0) {
+                nextBounded[mode] = false;
+                changed = true;
+                continue;
+            }
+            double centsPerKm = TransportCatalog.toCents(t.getPrice()) / km;
+            // Without a bound yet, the stored price per km is 0 rather than the lowest one seen
+            if (nextMaxKmPerMinute[mode] == 0) {
+                nextMinCentsPerKm[mode] = centsPerKm;
+                changed = true;
+            } else if (centsPerKm < nextMinCentsPerKm[mode]) {
+                nextMinCentsPerKm[mode] = centsPerKm;
+                changed = true;
+            }
+            if (km / minutes > nextMaxKmPerMinute[mode]) {
+                nextMaxKmPerMinute[mode] = km / minutes;
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return this;
+        }
+        for (int mode = 0; mode < modes; mode++) {
+            if (!nextBounded[mode]) {
+                nextMaxKmPerMinute[mode] = 0;
+                nextMinCentsPerKm[mode] = 0;
+            }
+        }
+        return new GeoHeuristic(this, nextLocations, nextMaxKmPerMinute, nextMinCentsPerKm, nextBounded);
+    }
+
+    private Coordinates location(int city) {
+        return city >= 0 && city < locations.length ? locations[city] : null;
+    }
+
+    /**
+     * @return the bounds toward a destination, for one search
+     */
+    Target toward(int target) {
+        return new Target(target);
+    }
+
+    /**
+     * Bounds toward one destination; distances are computed once per city.
+     */
+    final class Target {
+        private final Coordinates destination;
+        private final double[] km; // by city id, NaN until computed
+
+        private Target(int target) {
+            this.destination = location(target);
+            this.km = new double[locations.length];
+            Arrays.fill(km, Double.NaN);
+        }
+
+        /**
+         * @return a lower bound of the minutes left to reach the destination from a city with a mode
+         */
+        int minutes(int city, int mode) {
+            double speed = maxKmPerMinute[mode];
+            return speed == 0 ? 0 : (int) Math.floor(kmFrom(city) / speed * SAFETY);
+        }
+
+        /**
+         * @return a lower bound of the cents left to pay to reach the destination from a city with a mode
+         */
+        int cents(int city, int mode) {
+            double rate = minCentsPerKm[mode];
+            return rate == 0 ? 0 : (int) Math.floor(kmFrom(city) * rate * SAFETY);
+        }
+
+        private double kmFrom(int city) {
+            if (destination == null || city < 0 || city >= km.length) {
+                return 0;
+            }
+            double d = km[city];
+            if (Double.isNaN(d)) {
+                Coordinates from = locations[city];
+                d = from == null ? 0 : distances.calculateDistance(from, destination);
+                km[city] = d;
+            }
+            return d;
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Timetable read from a GTFS feed directory (stops.txt, trips.txt, stop_times.txt and
+ * calendar.txt and/or calendar_dates.txt; routes.txt is optional).
+ *
+ * The files are streamed with {@link CsvReader} and stop_times.txt is read one trip at a
+ * time, so the feed is never held as rows. Trips visiting the same cities with the same
+ * relative times and prices share one trip pattern, and a trip only keeps its pattern, its
+ * start minute and its service: memory grows with the number of patterns and trips, not
+ * with the number of dated connections. Service calendars are expanded date by date when
+ * a catalog is built ({@link #expand(LocalDate, TransportCatalog.Builder)}), so a catalog
+ * holds every stop pair of every trip of its range; {@link #transportsLeaving} expands a
+ * single departure date instead, for {@link PartitionedTransportService} to load only the
+ * dates that queries touch.
+ *
+ * A stop belongs to the city named by its parent station (location_type 1), or by its own
+ * stop_name. Every pair of stops of a trip in different cities gives one connection, as a
+ * passenger can ride between any two of them. GTFS keeps fares out of the timetable: an
+ * optional cumulative "price" column in stop_times.txt gives the price between two stops as
+ * the difference of their values, otherwise connections are free. The mode comes from the
+ * route_type of routes.txt (TRAIN when unknown). The rows of each trip must be contiguous
+ * in stop_times.txt, as in the feeds exported by usual tools.
+ */
+final class GtfsFeed {
+    static final String DEFAULT_MODE = "TRAIN";
+
+    private static final DateTimeFormatter GTFS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final List<String> cityNames = new ArrayList<>();
+    private final List<String> modeNames = new ArrayList<>();
+    private final List<TripPattern> patterns = new ArrayList<>();
+    private final Service[] services;
+    private final int[][] tripsByService; // trip indexes per service
+    private int[] tripPattern = new int[1024];
+    private int[] tripStart = new int[1024];
+    private int tripCount;
+    private int maxDepartureDays; // days after its service date a trip can still leave a stop
+
+    /**
+     * Receives the connections of a service date, with the city and mode indexes of the feed.
+     */
+    private interface ConnectionSink {
+        void add(int departureCity, int arrivalCity, int mode, int departureMinute, int arrivalMinute, int priceCents);
+    }
+
+    /**
+     * Stops visited by a set of trips, with times relative to the first departure and
+     * cumulative prices in cents.
+     */
+    private static final class TripPattern {
+        final int mode;
+        final int[] cities;
+        final int[] arrivals;
+        final int[] departures;
+        final int[] prices;
+
+        TripPattern(int mode, int[] cities, int[] arrivals, int[] departures, int[] prices) {
+            this.mode = mode;
+            this.cities = cities;
+            this.arrivals = arrivals;
+            this.departures = departures;
+            this.prices = prices;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TripPattern)) {
+                return false;
+            }
+            TripPattern other = (TripPattern) o;
+            return mode == other.mode && Arrays.equals(cities, other.cities) && Arrays.equals(arrivals, other.arrivals)
+                && Arrays.equals(departures, other.departures) && Arrays.equals(prices, other.prices);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = mode;
+            h = 31 * h + Arrays.hashCode(cities);
+            h = 31 * h + Arrays.hashCode(arrivals);
+            h = 31 * h + Arrays.hashCode(departures);
+            return 31 * h + Arrays.hashCode(prices);
+        }
+    }
+
+    /**
+     * Dates of a service: weekdays within a range (calendar.txt) plus added and minus
+     * removed dates (calendar_dates.txt).
+     */
+    private static final class Service {
+        final boolean[] weekdays = new boolean[7]; // Monday first
+        LocalDate start;
+        LocalDate end;
+        final Set<LocalDate> added = new HashSet<>();
+        final Set<LocalDate> removed = new HashSet<>();
+
+        boolean runsOn(LocalDate date) {
+            if (added.contains(date)) {
+                return true;
+            }
+            if (removed.contains(date) || start == null) {
+                return false;
+            }
+            return !date.isBefore(start) && !date.isAfter(end) && weekdays[date.getDayOfWeek().getValue() - 1];
+        }
+    }
+
+    /**
+     * Reads a feed directory.
+     *
+     * @throws IOException if a required file or column is missing or a value is malformed
+     */
+    static GtfsFeed read(Path directory) throws IOException {
+        return new GtfsFeed(directory);
+    }
+
+    private GtfsFeed(Path directory) throws IOException {
+        Map<String, Integer> cityOfStop = readStops(directory.resolve("stops.txt"));
+        Map<String, Integer> modeOfRoute = readRoutes(directory.resolve("routes.txt"));
+        Map<String, Integer> serviceIds = new HashMap<>();
+        List<Service> serviceList = new ArrayList<>();
+        Path calendar = directory.resolve("calendar.txt");
+        Path calendarDates = directory.resolve("calendar_dates.txt");
+        if (!Files.exists(calendar) && !Files.exists(calendarDates)) {
+            throw new IOException("Missing GTFS file: calendar.txt or calendar_dates.txt");
+        }
+        if (Files.exists(calendar)) {
+            readCalendar(calendar, serviceIds, serviceList);
+        }
+        if (Files.exists(calendarDates)) {
+            readCalendarDates(calendarDates, serviceIds, serviceList);
+        }
+        Map<String, int[]> trips = readTrips(directory.resolve("trips.txt"), modeOfRoute, serviceIds, serviceList);
+        this.services = serviceList.toArray(new Service[0]);
+
+        int[] tripService = readStopTimes(directory.resolve("stop_times.txt"), cityOfStop, trips);
+        int[] perService = new int[services.length];
+        for (int t = 0; t < tripCount; t++) {
+            perService[tripService[t]]++;
+        }
+        this.tripsByService = new int[services.length][];
+        for (int s = 0; s < services.length; s++) {
+            tripsByService[s] = new int[perService[s]];
+            perService[s] = 0;
+        }
+        for (int t = 0; t < tripCount; t++) {
+            int s = tripService[t];
+            tripsByService[s][perService[s]++] = t;
+            int[] departures = patterns.get(tripPattern[t]).departures;
+            int lastDeparture = tripStart[t] + departures[departures.length - 2];
+            maxDepartureDays = Math.max(maxDepartureDays, Math.floorDiv(lastDeparture, 24 * 60));
+        }
+    }
+
+    private static CsvReader open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IOException("Missing GTFS file: " + file.getFileName());
+        }
+        return new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the city index of every stop id
+     */
+    private Map<String, Integer> readStops(Path file) throws IOException {
+        Map<String, String> nameOfStop = new HashMap<>();
+        Map<String, String> parentOfStop = new HashMap<>();
+        try (CsvReader csv = open(file)) {
+            int id = csv.requiredColumn("stop_id");
+            int name = csv.requiredColumn("stop_name");
+            int parent = csv.column("parent_station");
+            while (csv.next()) {
+                nameOfStop.put(csv.get(id), csv.get(name).trim());
+                if (!csv.get(parent).isEmpty()) {
+                    parentOfStop.put(csv.get(id), csv.get(parent));
+                }
+            }
+        }
+        Map<String, Integer> cityIndexes = new HashMap<>();
+        Map<String, Integer> cityOfStop = new HashMap<>();
+        for (Map.Entry<String, String> stop : nameOfStop.entrySet()) {
+            String parent = parentOfStop.get(stop.getKey());
+            String name = parent != null && nameOfStop.containsKey(parent) ? nameOfStop.get(parent) : stop.getValue();
+            Integer city = cityIndexes.get(CityRegistry.normalize(name));
+            if (city == null) {
+                city = cityNames.size();
+                cityNames.add(name);
+                cityIndexes.put(CityRegistry.normalize(name), city);
+            }
+            cityOfStop.put(stop.getKey(), city);
+        }
+        return cityOfStop;
+    }
+
+    /**
+     * @return the mode index of every route id (empty if the feed has no routes.txt)
+     */
+    private Map<String, Integer> readRoutes(Path file) throws IOException {
+        Map<String, Integer> modeOfRoute = new HashMap<>();
+        if (!Files.exists(file)) {
+            return modeOfRoute;
+        }
+        try (CsvReader csv = open(file)) {
+            int id = csv.requiredColumn("route_id");
+            int type = csv.column("route_type");
+            while (csv.next()) {
+                modeOfRoute.put(csv.get(id), modeIndex(modeOf(csv.get(type))));
+            }
+        }
+        return modeOfRoute;
+    }
+
+    /**
+     * @param routeType a GTFS route_type, basic or extended
+     * @return the mode of the catalog for the route type
+     */
+    static String modeOf(String routeType) {
+        int type;
+        try {
+            type = Integer.parseInt(routeType.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_MODE;
+        }
+        if (type == 3 || type == 11 || (type >= 200 && type < 300) || (type >= 700 && type < 800) || type == 800) {
+            return "BUS";
+        }
+        if (type == 4 || (type >= 1000 && type < 1100) || type == 1200) {
+            return "FERRY";
+        }
+        if (type >= 1100 && type < 1200) {
+            return "PLANE";
+        }
+        return DEFAULT_MODE;
+    }
+
+    private int modeIndex(String mode) {
+        int index = modeNames.indexOf(mode);
+        if (index < 0) {
+            index = modeNames.size();
+            modeNames.add(mode);
+        }
+        return index;
+    }
+
+    private static Service service(String id, Map<String, Integer> serviceIds, List<Service> services) {
+        Integer index = serviceIds.get(id);
+        if (index == null) {
+            index = services.size();
+            services.add(new Service());
+            serviceIds.put(id, index);
+        }
+        return services.get(index);
+    }
+
+    private static void readCalendar(Path file, Map<String, Integer> serviceIds, List<Service> services)
+        throws IOException {
+        try (CsvReader csv = open(file)) {
+            int id = csv.requiredColumn("service_id");
+            int[] days = new int[7];
+            for (DayOfWeek day : DayOfWeek.values()) {
+                days[day.getValue() - 1] = csv.requiredColumn(day.name().toLowerCase(Locale.ROOT));
+            }
+            int start = csv.requiredColumn("start_date");
+            int end = csv.requiredColumn("end_date");
+            while (csv.next()) {
+                Service service = service(csv.get(id), serviceIds, services);
+                for (int d = 0; d < 7; d++) {
+                    service.weekdays[d] = "1".equals(csv.get(days[d]).trim());
+                }
+                service.start = date(csv, start);
+                service.end = date(csv, end);
+            }
+        }
+    }
+
+    private static void readCalendarDates(Path file, Map<String, Integer> serviceIds, List<Service> services)
+        throws IOException {
+        try (CsvReader csv = open(file)) {
+            int id = csv.requiredColumn("service_id");
+            int date = csv.requiredColumn("date");
+            int type = csv.requiredColumn("exception_type");
+            while (csv.next()) {
+                Service service = service(csv.get(id), serviceIds, services);
+                LocalDate day = date(csv, date);
+                if ("1".equals(csv.get(type).trim())) {
+                    service.added.add(day);
+                    service.removed.remove(day);
+                } else {
+                    service.removed.add(day);
+                    service.added.remove(day);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the service index and the mode index of every trip id
+     */
+    private Map<String, int[]> readTrips(Path file, Map<String, Integer> modeOfRoute, Map<String, Integer> serviceIds,
+                                         List<Service> services) throws IOException {
+        Map<String, int[]> trips = new HashMap<>();
+        try (CsvReader csv = open(file)) {
+            int id = csv.requiredColumn("trip_id");
+            int route = csv.requiredColumn("route_id");
+            int service = csv.requiredColumn("service_id");
+            while (csv.next()) {
+                Integer mode = modeOfRoute.get(csv.get(route));
+                Integer serviceIndex = serviceIds.get(csv.get(service));
+                if (serviceIndex == null) {
+                    // a service without dates: the trip never runs
+                    serviceIndex = services.size();
+                    services.add(new Service());
+                    serviceIds.put(csv.get(service), serviceIndex);
+                }
+                trips.put(csv.get(id), new int[] {serviceIndex, mode == null ? modeIndex(DEFAULT_MODE) : mode});
+            }
+        }
+        return trips;
+    }
+
+    /**
+     * Reads the stop times one trip at a time and records the pattern and start of each trip.
+     *
+     * @return the service index of every trip
+     */
+    private int[] readStopTimes(Path file, Map<String, Integer> cityOfStop, Map<String, int[]> trips)
+        throws IOException {
+        Map<TripPattern, Integer> patternIds = new HashMap<>();
+        Set<String> finished = new HashSet<>();
+        int[] tripService = new int[1024];
+        try (CsvReader csv = open(file)) {
+            int tripColumn = csv.requiredColumn("trip_id");
+            int arrivalColumn = csv.requiredColumn("arrival_time");
+            int departureColumn = csv.requiredColumn("departure_time");
+            int stopColumn = csv.requiredColumn("stop_id");
+            int sequenceColumn = csv.requiredColumn("stop_sequence");
+            int priceColumn = csv.column("price");
+            StopTimes stops = new StopTimes();
+            String current = null;
+            boolean more = csv.next();
+            while (more) {
+                String trip = csv.get(tripColumn);
+                if (!trip.equals(current)) {
+                    if (current != null) {
+                        tripService = finishTrip(current, stops, trips, patternIds, tripService);
+                    }
+                    if (!finished.add(trip)) {
+                        throw new IOException("Stop times of trip " + trip + " are not contiguous (line "
+                            + csv.line() + ")");
+                    }
+                    current = trip;
+                    stops.clear();
+                }
+                Integer city = cityOfStop.get(csv.get(stopColumn));
+                if (city == null) {
+                    throw new IOException("Unknown stop " + csv.get(stopColumn) + " (line " + csv.line() + ")");
+                }
+                String arrival = csv.get(arrivalColumn).trim();
+                String departure = csv.get(departureColumn).trim();
+                if (!arrival.isEmpty() || !departure.isEmpty()) {
+                    // stops without times are interpolated in GTFS: they cannot be boarded at a known time
+                    int arrivalMinute = minutes(arrival.isEmpty() ? departure : arrival, csv);
+                    int departureMinute = minutes(departure.isEmpty() ? arrival : departure, csv);
+                    String price = csv.get(priceColumn).trim();
+                    stops.add(integer(csv.get(sequenceColumn), csv), city, arrivalMinute, departureMinute,
+                        price.isEmpty() ? 0 : TransportCatalog.toCents(decimal(price, csv)));
+                }
+                more = csv.next();
+            }
+            if (current != null) {
+                tripService = finishTrip(current, stops, trips, patternIds, tripService);
+            }
+        }
+        return tripService;
+    }
+
+    private int[] finishTrip(String trip, StopTimes stops, Map<String, int[]> trips,
+                             Map<TripPattern, Integer> patternIds, int[] tripService) throws IOException {
+        int[] serviceAndMode = trips.get(trip);
+        if (serviceAndMode == null) {
+            throw new IOException("Unknown trip in stop_times.txt: " + trip);
+        }
+        if (stops.size < 2) {
+            return tripService;
+        }
+        stops.sortBySequence();
+        int start = stops.departures[0];
+        int n = stops.size;
+        int[] arrivals = new int[n];
+        int[] departures = new int[n];
+        int[] prices = new int[n];
+        for (int i = 0; i < n; i++) {
+            arrivals[i] = stops.arrivals[i] - start;
+            departures[i] = stops.departures[i] - start;
+            prices[i] = stops.prices[i] - stops.prices[0];
+        }
+        TripPattern pattern = new TripPattern(serviceAndMode[1], Arrays.copyOf(stops.cities, n), arrivals, departures,
+            prices);
+        Integer id = patternIds.get(pattern);
+        if (id == null) {
+            id = patterns.size();
+            patterns.add(pattern);
+            patternIds.put(pattern, id);
+        }
+        if (tripCount == tripPattern.length) {
+            tripPattern = Arrays.copyOf(tripPattern, tripCount * 2);
+            tripStart = Arrays.copyOf(tripStart, tripCount * 2);
+        }
+        if (tripCount == tripService.length) {
+            tripService = Arrays.copyOf(tripService, tripCount * 2);
+        }
+        tripPattern[tripCount] = id;
+        tripStart[tripCount] = start;
+        tripService[tripCount] = serviceAndMode[0];
+        tripCount++;
+        return tripService;
+    }
+
+    /**
+     * Timed stops of the trip being read.
+     */
+    private static final class StopTimes {
+        int size;
+        int[] sequences = new int[16];
+        int[] cities = new int[16];
+        int[] arrivals = new int[16];
+        int[] departures = new int[16];
+        int[] prices = new int[16];
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int sequence, int city, int arrival, int departure, int price) {
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+                cities = Arrays.copyOf(cities, size * 2);
+                arrivals = Arrays.copyOf(arrivals, size * 2);
+                departures = Arrays.copyOf(departures, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            sequences[size] = sequence;
+            cities[size] = city;
+            arrivals[size] = arrival;
+            departures[size] = departure;
+            prices[size] = price;
+            size++;
+        }
+
+        /**
+         * Insertion sort: the rows of a trip are short and almost always already in order.
+         */
+        void sortBySequence() {
+            for (int i = 1; i < size; i++) {
+                for (int j = i; j > 0 && sequences[j - 1] > sequences[j]; j--) {
+                    swap(sequences, j);
+                    swap(cities, j);
+                    swap(arrivals, j);
+                    swap(departures, j);
+                    swap(prices, j);
+                }
+            }
+        }
+
+        private static void swap(int[] a, int j) {
+            int t = a[j];
+            a[j] = a[j - 1];
+            a[j - 1] = t;
+        }
+    }
+
+    /**
+     * @param time a GTFS time H:MM:SS or HH:MM:SS, which may exceed 24:00:00 for trips running past midnight
+     * @return the minutes since the start of the service day
+     */
+    static int minutes(String time, CsvReader csv) throws IOException {
+        int first = time.indexOf(':');
+        int second = time.indexOf(':', first + 1);
+        if (first <= 0 || second < 0) {
+            throw new IOException("Malformed GTFS time '" + time + "' (line " + csv.line() + ")");
+        }
+        return integer(time.substring(0, first), csv) * 60 + integer(time.substring(first + 1, second), csv);
+    }
+
+    private static int integer(String value, CsvReader csv) throws IOException {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed GTFS number '" + value + "' (line " + csv.line() + ")", e);
+        }
+    }
+
+    private static double decimal(String value, CsvReader csv) throws IOException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed GTFS price '" + value + "' (line " + csv.line() + ")", e);
+        }
+    }
+
+    private static LocalDate date(CsvReader csv, int column) throws IOException {
+        try {
+            return LocalDate.parse(csv.get(column).trim(), GTFS_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Malformed GTFS date '" + csv.get(column) + "' (line " + csv.line() + ")", e);
+        }
+    }
+
+    /**
+     * @return the number of trips of the feed (before calendar expansion)
+     */
+    int tripCount() {
+        return tripCount;
+    }
+
+    /**
+     * @return the number of distinct trip patterns
+     */
+    int patternCount() {
+        return patterns.size();
+    }
+
+    /**
+     * Builds a catalog with the connections of every date of a range.
+     */
+    TransportCatalog catalog(LocalDate firstDate, LocalDate lastDate, CityRegistry cities) {
+        TransportCatalog.Builder builder = new TransportCatalog.Builder(cities);
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            expand(date, builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Adds the connections of the trips running on one service date to a catalog.
+     *
+     * @return the number of connections added
+     */
+    int expand(LocalDate date, TransportCatalog.Builder builder) {
+        int[] cityIds = new int[cityNames.size()];
+        for (int c = 0; c < cityIds.length; c++) {
+            cityIds[c] = builder.city(cityNames.get(c));
+        }
+        int[] modeIds = new int[modeNames.size()];
+        for (int m = 0; m < modeIds.length; m++) {
+            modeIds[m] = builder.mode(modeNames.get(m));
+        }
+        return forEachConnection(date, (from, to, mode, departure, arrival, price) ->
+            builder.add(cityIds[from], cityIds[to], modeIds[mode], departure, arrival, price));
+    }
+
+    /**
+     * Adds the connections leaving on a date to a list, whatever their service date (a trip
+     * of the previous service date leaves after midnight with times past 24:00:00).
+     *
+     * @return the number of connections added
+     */
+    int transportsLeaving(LocalDate date, List<Transport> rows) {
+        int dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+        int dayEnd = dayStart + 24 * 60;
+        int[] added = {0};
+        for (LocalDate service = date.minusDays(maxDepartureDays); !service.isAfter(date);
+                service = service.plusDays(1)) {
+            forEachConnection(service, (from, to, mode, departure, arrival, price) -> {
+                if (departure >= dayStart && departure < dayEnd) {
+                    rows.add(new Transport(cityNames.get(from), cityNames.get(to),
+                        TransportCatalog.fromEpochMinute(departure), TransportCatalog.fromEpochMinute(arrival),
+                        modeNames.get(mode), price / 100.0));
+                    added[0]++;
+                }
+            });
+        }
+        return added[0];
+    }
+
+    /**
+     * Passes the connections of the trips running on one service date to a sink.
+     *
+     * @return the number of connections
+     */
+    private int forEachConnection(LocalDate date, ConnectionSink sink) {
+        int dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+        int added = 0;
+        for (int s = 0; s < services.length; s++) {
+            if (!services[s].runsOn(date)) {
+                continue;
+            }
+            for (int t : tripsByService[s]) {
+                TripPattern pattern = patterns.get(tripPattern[t]);
+                int start = dayStart + tripStart[t];
+                int[] stops = pattern.cities;
+                for (int i = 0; i < stops.length - 1; i++) {
+                    for (int j = i + 1; j < stops.length; j++) {
+                        if (stops[i] == stops[j]) {
+                            continue;
+                        }
+                        sink.add(stops[i], stops[j], pattern.mode, start + pattern.departures[i],
+                            start + pattern.arrivals[j], pattern.prices[j] - pattern.prices[i]);
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+}
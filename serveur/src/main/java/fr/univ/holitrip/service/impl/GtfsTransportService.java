@@ -0,0 +1,41 @@
+package fr.univ.holitrip.service.impl;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * TransportService reading a GTFS feed directory (see {@link GtfsFeed}) instead of the JSON
+ * file. The feed is streamed and its service calendars are expanded over a range of dates
+ * into the same {@link TransportCatalog} as {@link JsonTransportService}, with the same
+ * searches; the feed is not watched for changes. Every stop pair of every trip of the
+ * range is held at once, so memory grows with the length of the range; for long ranges,
+ * {@link PartitionedTransportService#fromGtfs} expands the dates that queries touch only.
+ */
+public class GtfsTransportService extends JsonTransportService {
+
+    public GtfsTransportService(Path feedDirectory, LocalDate firstDate, LocalDate lastDate) {
+        this(feedDirectory, firstDate, lastDate, CityRegistry.shared());
+    }
+
+    /**
+     * @param feedDirectory directory containing the GTFS files; if the feed cannot be read,
+     *                      the service has no transport
+     * @param firstDate first service date to expand
+     * @param lastDate last service date to expand (inclusive)
+     * @param cities registry used to map city names to ids
+     */
+    public GtfsTransportService(Path feedDirectory, LocalDate firstDate, LocalDate lastDate, CityRegistry cities) {
+        super(load(feedDirectory, firstDate, lastDate, cities));
+    }
+
+    private static TransportCatalog load(Path feedDirectory, LocalDate firstDate, LocalDate lastDate,
+                                         CityRegistry cities) {
+        try {
+            return GtfsFeed.read(feedDirectory).catalog(firstDate, lastDate, cities);
+        } catch (Exception e) {
+            return new TransportCatalog(null, cities);
+        }
+    }
+}
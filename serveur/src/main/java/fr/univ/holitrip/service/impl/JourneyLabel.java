@@ -0,0 +1,94 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+
+/**
+ * Partial journey ending at a city, used by the label-based searches
+ * ({@link RaptorEngine}, {@link TopKJourneyEngine}). Labels are immutable and only point to the label
+ * they extend, so extending a journey allocates one object and shares its prefix;
+ * the list of transports is only materialized for the journeys that are returned.
+ */
+final class JourneyLabel {
+    final JourneyLabel parent; // null for a first leg
+    final int connection;
+    final int city;
+    final int mode;
+    final int legs;
+    final int firstDeparture;
+    final int arrival;
+    final int price; // in cents
+    final int remaining; // lower bound of the cost left to the destination (A*), 0 if unknown
+
+    JourneyLabel(JourneyLabel parent, int connection, int city, int mode,
+                 int firstDeparture, int arrival, int price) {
+        this(parent, connection, city, mode, firstDeparture, arrival, price, 0);
+    }
+
+    JourneyLabel(JourneyLabel parent, int connection, int city, int mode,
+                 int firstDeparture, int arrival, int price, int remaining) {
+        this.parent = parent;
+        this.connection = connection;
+        this.city = city;
+        this.mode = mode;
+        this.legs = parent == null ? 1 : parent.legs + 1;
+        this.firstDeparture = firstDeparture;
+        this.arrival = arrival;
+        this.price = price;
+        this.remaining = remaining;
+    }
+
+    int duration() {
+        return arrival - firstDeparture;
+    }
+
+    /**
+     * Whether the journey already arrived at a city. The visited city ids are read from
+     * the parent chain (at most maxLegs ids), so no set has to be copied; the origin is
+     * checked separately by the search.
+     */
+    boolean visits(int cityId) {
+        for (JourneyLabel l = this; l != null; l = l.parent) {
+            if (l.city == cityId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A label dominates another one at the same city if every extension of the other
+     * can be matched at a price, arrival and duration that are not worse.
+     */
+    boolean dominates(JourneyLabel other) {
+        return dominates(other.mode, other.price, other.arrival, other.firstDeparture);
+    }
+
+    boolean dominates(int otherMode, int otherPrice, int otherArrival, int otherFirstDeparture) {
+        return mode == otherMode
+            && price <= otherPrice
+            && arrival <= otherArrival
+            && firstDeparture >= otherFirstDeparture;
+    }
+
+    /**
+     * Orders labels by the departure of their last connection, the order in which a scan
+     * of the catalog meets them (ids of equal departure minutes are in departure order).
+     */
+    static Comparator<JourneyLabel> inDepartureOrder(TransportCatalog catalog) {
+        return Comparator.comparingInt((JourneyLabel l) -> catalog.departureMinute(l.connection))
+            .thenComparingInt(l -> l.connection);
+    }
+
+    Trip toTrip(TransportCatalog catalog) {
+        Transport[] transports = new Transport[legs];
+        for (JourneyLabel l = this; l != null; l = l.parent) {
+            transports[l.legs - 1] = catalog.connection(l.connection);
+        }
+        return new Trip(new ArrayList<>(Arrays.asList(transports)));
+    }
+}
@@ -6,27 +6,31 @@ import fr.univ.holitrip.service.ActivityService;
 import fr.univ.holitrip.service.DistanceService;
 import fr.univ.holitrip.service.GeocodingService;
 import fr.univ.holitrip.exception.GeocodingException;
+import fr.univ.holitrip.util.CityRegistry;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.reflect.TypeToken;
-
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * JSON-based implementation of ActivityService.
- * Reads activity data from a JSON file and filters based on criteria.
+ * Streams activity data once from a JSON file, groups it by city id and filters based on criteria.
  * Uses GeocodingService and DistanceService for distance filtering.
+ * When the file is given as a filesystem path, the service can watch it and swap in a new
+ * index after each change ({@link SnapshotReloader}).
  */
-public class JsonActivityService implements ActivityService {
-    private String jsonFilePath;
+public class JsonActivityService implements ActivityService, AutoCloseable {
+    private final CityRegistry cities;
+    private final SnapshotReloader<Map<Integer, List<Activity>>> activitiesByCity;
     private GeocodingService geocodingService;
     private DistanceService distanceService;
 
@@ -40,39 +44,119 @@ public class JsonActivityService implements ActivityService {
     public JsonActivityService(String jsonFilePath, 
                                GeocodingService geocodingService,
                                DistanceService distanceService) {
-        this.jsonFilePath = jsonFilePath;
+        this(jsonFilePath, geocodingService, distanceService, CityRegistry.shared());
+    }
+
+    /**
+     * Constructor with dependency injection and an explicit city registry.
+     * 
+     * @param jsonFilePath path to the JSON file
+     * @param geocodingService service to convert addresses to GPS coordinates
+     * @param distanceService service to calculate distances
+     * @param cities registry used to map city names to ids
+     */
+    public JsonActivityService(String jsonFilePath,
+                               GeocodingService geocodingService,
+                               DistanceService distanceService,
+                               CityRegistry cities) {
+        this.cities = cities;
+        this.activitiesByCity = SnapshotReloader.fixed(load(jsonFilePath, cities));
+        this.geocodingService = geocodingService;
+        this.distanceService = distanceService;
+    }
+
+    /**
+     * Constructor reading the activities from a file that can be reloaded when it changes.
+     * 
+     * @param jsonFile file containing the activities (no activity if it cannot be read)
+     * @param geocodingService service to convert addresses to GPS coordinates
+     * @param distanceService service to calculate distances
+     * @param hotReload true to reload the file in the background whenever it changes
+     */
+    public JsonActivityService(Path jsonFile,
+                               GeocodingService geocodingService,
+                               DistanceService distanceService,
+                               boolean hotReload) {
+        this(jsonFile, geocodingService, distanceService, hotReload, CityRegistry.shared());
+    }
+
+    /**
+     * Constructor reading the activities from a file that can be reloaded when it changes,
+     * with an explicit city registry.
+     * 
+     * @param jsonFile file containing the activities (no activity if it cannot be read)
+     * @param geocodingService service to convert addresses to GPS coordinates
+     * @param distanceService service to calculate distances
+     * @param hotReload true to reload the file in the background whenever it changes
+     * @param cities registry used to map city names to ids
+     */
+    public JsonActivityService(Path jsonFile,
+                               GeocodingService geocodingService,
+                               DistanceService distanceService,
+                               boolean hotReload,
+                               CityRegistry cities) {
+        this.cities = cities;
+        this.activitiesByCity = SnapshotReloader.fromFile(jsonFile,
+            file -> {
+                try (InputStream is = Files.newInputStream(file)) {
+                    return read(is, cities);
+                }
+            },
+            new HashMap<>(), hotReload);
         this.geocodingService = geocodingService;
         this.distanceService = distanceService;
     }
 
+    /**
+     * Stops watching the activity file; the service keeps answering from its last index.
+     */
+    @Override
+    public void close() {
+        activitiesByCity.close();
+    }
+
+    /**
+     * Streams the activities of a classpath resource straight into the city index.
+     * Returns an empty index if the resource is missing or cannot be parsed.
+     */
+    private static Map<Integer, List<Activity>> load(String jsonFilePath, CityRegistry cities) {
+        try (InputStream is = CatalogReader.openResource(jsonFilePath)) {
+            return is == null ? new HashMap<>() : read(is, cities);
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+
+    private static Map<Integer, List<Activity>> read(InputStream is, CityRegistry cities) throws IOException {
+        Map<Integer, List<Activity>> byCity = new HashMap<>();
+        try (CatalogReader reader = new CatalogReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            reader.forEachActivity(a -> {
+                if (a.getCity() != null) {
+                    byCity.computeIfAbsent(cities.register(a.getCity()), c -> new ArrayList<>()).add(a);
+                }
+            });
+        }
+        return byCity;
+    }
+
     @Override
     public List<Activity> findActivities(String city, List<String> categories, 
                                          LocalDate date, double maxPrice, 
                                          Coordinates hotelLocation, double maxDistance) {
         try {
-            // 1. Read JSON file
-            InputStream is = getClass().getClassLoader().getResourceAsStream(jsonFilePath);
-            if (is == null) {
+            // 1. Look up the activities of the city by id
+            List<Activity> cityActivities = activitiesByCity.get().get(cities.find(city));
+            if (cityActivities == null) {
                 return new ArrayList<>();
             }
 
-            // 2. Parse JSON with Gson (custom adapter for LocalDate)
-            Gson gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDate.class, 
-                    (JsonDeserializer<LocalDate>) (json, type, context) -> 
-                        LocalDate.parse(json.getAsString()))
-                .create();
-            Type listType = new TypeToken<List<Activity>>(){}.getType();
-            List<Activity> allActivities = gson.fromJson(new InputStreamReader(is), listType);
-
-            // 3. Filter by basic criteria
-            List<Activity> filtered = allActivities.stream()
-                .filter(a -> a.getCity().equalsIgnoreCase(city))
+            // 2. Filter by basic criteria
+            List<Activity> filtered = cityActivities.stream()
                 .filter(a -> categories.isEmpty() || categories.contains(a.getCategory()))
                 .filter(a -> a.getPrice() <= maxPrice)
                 .collect(Collectors.toList());
 
-            // 4. Filter by distance if hotelLocation is provided
+            // 3. Filter by distance if hotelLocation is provided
             if (hotelLocation != null && maxDistance > 0) {
                 filtered = filtered.stream()
                     .filter(a -> isWithinDistance(a, hotelLocation, maxDistance))
@@ -2,45 +2,106 @@ package fr.univ.holitrip.service.impl;
 
 import fr.univ.holitrip.model.Hotel;
 import fr.univ.holitrip.service.HotelService;
+import fr.univ.holitrip.util.CityRegistry;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * JSON-based implementation of HotelService.
- * Reads hotel data from a JSON file and filters based on criteria.
+ * Streams hotel data once from a JSON file, groups it by city id and filters based on criteria.
+ * When the file is given as a filesystem path, the service can watch it and swap in a new
+ * index after each change ({@link SnapshotReloader}).
  */
-public class JsonHotelService implements HotelService {
-    private String jsonFilePath;
+public class JsonHotelService implements HotelService, AutoCloseable {
+    private final CityRegistry cities;
+    private final SnapshotReloader<Map<Integer, List<Hotel>>> hotelsByCity;
 
     public JsonHotelService(String jsonFilePath) {
-        this.jsonFilePath = jsonFilePath;
+        this(jsonFilePath, CityRegistry.shared());
+    }
+
+    /**
+     * @param jsonFilePath classpath resource containing the hotels
+     * @param cities registry used to map city names to ids
+     */
+    public JsonHotelService(String jsonFilePath, CityRegistry cities) {
+        this.cities = cities;
+        this.hotelsByCity = SnapshotReloader.fixed(load(jsonFilePath, cities));
+    }
+
+    public JsonHotelService(Path jsonFile, boolean hotReload) {
+        this(jsonFile, hotReload, CityRegistry.shared());
+    }
+
+    /**
+     * @param jsonFile file containing the hotels (no hotel if it cannot be read)
+     * @param hotReload true to reload the file in the background whenever it changes
+     * @param cities registry used to map city names to ids
+     */
+    public JsonHotelService(Path jsonFile, boolean hotReload, CityRegistry cities) {
+        this.cities = cities;
+        this.hotelsByCity = SnapshotReloader.fromFile(jsonFile,
+            file -> {
+                try (InputStream is = Files.newInputStream(file)) {
+                    return read(is, cities);
+                }
+            },
+            new HashMap<>(), hotReload);
+    }
+
+    /**
+     * Stops watching the hotel file; the service keeps answering from its last index.
+     */
+    @Override
+    public void close() {
+        hotelsByCity.close();
+    }
+
+    /**
+     * Streams the hotels of a classpath resource straight into the city index.
+     * Returns an empty index if the resource is missing or cannot be parsed.
+     */
+    private static Map<Integer, List<Hotel>> load(String jsonFilePath, CityRegistry cities) {
+        try (InputStream is = CatalogReader.openResource(jsonFilePath)) {
+            return is == null ? new HashMap<>() : read(is, cities);
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+
+    private static Map<Integer, List<Hotel>> read(InputStream is, CityRegistry cities) throws IOException {
+        Map<Integer, List<Hotel>> byCity = new HashMap<>();
+        try (CatalogReader reader = new CatalogReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            reader.forEachHotel(h -> {
+                if (h.getCity() != null) {
+                    byCity.computeIfAbsent(cities.register(h.getCity()), c -> new ArrayList<>()).add(h);
+                }
+            });
+        }
+        return byCity;
     }
 
     @Override
     public List<Hotel> findHotels(String city, int minRating, double maxPricePerNight) {
         try {
-            // 1. Read JSON file
-            InputStream is = getClass().getClassLoader().getResourceAsStream(jsonFilePath);
-            if (is == null) {
+            // 1. Look up the hotels of the city by id
+            List<Hotel> cityHotels = hotelsByCity.get().get(cities.find(city));
+            if (cityHotels == null) {
                 return new ArrayList<>();
             }
 
-            // 2. Parse JSON with Gson
-            Gson gson = new Gson();
-            Type listType = new TypeToken<List<Hotel>>(){}.getType();
-            List<Hotel> allHotels = gson.fromJson(new InputStreamReader(is), listType);
-
-            // 3. Filter by criteria
-            return allHotels.stream()
-                .filter(h -> h.getCity().equalsIgnoreCase(city))
+            // 2. Filter by criteria
+            return cityHotels.stream()
                 .filter(h -> h.getRating() >= minRating)
                 .filter(h -> h.getPricePerNight() <= maxPricePerNight)
                 .collect(Collectors.toList());
@@ -1,94 +1,437 @@
 package fr.univ.holitrip.service.impl;
 
-import java.io.InputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-// import java.lang.ProcessBuilder.Redirect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-//import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-//import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.reflect.TypeToken;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.DistanceService;
 import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.util.CityRegistry;
+import fr.univ.holitrip.util.TransportHelper;
 
 /**
  * JSON-based implementation of TransportService.
- * Reads transport data from a JSON file and filters based on criteria.
- * Supports multi-leg journeys using BFS algorithm.
+ * Transport data is read once from a JSON file into an immutable {@link TransportCatalog}
+ * and every query filters that snapshot. When the file is given as a filesystem path, the
+ * service can watch it and swap in a new snapshot after each change ({@link SnapshotReloader});
+ * inventory changes can also be applied in place of a reload ({@link #applyChanges(List)}).
+ * Supports multi-leg journeys using the Connection Scan Algorithm ({@link ConnectionScanEngine})
+ * Pareto-optimal journey sets using a round-based search ({@link RaptorEngine}) and the
+ * k best journeys for a priority ({@link TopKJourneyEngine}), guided toward the destination
+ * by city coordinates ({@link CityLocations}). The Connection Scan engine also answers
+ * latest-departure queries by scanning backward from an arrival deadline, and the lowest
+ * prices per date come from a calendar materialized per catalog ({@link MinPriceCalendar}).
  */
-public class JsonTransportService implements TransportService {
-    private String jsonFilePath;
+public class JsonTransportService implements TransportService, AutoCloseable {
+    private final SearchStats searchStats = new SearchStats();
+    private final SnapshotReloader<Snapshot> snapshots;
     private static final int MAX_LEGS = 3; // Maximum number of legs allowed
     private static final long MIN_CONNECTION_MINUTES = 60; // Minimum connection time
+    private static final DistanceService DISTANCES = new HaversineDistanceService();
+    /** Smallest catalog whose "any mode" searches run one mode per thread by default. */
+    public static final int PARALLEL_MIN_CONNECTIONS = 50_000;
+    /** Bytes of a change log read at a time by {@link #applyChangeLog}. */
+    static final int CHANGE_LOG_CHUNK_BYTES = 64 * 1024;
+    /** Changes of a change log from which {@link #applyChangeLog} publishes a snapshot. */
+    static final int CHANGE_LOG_BATCH = 10_000;
+    private volatile CityLocations cityLocations = CityLocations.bundled();
+    private volatile ParallelModeSearch parallelSearch =
+        new ParallelModeSearch(ForkJoinPool.commonPool(), PARALLEL_MIN_CONNECTIONS);
+
+    /**
+     * A catalog with the search engines built on it, with the settings of the service at the
+     * time it is built; queries use one snapshot from start to end. The min-price calendar is
+     * built in the background from the first use on, and updated in the background after
+     * changes if the previous snapshot had one.
+     */
+    private final class Snapshot {
+        final TransportCatalog catalog;
+        final ReachabilityMatrix reachability;
+        final GeoHeuristic heuristic;
+        final ParallelModeSearch parallel;
+        final ConnectionScanEngine journeyEngine;
+        final RaptorEngine paretoEngine;
+        final TopKJourneyEngine topKEngine;
+        private final AtomicReference<CompletableFuture<MinPriceCalendar>> minPrices;
+
+        Snapshot(TransportCatalog catalog) {
+            this(catalog, ReachabilityMatrix.build(catalog, MAX_LEGS), heuristicOf(catalog), null);
+        }
+
+        /**
+         * @param reachability the matrix of the catalog
+         * @param heuristic the heuristic of the catalog, or null
+         * @param minPrices the calendar of the catalog if already started, or null
+         */
+        Snapshot(TransportCatalog catalog, ReachabilityMatrix reachability, GeoHeuristic heuristic,
+                 CompletableFuture<MinPriceCalendar> minPrices) {
+            this.catalog = catalog;
+            this.reachability = reachability;
+            this.heuristic = heuristic;
+            this.parallel = parallelSearch;
+            this.minPrices = new AtomicReference<>(minPrices);
+            this.journeyEngine = new ConnectionScanEngine(catalog, MAX_LEGS, MIN_CONNECTION_MINUTES, reachability,
+                parallel);
+            this.paretoEngine = new RaptorEngine(catalog, MAX_LEGS, MIN_CONNECTION_MINUTES, searchStats, reachability,
+                parallel);
+            this.topKEngine = new TopKJourneyEngine(catalog, MAX_LEGS, MIN_CONNECTION_MINUTES, searchStats,
+                heuristic, reachability, parallel);
+        }
+
+        /**
+         * Snapshot with changes applied; the reachability matrix, the heuristic, and the
+         * calendar if it was started, are updated for the changed legs rather than built again.
+         * The calendar is updated in the background once the previous one is ready.
+         */
+        Snapshot withChanges(List<TransportChange> changes) {
+            TransportCatalog next = catalog.withChanges(changes);
+            ReachabilityMatrix nextReachability = next == catalog ? reachability
+                : reachability == null ? ReachabilityMatrix.build(next, MAX_LEGS)
+                : reachability.withChanges(next, changes);
+            GeoHeuristic nextHeuristic = next == catalog || heuristic == null ? heuristic
+                : heuristic.withChanges(next, changes);
+            CompletableFuture<MinPriceCalendar> before = minPrices.get();
+            if (next == catalog || before == null) {
+                return new Snapshot(next, nextReachability, nextHeuristic, before);
+            }
+            Snapshot snapshot = new Snapshot(next, nextReachability, nextHeuristic, null);
+            Executor executor = snapshot.background();
+            snapshot.minPrices.set(before.thenComposeAsync(calendar -> calendar == null
+                ? MinPriceCalendar.build(next, snapshot.paretoEngine, executor)
+                : calendar.withChanges(catalog, next, changes, snapshot.paretoEngine, executor), executor));
+            return snapshot;
+        }
+
+        /**
+         * @return the calendar if it is ready, or null while it is built (the first call
+         *         starts it) or if the catalog is too large for one
+         */
+        MinPriceCalendar readyMinPrices() {
+            CompletableFuture<MinPriceCalendar> calendar = startMinPrices();
+            return calendar.isDone() && !calendar.isCompletedExceptionally() ? calendar.join() : null;
+        }
+
+        /**
+         * @return the calendar, started in the background if it was not yet
+         */
+        CompletableFuture<MinPriceCalendar> startMinPrices() {
+            CompletableFuture<MinPriceCalendar> calendar = minPrices.get();
+            if (calendar == null) {
+                CompletableFuture<Void> start = new CompletableFuture<>();
+                Executor executor = background();
+                if (minPrices.compareAndSet(null, start.thenComposeAsync(
+                        started -> MinPriceCalendar.build(catalog, paretoEngine, executor), executor))) {
+                    start.complete(null);
+                }
+                calendar = minPrices.get();
+            }
+            return calendar;
+        }
+
+        /**
+         * @return the executor of the parallel searches, or the common pool if they are sequential
+         */
+        private Executor background() {
+            return parallel.executor() == null ? ForkJoinPool.commonPool() : parallel.executor();
+        }
+    }
+
+    /**
+     * @return the heuristic of a catalog with the current city locations, or null without locations
+     */
+    private GeoHeuristic heuristicOf(TransportCatalog catalog) {
+        CityLocations locations = cityLocations;
+        return locations.size() == 0 ? null : new GeoHeuristic(catalog, locations, DISTANCES);
+    }
 
     public JsonTransportService(String jsonFilePath) {
-        this.jsonFilePath = jsonFilePath;
+        this(jsonFilePath, CityRegistry.shared());
     }
-    
+
+    /**
+     * @param jsonFilePath classpath resource containing the transports
+     * @param cities registry used to map city names to ids
+     */
+    public JsonTransportService(String jsonFilePath, CityRegistry cities) {
+        this.snapshots = SnapshotReloader.fixed(
+            new Snapshot(TransportCatalog.fromResource(jsonFilePath, cities)));
+    }
+
+    /**
+     * @param catalog transports already loaded (see {@link GtfsTransportService})
+     */
+    JsonTransportService(TransportCatalog catalog) {
+        this.snapshots = SnapshotReloader.fixed(new Snapshot(catalog));
+    }
+
+    public JsonTransportService(Path jsonFile, boolean hotReload) {
+        this(jsonFile, hotReload, CityRegistry.shared());
+    }
+
     /**
-     * Represents a path in the journey search (for BFS algorithm).
+     * @param jsonFile file containing the transports (empty catalog if it cannot be read)
+     * @param hotReload true to reload the file in the background whenever it changes
+     * @param cities registry used to map city names to ids
      */
-    private static class JourneyPath {
-        String currentCity;
-        LocalDateTime arrivalTime;
-        List<Transport> transports;
-        Set<String> visitedCities;
-        String mode; // Track mode for homogeneity
-        
-        JourneyPath(String city, LocalDateTime time, List<Transport> transports, Set<String> visited, String mode) {
-            this.currentCity = city;
-            this.arrivalTime = time;
-            this.transports = new ArrayList<>(transports);
-            this.visitedCities = new HashSet<>(visited);
-            this.mode = mode;
+    public JsonTransportService(Path jsonFile, boolean hotReload, CityRegistry cities) {
+        this.snapshots = SnapshotReloader.fromFile(jsonFile,
+            file -> new Snapshot(TransportCatalog.read(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), cities)),
+            new Snapshot(new TransportCatalog(null, cities)), hotReload);
+    }
+
+    /**
+     * @return the number of snapshots published so far (file loads and applied changes);
+     *         it changes whenever a new snapshot is published
+     */
+    public long getSnapshotVersion() {
+        return snapshots.version();
+    }
+
+    /**
+     * Returns the best journey per departure date of the window, computed by one search over
+     * the whole window instead of one search per date.
+     */
+    @Override
+    public Map<LocalDate, Trip> findBestJourneysByDate(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                       LocalDate lastDate, String mode, String priority) {
+        if (departureCity == null || arrivalCity == null) {
+            return new TreeMap<>();
+        }
+        try {
+            return snapshots.get().paretoEngine.findBestJourneyPerDay(departureCity, arrivalCity, firstDate, lastDate,
+                mode, TransportHelper.isDurationPriority(priority));
+        } catch (Exception e) {
+            // In case of error: return empty map
+            return new TreeMap<>();
         }
     }
 
+    /**
+     * Returns the lowest price per departure date of the window, read from the min-price
+     * calendar of the catalog ({@link MinPriceCalendar}): one array read per date once the
+     * calendar is built. The first call starts building it in the background; until it is
+     * ready, and for catalogs too large for a calendar, prices are searched as in
+     * {@link #findBestJourneysByDate}.
+     */
     @Override
-    public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+    public Map<LocalDate, Double> findMinPrices(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                LocalDate lastDate, String mode) {
+        Map<LocalDate, Double> prices = new TreeMap<>();
+        if (departureCity == null || arrivalCity == null || firstDate == null || lastDate == null) {
+            return prices;
+        }
         try {
-            // 1. Read JSON file
-            InputStream is = getClass().getClassLoader().getResourceAsStream(jsonFilePath);
-            if (is == null) {
-                return new ArrayList<>();
+            Snapshot snapshot = snapshots.get();
+            MinPriceCalendar calendar = snapshot.readyMinPrices();
+            if (calendar == null) {
+                return TransportService.super.findMinPrices(departureCity, arrivalCity, firstDate, lastDate, mode);
+            }
+            int from = snapshot.catalog.cityId(departureCity);
+            int to = snapshot.catalog.cityId(arrivalCity);
+            int modeFilter = mode == null ? -1 : snapshot.catalog.modeId(mode);
+            if (from < 0 || to < 0 || (mode != null && modeFilter < 0)) {
+                return prices;
             }
+            for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+                int cents = calendar.minPrice(modeFilter, from, to, date.toEpochDay());
+                if (cents != MinPriceCalendar.NONE) {
+                    prices.put(date, cents / 100.0);
+                }
+            }
+            return prices;
+        } catch (Exception e) {
+            // In case of error: return empty map
+            return new TreeMap<>();
+        }
+    }
 
-            // 2. Parse JSON with Gson (custom adapter for LocalDateTime)
-            Gson gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, 
-                    (JsonDeserializer<LocalDateTime>) (json, type, context) -> 
-                        LocalDateTime.parse(json.getAsString()))
-                .create();
-            java.lang.reflect.Type listType = new TypeToken<List<Transport>>() {}.getType();
-            List<Transport> allTransports = gson.fromJson(new InputStreamReader(is), listType);
-
-            // 3. Search for direct transports
-            List<Transport> directTransports = allTransports.stream()
-                .filter(t -> departureCity == null || t.getDepartureCity().equalsIgnoreCase(departureCity))
-                .filter(t -> arrivalCity == null || t.getArrivalCity().equalsIgnoreCase(arrivalCity))
-                .filter(t -> departureDate == null || t.getDepartureDateTime().toLocalDate().isEqual(departureDate.toLocalDate()))
-                .filter(t -> mode == null || t.getMode().equalsIgnoreCase(mode))
-                .collect(Collectors.toList());
+    /**
+     * Starts building the min-price calendar of the current catalog in the background, as the
+     * first {@link #findMinPrices} call would, e.g. right after loading the catalog.
+     *
+     * @return completes once the calendar is ready, so that min prices are read from it
+     */
+    public CompletableFuture<Void> prepareMinPrices() {
+        return snapshots.get().startMinPrices().thenApply(calendar -> null);
+    }
+
+    /**
+     * Returns one journey per departure from the departure city within the range that arrives
+     * by the deadline, latest departure first, computed by one backward scan of the
+     * connections instead of one forward search per candidate departure.
+     */
+    @Override
+    public List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                           LocalDateTime arrivalDeadline, String mode) {
+        if (departureCity == null || arrivalCity == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return snapshots.get().journeyEngine.findLatestDepartures(departureCity, arrivalCity, earliestDeparture,
+                arrivalDeadline, mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Sets the city coordinates guiding the k-best journey search toward the destination
+     * (the bundled table by default, {@link CityLocations#empty()} to search without them).
+     * The results do not depend on the table, only the number of partial journeys explored.
+     */
+    public void setCityLocations(CityLocations cityLocations) {
+        this.cityLocations = cityLocations == null ? CityLocations.empty() : cityLocations;
+        snapshots.update(snapshot -> new Snapshot(snapshot.catalog, snapshot.reachability,
+            heuristicOf(snapshot.catalog), snapshot.minPrices.get()));
+    }
+
+    /**
+     * Sets how searches for any mode are run. Journeys never change mode, so such a search
+     * can run as one search per mode at the same time; on a catalog with fewer connections
+     * than minConnections it stays sequential. By default the common fork-join pool is used
+     * from {@link #PARALLEL_MIN_CONNECTIONS} connections on.
+     *
+     * The executor also builds the min-price calendar in the background, one origin per task
+     * (the common fork-join pool does when searches are sequential).
+     *
+     * @param executor runs the searches of the modes, or null to always search sequentially
+     */
+    public void setParallelModeSearch(Executor executor, int minConnections) {
+        this.parallelSearch = executor == null
+            ? ParallelModeSearch.SEQUENTIAL : new ParallelModeSearch(executor, minConnections);
+        snapshots.update(snapshot -> new Snapshot(snapshot.catalog, snapshot.reachability, snapshot.heuristic,
+            snapshot.minPrices.get()));
+    }
+
+    /**
+     * Applies a batch of inventory changes without reading the transport file again.
+     * The batch is published as one new snapshot: queries already running finish on the
+     * previous one and no query sees part of a batch. A later reload of the file (hot reload)
+     * replaces the changes with the content of the file.
+     */
+    public void applyChanges(List<TransportChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        snapshots.update(snapshot -> snapshot.withChanges(changes));
+    }
+
+    /**
+     * Applies the changes appended to an NDJSON change log (one {@link TransportChange} per
+     * line) since a byte offset. Only complete lines are read, so a line still being written
+     * is left for the next call.
+     *
+     * The log is read {@value #CHANGE_LOG_CHUNK_BYTES} bytes at a time, and the changes are
+     * applied in batches of about {@value #CHANGE_LOG_BATCH} changes (the complete lines of
+     * the chunks read until then), so a long tail is never held in memory at once; each
+     * batch is one snapshot.
+     *
+     * @param offset the value returned by the previous call, 0 for the first one
+     * @return the offset of the first line not applied yet
+     * @throws IOException if the log cannot be read or a line is malformed; the batches
+     *                     before the one of that line stay applied, and the message gives
+     *                     the offset to resume from
+     */
+    public long applyChangeLog(Path changeLog, long offset) throws IOException {
+        long applied = offset; // end of the last applied line
+        long parsed = offset; // end of the last parsed line
+        List<TransportChange> changes = new ArrayList<>();
+        try (SeekableByteChannel channel = Files.newByteChannel(changeLog)) {
+            channel.position(offset);
+            byte[] pending = new byte[CHANGE_LOG_CHUNK_BYTES];
+            int length = 0; // bytes read after the last parsed line
+            int read;
+            while ((read = channel.read(ByteBuffer.wrap(pending, length, pending.length - length))) >= 0) {
+                length += read;
+                int end = length;
+                while (end > 0 && pending[end - 1] != '\n') {
+                    end--;
+                }
+                if (end > 0) {
+                    try (CatalogReader reader = new CatalogReader(
+                            new InputStreamReader(new ByteArrayInputStream(pending, 0, end), StandardCharsets.UTF_8))) {
+                        reader.forEachTransportChange(changes::add);
+                    } catch (IOException e) {
+                        throw new IOException("Malformed change log after offset " + applied + ": " + e.getMessage(), e);
+                    }
+                    parsed += end;
+                    System.arraycopy(pending, end, pending, 0, length - end);
+                    length -= end;
+                    if (changes.size() >= CHANGE_LOG_BATCH) {
+                        applyChanges(changes);
+                        applied = parsed;
+                        changes = new ArrayList<>();
+                    }
+                } else if (length == pending.length) {
+                    pending = Arrays.copyOf(pending, pending.length * 2); // a line longer than the buffer
+                }
+            }
+        }
+        applyChanges(changes);
+        return parsed;
+    }
+
+    /**
+     * Stops watching the transport file; the service keeps answering from its last snapshot.
+     */
+    @Override
+    public void close() {
+        snapshots.close();
+    }
+
+    /**
+     * @return labels created and pruned by the journey searches of this service so far
+     */
+    public SearchStats getSearchStats() {
+        return searchStats;
+    }
+
+    @Override
+    public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        try {
+            Snapshot snapshot = snapshots.get();
+            TransportCatalog catalog = snapshot.catalog;
+
+            // 1. Search for direct transports in the parsed snapshot
+            //    (hash index when the query is fully specified, id-based scan otherwise)
+            List<Transport> directTransports;
+            if (departureCity != null && arrivalCity != null && departureDate != null) {
+                directTransports = catalog.findDirect(departureCity, arrivalCity, departureDate.toLocalDate(), mode);
+            } else {
+                directTransports = catalog.scanDirect(departureCity, arrivalCity,
+                    departureDate == null ? null : departureDate.toLocalDate(), mode);
+            }
 
             // If direct transports found, return them
             if (!directTransports.isEmpty()) {
                 return directTransports;
             }
 
-            // 4. If no direct transport, search for multi-leg journey using BFS
+            // 2. If no direct transport, search for the earliest-arrival multi-leg journey
             if (departureCity != null && arrivalCity != null) {
-                return findMultiLegJourney(allTransports, departureCity, arrivalCity, departureDate, mode);
+                return snapshot.journeyEngine.findEarliestArrival(departureCity, arrivalCity,
+                    departureDate == null ? null : departureDate.toLocalDate(), mode);
             }
 
             return new ArrayList<>();
@@ -98,98 +441,42 @@ public class JsonTransportService implements TransportService {
             return new ArrayList<>();
         }
     }
-    
+
     /**
-     * Find multi-leg journey using BFS algorithm.
-     * Ensures mode homogeneity and minimum connection time.
+     * Returns the Pareto-optimal journeys (direct and multi-leg, up to MAX_LEGS legs)
+     * over total price, total duration and number of legs.
      */
-    private List<Transport> findMultiLegJourney(List<Transport> allTransports, String departureCity, 
-                                                 String arrivalCity, LocalDateTime departureDate, String mode) {
-        Queue<JourneyPath> queue = new LinkedList<>();
-        
-        // Initialize with first leg options
-        for (Transport firstTransport : allTransports) {
-            if (!firstTransport.getDepartureCity().equalsIgnoreCase(departureCity)) {
-                continue;
-            }
-            if (departureDate != null && !firstTransport.getDepartureDateTime().toLocalDate().isEqual(departureDate.toLocalDate())) {
-                continue;
-            }
-            if (mode != null && !firstTransport.getMode().equalsIgnoreCase(mode)) {
-                continue;
-            }
-            
-            Set<String> visited = new HashSet<>();
-            visited.add(departureCity);
-            visited.add(firstTransport.getArrivalCity());
-            
-            List<Transport> path = new ArrayList<>();
-            path.add(firstTransport);
-            
-            queue.add(new JourneyPath(
-                firstTransport.getArrivalCity(),
-                firstTransport.getArrivalDateTime(),
-                path,
-                visited,
-                firstTransport.getMode()
-            ));
-        }
-        
-        // BFS to find path to destination
-        while (!queue.isEmpty()) {
-            JourneyPath current = queue.poll();
-            
-            // Check if we reached destination
-            if (current.currentCity.equalsIgnoreCase(arrivalCity)) {
-                return current.transports;
-            }
-            
-            // Check if we exceeded max legs
-            if (current.transports.size() >= MAX_LEGS) {
-                continue;
-            }
-            
-            // Explore next legs
-            for (Transport nextTransport : allTransports) {
-                // Must depart from current city
-                if (!nextTransport.getDepartureCity().equalsIgnoreCase(current.currentCity)) {
-                    continue;
-                }
-                
-                // Avoid cycles
-                if (current.visitedCities.contains(nextTransport.getArrivalCity())) {
-                    continue;
-                }
-                
-                // Check mode homogeneity
-                if (!nextTransport.getMode().equalsIgnoreCase(current.mode)) {
-                    continue;
-                }
-                
-                // Check connection time (minimum 60 minutes)
-                if (!nextTransport.getDepartureDateTime().isAfter(current.arrivalTime.plusMinutes(MIN_CONNECTION_MINUTES))) {
-                    continue;
-                }
-                
-                // Create new path
-                Set<String> newVisited = new HashSet<>(current.visitedCities);
-                newVisited.add(nextTransport.getArrivalCity());
-                
-                List<Transport> newPath = new ArrayList<>(current.transports);
-                newPath.add(nextTransport);
-                
-                queue.add(new JourneyPath(
-                    nextTransport.getArrivalCity(),
-                    nextTransport.getArrivalDateTime(),
-                    newPath,
-                    newVisited,
-                    current.mode
-                ));
-            }
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        if (departureCity == null || arrivalCity == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return snapshots.get().paretoEngine.findParetoJourneys(departureCity, arrivalCity,
+                departureDate == null ? null : departureDate.toLocalDate(), mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
         }
-        
-        // No path found
-        return new ArrayList<>();
     }
 
+    /**
+     * Returns the k best journeys (direct and multi-leg, up to MAX_LEGS legs) for the priority,
+     * including journeys that are not Pareto-optimal.
+     */
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate,
+                                   String mode, String priority, int k) {
+        if (departureCity == null || arrivalCity == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return snapshots.get().topKEngine.findBestJourneys(departureCity, arrivalCity,
+                departureDate == null ? null : departureDate.toLocalDate(), mode,
+                TransportHelper.isDurationPriority(priority), k);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
 }
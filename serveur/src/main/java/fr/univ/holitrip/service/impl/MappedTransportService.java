@@ -0,0 +1,141 @@
+package fr.univ.holitrip.service.impl;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.TransportService;
+
+/**
+ * TransportService reading a binary timetable (see {@link BinaryTimetableConverter})
+ * through a memory-mapped file.
+ * Opening the file only reads the city and mode names, so startup does not depend on the
+ * size of the timetable, and the rows stay off the heap: queries read the mapped columns
+ * in place and create {@link Transport} objects only for the results.
+ * Multi-leg journeys use the same Connection Scan Algorithm as {@link JsonTransportService},
+ * pruned by the reachability matrix that {@link BinaryTimetableConverter} writes into the
+ * file; it is mapped like the rows, so it is neither built nor copied on the heap at startup.
+ * Files without a matrix (an older version, or too many cities) are searched unpruned.
+ */
+public class MappedTransportService implements TransportService {
+    private final BinaryTimetable timetable;
+    private final ConnectionScanEngine journeyEngine;
+    static final int MAX_LEGS = 3; // Maximum number of legs allowed
+    private static final long MIN_CONNECTION_MINUTES = 60; // Minimum connection time
+
+    /**
+     * @param binaryFile timetable written by {@link BinaryTimetableConverter}; if it cannot
+     *                   be opened, the service has no transport
+     */
+    public MappedTransportService(Path binaryFile) {
+        BinaryTimetable opened;
+        try {
+            opened = BinaryTimetable.open(binaryFile);
+        } catch (Exception e) {
+            opened = BinaryTimetable.empty();
+        }
+        this.timetable = opened;
+        this.journeyEngine = new ConnectionScanEngine(timetable, MAX_LEGS, MIN_CONNECTION_MINUTES,
+            timetable.reachability(MAX_LEGS),
+            new ParallelModeSearch(ForkJoinPool.commonPool(), JsonTransportService.PARALLEL_MIN_CONNECTIONS));
+    }
+
+    @Override
+    public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        try {
+            LocalDate date = departureDate == null ? null : departureDate.toLocalDate();
+
+            // 1. Search for direct transports in the mapped columns
+            List<Transport> directTransports = findDirect(departureCity, arrivalCity, date, mode);
+            if (!directTransports.isEmpty()) {
+                return directTransports;
+            }
+
+            // 2. If no direct transport, search for the earliest-arrival multi-leg journey
+            if (departureCity != null && arrivalCity != null) {
+                return journeyEngine.findEarliestArrival(departureCity, arrivalCity, date, mode);
+            }
+
+            return new ArrayList<>();
+
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Returns one journey per departure from the departure city within the range that arrives
+     * by the deadline, latest departure first (backward Connection Scan).
+     */
+    @Override
+    public List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                           LocalDateTime arrivalDeadline, String mode) {
+        if (departureCity == null || arrivalCity == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return journeyEngine.findLatestDepartures(departureCity, arrivalCity, earliestDeparture, arrivalDeadline,
+                mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Direct transports matching a partially specified query (any null criterion matches
+     * everything), in departure order. With a departure city only its departures are read,
+     * and a date restricts the rows to that day by binary search.
+     */
+    private List<Transport> findDirect(String departureCity, String arrivalCity, LocalDate date, String mode) {
+        List<Transport> result = new ArrayList<>();
+        int from = departureCity == null ? -1 : timetable.cityId(departureCity);
+        int to = arrivalCity == null ? -1 : timetable.cityId(arrivalCity);
+        int modeFilter = mode == null ? -1 : timetable.modeId(mode);
+        if ((departureCity != null && from < 0) || (arrivalCity != null && to < 0) || (mode != null && modeFilter < 0)) {
+            return result;
+        }
+        int dayStart = Integer.MIN_VALUE;
+        int dayEnd = Integer.MAX_VALUE;
+        if (date != null) {
+            dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+            dayEnd = dayStart + 24 * 60;
+        }
+
+        if (from >= 0) {
+            int end = timetable.departuresEnd(from);
+            for (int j = timetable.firstDepartureAtOrAfter(from, dayStart); j < end; j++) {
+                int i = timetable.departureAt(j);
+                if (timetable.departureMinute(i) >= dayEnd) {
+                    break;
+                }
+                if (matches(i, to, modeFilter)) {
+                    result.add(timetable.connection(i));
+                }
+            }
+            return result;
+        }
+
+        int n = timetable.connectionCount();
+        for (int i = timetable.firstConnectionAtOrAfter(dayStart); i < n; i++) {
+            if (timetable.departureMinute(i) >= dayEnd) {
+                break;
+            }
+            if (matches(i, to, modeFilter)) {
+                result.add(timetable.connection(i));
+            }
+        }
+        return result;
+    }
+
+    private boolean matches(int i, int to, int modeFilter) {
+        return (to < 0 || timetable.arrivalCityId(i) == to)
+            && (modeFilter < 0 || timetable.modeIdOf(i) == modeFilter);
+    }
+}
@@ -0,0 +1,304 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+
+/**
+ * Lowest price of the journeys between every pair of cities, per departure day and mode,
+ * computed once per catalog so that a price lookup is a single array read.
+ *
+ * The prices are the ones of {@link RaptorEngine#findBestJourneyPerDay} by price: each
+ * origin is computed by one search of {@link RaptorEngine#findCheapestJourneysPerDay} over
+ * the whole window, toward every city at once. Origins run as separate tasks, each one
+ * writing its own rows, and the calendar is only returned once they are all done, so it
+ * can be built in the background while queries search as before. The table holds
+ * (modes + 1) x cities² x days ints (the last layer for any mode), so it is not built
+ * beyond {@value #MAX_BYTES} bytes. It is stored as one block of cities x days ints per
+ * layer and origin.
+ *
+ * After inventory changes, the rows of an origin and day are only computed again if a
+ * changed leg can be part of a journey cheaper than (inserted leg) or as cheap as (removed
+ * leg) the lowest price of a city on that day, which the previous table tells (see
+ * {@link #withChanges}). Only the blocks of the origins computed again are copied; the
+ * others are shared with the previous calendar, as the catalog shares the departures of
+ * unchanged cities.
+ */
+final class MinPriceCalendar {
+    static final long MAX_BYTES = 64L * 1024 * 1024;
+    /** Price of a pair and day without any journey. */
+    static final int NONE = Integer.MAX_VALUE;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int cities;
+    private final int modes;
+    private final int firstDay; // epoch day
+    private final int days;
+    private final int[][] blocks; // [layer * cities + from][to * days + day], layer = mode or modes for any mode
+
+    private MinPriceCalendar(int cities, int modes, int firstDay, int days, int[][] blocks) {
+        this.cities = cities;
+        this.modes = modes;
+        this.firstDay = firstDay;
+        this.days = days;
+        this.blocks = blocks;
+    }
+
+    /**
+     * @param engine the search engine of the catalog
+     * @param executor runs the origins
+     * @return the calendar of the catalog once built, or null if it would be larger than {@value #MAX_BYTES} bytes
+     */
+    static CompletableFuture<MinPriceCalendar> build(TransportCatalog catalog, RaptorEngine engine, Executor executor) {
+        MinPriceCalendar calendar = empty(catalog);
+        if (calendar == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        for (int b = 0; b < calendar.blocks.length; b++) {
+            calendar.blocks[b] = new int[calendar.cities * calendar.days];
+            Arrays.fill(calendar.blocks[b], NONE);
+        }
+        int[] allDays = {0, calendar.days - 1};
+        int[][] daysByOrigin = new int[calendar.cities][];
+        Arrays.fill(daysByOrigin, allDays);
+        int[] modeByOrigin = new int[calendar.cities];
+        Arrays.fill(modeByOrigin, -1);
+        return calendar.compute(engine, modeByOrigin, daysByOrigin, executor);
+    }
+
+    /**
+     * @return a calendar sized for the catalog, without blocks, or null if too large
+     */
+    private static MinPriceCalendar empty(TransportCatalog catalog) {
+        int cities = catalog.cityCount();
+        int modes = catalog.modeCount();
+        int n = catalog.connectionCount();
+        int firstDay = n == 0 ? 0 : dayOf(catalog.departureMinute(catalog.connectionAt(0)));
+        int days = n == 0 ? 0 : dayOf(catalog.departureMinute(catalog.connectionAt(n - 1))) - firstDay + 1;
+        long size = (long) (modes + 1) * cities * cities * days;
+        if (size * Integer.BYTES > MAX_BYTES) {
+            return null;
+        }
+        return new MinPriceCalendar(cities, modes, firstDay, days, new int[(modes + 1) * cities][]);
+    }
+
+    private static int dayOf(int epochMinute) {
+        return Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+    }
+
+    /**
+     * Returns the calendar of a catalog obtained by applying changes to the catalog of this
+     * calendar; the whole calendar is built again if the changes add a city or a mode, or
+     * change the days.
+     *
+     * Only the prices of the mode of a changed leg can change. A journey of an origin on a
+     * day through a leg (u, v) costs at least the lowest price from the origin to u on that
+     * day, plus the price of the leg, plus the lowest price from v to its arrival city on a
+     * day from the day of the leg on. When that bound is higher than the lowest price of
+     * every arrival city (or equal, for an inserted leg), no lowest price of the origin and
+     * day changes: a removed leg was on none of the cheapest journeys, and an inserted leg
+     * makes none cheaper. For a journey through several inserted legs, the bound of the last
+     * one holds with the lowest price to u from the table unless the journey up to u is
+     * cheaper than that, in which case the bound of an earlier inserted leg already failed.
+     *
+     * @param before the catalog of this calendar
+     * @param after the catalog with the changes applied
+     * @param engine the search engine of the catalog with the changes applied
+     * @param executor runs the origins computed again
+     * @return the calendar of the new catalog once built, or null if it would be too large
+     */
+    CompletableFuture<MinPriceCalendar> withChanges(TransportCatalog before, TransportCatalog after,
+                                                    List<TransportChange> changes, RaptorEngine engine,
+                                                    Executor executor) {
+        MinPriceCalendar next = empty(after);
+        if (next == null || next.cities != cities || next.modes != modes || next.firstDay != firstDay
+                || next.days != days) {
+            return build(after, engine, executor);
+        }
+        boolean[][] changed = new boolean[modes][cities * days]; // by mode, then origin and day
+        for (TransportChange change : changes) {
+            Transport t = change == null ? null : change.getTransport();
+            if (change == null || change.getOperation() == null || !isComplete(t)) {
+                continue;
+            }
+            int minute = TransportCatalog.toEpochMinute(t.getDepartureDateTime());
+            if (change.getOperation() != TransportChange.Operation.INSERT) {
+                int from = before.cityId(t.getDepartureCity());
+                int to = before.cityId(t.getArrivalCity());
+                int mode = before.modeId(t.getMode());
+                for (int p = before.firstConnectionAtOrAfter(minute); p < before.connectionCount(); p++) {
+                    int i = before.connectionAt(p);
+                    if (before.departureMinute(i) != minute) {
+                        break;
+                    }
+                    if (before.departureCityId(i) == from && before.arrivalCityId(i) == to && before.modeIdOf(i) == mode) {
+                        markChanged(changed, from, to, mode, dayOf(minute) - firstDay, before.priceCents(i), false);
+                    }
+                }
+            }
+            if (change.getOperation() != TransportChange.Operation.DELETE) {
+                // A transport deleted later in the batch may be unknown to the new catalog
+                markChanged(changed, after.cityId(t.getDepartureCity()), after.cityId(t.getArrivalCity()),
+                    after.modeId(t.getMode()), dayOf(minute) - firstDay, TransportCatalog.toCents(t.getPrice()), true);
+            }
+        }
+
+        // Each origin is computed again once, for its changed mode or all modes, over its changed days
+        int[] modeByOrigin = new int[cities];
+        int[][] daysByOrigin = new int[cities][];
+        for (int origin = 0; origin < cities; origin++) {
+            for (int mode = 0; mode < modes; mode++) {
+                for (int d = 0; d < days; d++) {
+                    if (!changed[mode][origin * days + d]) {
+                        continue;
+                    }
+                    int[] range = daysByOrigin[origin];
+                    if (range == null) {
+                        daysByOrigin[origin] = new int[] {d, d};
+                        modeByOrigin[origin] = mode;
+                    } else {
+                        range[0] = Math.min(range[0], d);
+                        range[1] = Math.max(range[1], d);
+                        modeByOrigin[origin] = modeByOrigin[origin] == mode ? mode : -1;
+                    }
+                }
+            }
+        }
+        System.arraycopy(blocks, 0, next.blocks, 0, blocks.length);
+        for (int origin = 0; origin < cities; origin++) {
+            if (daysByOrigin[origin] == null) {
+                continue;
+            }
+            // Copied on write: the layers computed again, and the one of any mode
+            for (int layer = 0; layer <= modes; layer++) {
+                if (layer == modes || modeByOrigin[origin] < 0 || modeByOrigin[origin] == layer) {
+                    next.blocks[layer * cities + origin] = blocks[layer * cities + origin].clone();
+                }
+            }
+        }
+        return next.compute(engine, modeByOrigin, daysByOrigin, executor);
+    }
+
+    private static boolean isComplete(Transport t) {
+        return t != null && t.getDepartureCity() != null && t.getArrivalCity() != null
+            && t.getDepartureDateTime() != null && t.getArrivalDateTime() != null && t.getMode() != null;
+    }
+
+    /**
+     * Marks the origins and days whose lowest prices a changed leg of a mode can change.
+     *
+     * @param day the day of the leg, from the first day of the calendar
+     * @param inserted true for an inserted leg, false for a removed one
+     */
+    private void markChanged(boolean[][] changedByMode, int from, int to, int mode, int day, int price,
+                             boolean inserted) {
+        if (from < 0 || to < 0 || mode < 0 || day < 0 || day >= days) {
+            return;
+        }
+        boolean[] changed = changedByMode[mode];
+        // Lowest price from the arrival of the leg to each city it reaches, from the day of the leg on
+        int[] reached = new int[cities];
+        long[] after = new long[cities];
+        int count = 0;
+        int[] fromTo = blocks[mode * cities + to];
+        for (int city = 0; city < cities; city++) {
+            int min = city == to ? 0 : NONE;
+            for (int d = day; d < days; d++) {
+                min = Math.min(min, fromTo[city * days + d]);
+            }
+            if (min != NONE) {
+                reached[count] = city;
+                after[count++] = min;
+            }
+        }
+        for (int origin = 0; origin < cities; origin++) {
+            if (origin == to) {
+                continue; // journeys never come back to their origin
+            }
+            int[] row = blocks[mode * cities + origin];
+            for (int d = origin == from ? day : 0; d <= day; d++) {
+                long bound = origin == from ? price : (long) row[from * days + d] + price;
+                if (bound >= NONE || changed[origin * days + d]) {
+                    continue;
+                }
+                for (int c = 0; c < count; c++) {
+                    int city = reached[c];
+                    int lowest = row[city * days + d];
+                    if (city != origin
+                            && (inserted ? bound + after[c] < lowest : lowest != NONE && bound + after[c] <= lowest)) {
+                        changed[origin * days + d] = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the rows of each origin from its first to its last day (null for none), for
+     * its mode or every mode (-1), then its "any mode" rows of those days.
+     *
+     * @return this calendar once every origin is done
+     */
+    private CompletableFuture<MinPriceCalendar> compute(RaptorEngine engine, int[] modeByOrigin, int[][] daysByOrigin,
+                                                        Executor executor) {
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int origin = 0; origin < cities; origin++) {
+            int[] range = daysByOrigin[origin];
+            if (range != null) {
+                int city = origin;
+                running.add(CompletableFuture.runAsync(
+                    () -> computeOrigin(engine, city, modeByOrigin[city], range[0], range[1]), executor));
+            }
+        }
+        return CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).thenApply(done -> this);
+    }
+
+    private void computeOrigin(RaptorEngine engine, int origin, int modeFilter, int first, int last) {
+        int fromMode = modeFilter < 0 ? 0 : modeFilter;
+        int toMode = modeFilter < 0 ? modes - 1 : modeFilter;
+        for (int mode = fromMode; mode <= toMode; mode++) {
+            int[] block = blocks[mode * cities + origin];
+            for (int to = 0; to < cities; to++) {
+                Arrays.fill(block, to * days + first, to * days + last + 1, NONE);
+            }
+        }
+        for (JourneyLabel label : engine.findCheapestJourneysPerDay(origin, modeFilter, firstDay + first, firstDay + last)) {
+            int[] block = blocks[label.mode * cities + origin];
+            int i = label.city * days + dayOf(label.firstDeparture) - firstDay;
+            block[i] = Math.min(block[i], label.price);
+        }
+        // Any mode: the cheapest of the modes
+        int[] any = blocks[modes * cities + origin];
+        for (int to = 0; to < cities; to++) {
+            for (int day = first; day <= last; day++) {
+                int min = NONE;
+                for (int mode = 0; mode < modes; mode++) {
+                    min = Math.min(min, blocks[mode * cities + origin][to * days + day]);
+                }
+                any[to * days + day] = min;
+            }
+        }
+    }
+
+    /**
+     * @param mode the mode id, or -1 for any mode
+     * @param from departure city id
+     * @param to arrival city id
+     * @param epochDay departure day of the first leg
+     * @return the lowest price in cents, or {@link #NONE} if there is no journey
+     */
+    int minPrice(int mode, int from, int to, long epochDay) {
+        if (from < 0 || to < 0 || from >= cities || to >= cities || mode >= modes
+                || epochDay < firstDay || epochDay >= firstDay + (long) days) {
+            return NONE;
+        }
+        return blocks[(mode < 0 ? modes : mode) * cities + from][to * days + (int) (epochDay - firstDay)];
+    }
+}
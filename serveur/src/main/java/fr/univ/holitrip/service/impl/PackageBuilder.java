@@ -1,5 +1,8 @@
 package fr.univ.holitrip.service.impl;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -7,6 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.HashMap;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -23,6 +27,8 @@ import fr.univ.holitrip.service.HotelService;
 import fr.univ.holitrip.service.GeocodingService;
 import fr.univ.holitrip.service.PackageService;
 import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.util.RoundTripSelector;
+import fr.univ.holitrip.util.RoundTripSelector.RoundTrip;
 import fr.univ.holitrip.util.TransportHelper;
 
 public class PackageBuilder implements PackageService {
@@ -45,6 +51,17 @@ public class PackageBuilder implements PackageService {
     // Simple in-memory cache for geocoding results during a single execution.
     private final Map<String, Coordinates> geocodeCache;
 
+    // Latest arrival home on the return day
+    private LocalTime returnArrivalDeadline = LocalTime.of(23, 59);
+
+    /**
+     * Sets the time by which the return journey should arrive on the last day of the trip
+     * (23:59 by default). When no journey makes it, any journey of that day is accepted.
+     */
+    public void setReturnArrivalDeadline(LocalTime returnArrivalDeadline) {
+        this.returnArrivalDeadline = returnArrivalDeadline == null ? LocalTime.MAX : returnArrivalDeadline;
+    }
+
     @Override
     public List<Package> findPackages(String departureCity, String destinationCity, String departureDate,
             int tripDurationDays, double maxBudget, String transportMode, String transportPriority, int minHotelRating,
@@ -64,11 +81,17 @@ public class PackageBuilder implements PackageService {
         }
 
         // Retrieve candidates from services (tests mock these calls)
-        List<Transport> transports = transportService.findTransports(departureCity, destinationCity, outboundDateTime, transportMode);
+        // Prefer comparable journeys (Pareto set) when the transport service provides them
+        List<Trip> outboundJourneys = transportService.findJourneys(departureCity, destinationCity, outboundDateTime, transportMode);
+        if (outboundJourneys == null) outboundJourneys = Collections.emptyList();
+        List<Transport> transports = outboundJourneys.isEmpty()
+            ? transportService.findTransports(departureCity, destinationCity, outboundDateTime, transportMode)
+            : null;
+        boolean noTransport = outboundJourneys.isEmpty() && (transports == null || transports.isEmpty());
         List<Hotel> hotels = hotelService.findHotels(destinationCity, minHotelRating, Double.MAX_VALUE);
 
         // 1) If all sources empty -> return a Package containing errors
-        if ((transports == null || transports.isEmpty())
+        if (noTransport
             && (hotels == null || hotels.isEmpty())) {
             Package p = new Package();
             p.addError("No data available for given criteria");
@@ -76,7 +99,7 @@ public class PackageBuilder implements PackageService {
         }
 
         // 2) If transports empty but others present -> cannot build package
-        if (transports == null || transports.isEmpty()) {
+        if (noTransport) {
             return Collections.emptyList();
         }
 
@@ -89,7 +112,13 @@ public class PackageBuilder implements PackageService {
         // JsonTransportService now returns multi-leg solutions directly as [leg1, leg2]
         List<Transport> chosenOutboundLegs = null;
         
-        if (transports != null && !transports.isEmpty()) {
+        if (!outboundJourneys.isEmpty()) {
+            // Candidate journeys already include connections: pick the optimum for the priority
+            Trip chosen = TransportHelper.selectBestJourney(outboundJourneys, transportMode, transportPriority);
+            if (chosen != null) {
+                chosenOutboundLegs = chosen.getTransports();
+            }
+        } else if (transports != null && !transports.isEmpty()) {
             // Check if transports represent a multi-leg solution from JsonTransportService
             if (TransportHelper.isMultiLeg(transports)) {
                 // This is a multi-leg solution - validate mode and use directly
@@ -113,10 +142,37 @@ public class PackageBuilder implements PackageService {
         // Find return transports (destination -> departure)
         // Note: For return trip, we don't enforce strict mode matching if outbound had a preference
         // This allows packages where outbound is TRAIN but return is PLANE if no TRAIN available
-        List<Transport> returnTransports = transportService.findTransports(destinationCity, departureCity, returnDateTime, null);
+        // Journeys arriving home by the deadline of the return day are preferred when there are any
+        List<Trip> returnJourneys = transportService.findJourneys(destinationCity, departureCity, returnDateTime, null);
+        List<Trip> inTime = returnJourneysByDeadline(destinationCity, departureCity, returnDateTime, returnJourneys);
+        if (!inTime.isEmpty()) {
+            returnJourneys = inTime;
+        }
+        List<Transport> returnTransports = returnJourneys == null || returnJourneys.isEmpty()
+            ? transportService.findTransports(destinationCity, departureCity, returnDateTime, null)
+            : null;
         List<Transport> chosenReturnLegs = null;
         
-        if (returnTransports != null && !returnTransports.isEmpty()) {
+        if (returnJourneys != null && !returnJourneys.isEmpty() && !outboundJourneys.isEmpty()) {
+            // Both directions are journeys: choose the pair together so that the return follows
+            // the outbound arrival, within the budget left by the cheapest eligible hotel
+            RoundTrip roundTrip = RoundTripSelector.selectBestRoundTrip(outboundJourneys, returnJourneys,
+                transportMode, transportPriority, maxBudget - cheapestStay(hotels, minHotelRating, tripDurationDays));
+            if (roundTrip == null) {
+                return Collections.emptyList();
+            }
+            chosenOutboundLegs = roundTrip.getOutbound().getTransports();
+            chosenReturnLegs = roundTrip.getReturn().getTransports();
+        } else if (returnJourneys != null && !returnJourneys.isEmpty()) {
+            // Prefer transportMode if available, but accept any mode if not found
+            Trip chosen = TransportHelper.selectBestJourney(returnJourneys, transportMode, transportPriority);
+            if (chosen == null) {
+                chosen = TransportHelper.selectBestJourney(returnJourneys, null, transportPriority);
+            }
+            if (chosen != null) {
+                chosenReturnLegs = chosen.getTransports();
+            }
+        } else if (returnTransports != null && !returnTransports.isEmpty()) {
             // Check if return transports represent a multi-leg solution
             if (TransportHelper.isMultiLeg(returnTransports)) {
                 // This is a multi-leg solution - use directly without strict mode validation for return
@@ -135,6 +191,114 @@ public class PackageBuilder implements PackageService {
             }
         }
 
+        return assemblePackage(chosenOutboundLegs, chosenReturnLegs, hotels, destinationCity, tripDurationDays,
+            maxBudget, minHotelRating, hotelPriority, activityCategories, maxDistanceKm);
+    }
+
+    /**
+     * Finds the best package per start date. Each direction is searched once for the whole
+     * window ({@link TransportService#findBestJourneysByDate}) and the hotels once; each
+     * start date is then assembled like {@link #findPackages}.
+     */
+    @Override
+    public Map<LocalDate, Package> findBestPackagesByStartDate(String departureCity, String destinationCity,
+            String departureDate, int flexibleDays, int tripDurationDays, double maxBudget, String transportMode,
+            String transportPriority, int minHotelRating, String hotelPriority, List<String> activityCategories,
+            double maxDistanceKm) {
+        Map<LocalDate, Package> best = new TreeMap<>();
+        LocalDate center;
+        try {
+            center = LocalDate.parse(departureDate);
+        } catch (Exception e) {
+            return best;
+        }
+        int stay = Math.max(1, tripDurationDays);
+        LocalDate first = center.minusDays(Math.max(0, flexibleDays));
+        LocalDate last = center.plusDays(Math.max(0, flexibleDays));
+
+        Map<LocalDate, Trip> outbound = transportService.findBestJourneysByDate(departureCity, destinationCity,
+            first, last, transportMode, transportPriority);
+        if (outbound == null || outbound.isEmpty()) {
+            return best;
+        }
+        List<Hotel> hotels = hotelService.findHotels(destinationCity, minHotelRating, Double.MAX_VALUE);
+        if (hotels == null || hotels.isEmpty()) {
+            return best;
+        }
+        // As in findPackages, the return prefers the requested mode but accepts any mode
+        Map<LocalDate, Trip> anyReturn = transportService.findBestJourneysByDate(destinationCity, departureCity,
+            first.plusDays(stay), last.plusDays(stay), null, transportPriority);
+        Map<LocalDate, Trip> preferredReturn = transportMode == null || transportMode.isBlank()
+            ? anyReturn
+            : transportService.findBestJourneysByDate(destinationCity, departureCity,
+                first.plusDays(stay), last.plusDays(stay), transportMode, transportPriority);
+
+        for (Map.Entry<LocalDate, Trip> entry : outbound.entrySet()) {
+            LocalDate returnDate = entry.getKey().plusDays(stay);
+            Trip returnTrip = preferredReturn != null ? preferredReturn.get(returnDate) : null;
+            if (returnTrip == null && anyReturn != null) {
+                returnTrip = anyReturn.get(returnDate);
+            }
+            List<Package> packages = assemblePackage(entry.getValue().getTransports(),
+                returnTrip == null ? null : returnTrip.getTransports(), hotels, destinationCity, tripDurationDays,
+                maxBudget, minHotelRating, hotelPriority, activityCategories, maxDistanceKm);
+            if (!packages.isEmpty()) {
+                best.put(entry.getKey(), packages.get(0));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return journeys leaving on the return day and arriving home by the deadline: the
+     * latest-departure profile of the day, plus the journeys of the day that also arrive in time.
+     *
+     * @return the journeys, or an empty list if none arrives by the deadline
+     */
+    private List<Trip> returnJourneysByDeadline(String destinationCity, String departureCity,
+            LocalDateTime returnDateTime, List<Trip> dayJourneys) {
+        if (returnDateTime == null) {
+            return Collections.emptyList();
+        }
+        LocalDateTime deadline = returnDateTime.toLocalDate().atTime(returnArrivalDeadline);
+        List<Trip> latest = transportService.findLatestDepartures(destinationCity, departureCity,
+            returnDateTime.toLocalDate().atStartOfDay(), deadline, null);
+        if (latest == null || latest.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Trip> inTime = new ArrayList<>(latest);
+        if (dayJourneys != null) {
+            for (Trip trip : dayJourneys) {
+                List<Transport> legs = trip.getTransports();
+                if (legs != null && !legs.isEmpty() && !legs.get(legs.size() - 1).getArrivalDateTime().isAfter(deadline)) {
+                    inTime.add(trip);
+                }
+            }
+        }
+        return inTime;
+    }
+
+    /**
+     * Lowest hotel cost of the stay among the hotels meeting the minimum rating, or 0 if there
+     * is none; a lower bound of the hotel part of any package.
+     */
+    private static double cheapestStay(List<Hotel> hotels, int minHotelRating, int tripDurationDays) {
+        return hotels.stream()
+                .filter(h -> h != null && h.getRating() >= minHotelRating)
+                .mapToDouble(h -> h.getPricePerNight() * tripDurationDays)
+                .min()
+                .orElse(0.0);
+    }
+
+    /**
+     * Completes a package once its transports are chosen: hotel, activities near the hotel
+     * within the remaining budget, and consistency checks.
+     *
+     * @return the package (with an error if over budget), or an empty list if it cannot be built
+     */
+    private List<Package> assemblePackage(List<Transport> chosenOutboundLegs, List<Transport> chosenReturnLegs,
+            List<Hotel> hotels, String destinationCity, int tripDurationDays, double maxBudget, int minHotelRating,
+            String hotelPriority, List<String> activityCategories, double maxDistanceKm) {
         // 5) Filter hotels by minHotelRating (defensive) and choose according to hotelPriority
         if (minHotelRating > 0) {
             List<Hotel> filteredHotels = hotels.stream()
@@ -0,0 +1,73 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Runs an "any mode" journey search as one search per mode, in parallel.
+ *
+ * Journeys never change mode, so the searches of two modes share nothing and their
+ * results only have to be merged. Splitting only pays off on large timetables, so a
+ * search stays sequential below a number of connections, with a single mode, or when
+ * a mode is requested.
+ */
+final class ParallelModeSearch {
+    static final ParallelModeSearch SEQUENTIAL = new ParallelModeSearch(null, Integer.MAX_VALUE);
+
+    private final Executor executor;
+    private final int minConnections;
+
+    /**
+     * @param executor runs the searches of the other modes while the caller runs the first one
+     * @param minConnections smallest timetable searched in parallel
+     */
+    ParallelModeSearch(Executor executor, int minConnections) {
+        this.executor = executor;
+        this.minConnections = minConnections;
+    }
+
+    /**
+     * @return the executor of the searches, or null if they are sequential
+     */
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * @param modeFilter the requested mode id, or -1 for any mode
+     */
+    boolean appliesTo(ConnectionTimetable timetable, int modeFilter) {
+        return executor != null && modeFilter < 0 && timetable.modeCount() > 1
+            && timetable.connectionCount() >= minConnections;
+    }
+
+    /**
+     * Runs the search of every mode and waits for all of them.
+     *
+     * @return the results by mode id
+     */
+    <T> List<T> run(int modes, IntFunction<T> searchOfMode) {
+        List<CompletableFuture<T>> others = new ArrayList<>(modes - 1);
+        for (int mode = 1; mode < modes; mode++) {
+            int m = mode;
+            others.add(CompletableFuture.supplyAsync(() -> searchOfMode.apply(m), executor));
+        }
+        List<T> results = new ArrayList<>(modes);
+        results.add(searchOfMode.apply(0));
+        try {
+            for (CompletableFuture<T> other : others) {
+                results.add(other.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+}
@@ -0,0 +1,464 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * TransportService reading a timetable split into one JSON file per departure date
+ * (see {@link TimetablePartitioner}) and loading only the dates that queries touch. A GTFS
+ * feed can be read the same way ({@link #fromGtfs}): its calendars are then expanded one
+ * departure date at a time, when a slice needs that date.
+ *
+ * A query leaving on a date is answered by a slice: a catalog of the transports leaving on
+ * that date and a number of following days (by default {@value #DEFAULT_FOLLOWING_DAYS}), so
+ * that journeys continuing after midnight are still found, with the same searches as
+ * {@link JsonTransportService}. Queries
+ * over a range of dates use a slice covering the range. Slices are loaded on first use and
+ * kept in a cache holding at most a fixed number of them, dropping the least recently used
+ * one when it is full, but never the slice a query is about to use; memory grows with the
+ * dates in use, not with the whole timetable. When a single-date query misses the cache,
+ * the slices of the previous and next dates are also loaded in the background, as searches
+ * usually move one day at a time; the cache then holds at least three slices, so that
+ * those two loads do not evict the slice of the query. Slices of nearby dates overlap, so
+ * the transports read from each partition file are also kept for the most recently used
+ * dates (as many as the cached slices span), and a slice only reads the dates it does not
+ * share with them.
+ *
+ * Legs are searched within the slice: a journey cannot use a transport leaving more than
+ * the following days after the first departure. Queries without a date read
+ * every partition and are not cached.
+ *
+ * The service can be shared between threads: a slice is loaded once, and concurrent
+ * queries needing it wait for that load.
+ */
+public class PartitionedTransportService implements TransportService {
+    /** Days after the departure date included by default in the slice of a query. */
+    public static final int DEFAULT_FOLLOWING_DAYS = 1;
+    /** Slices kept in memory by default. */
+    public static final int DEFAULT_MAX_SLICES = 8;
+
+    private final DatedTransports source;
+    private final int maxSlices;
+    private final int followingDays;
+    private final Executor prefetchExecutor;
+    private final CityRegistry cities;
+    private final CacheStats stats = new CacheStats();
+    private final Map<DateRange, CompletableFuture<JsonTransportService>> slices =
+        new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final int maxPartitions;
+    private final Map<LocalDate, CompletableFuture<List<Transport>>> partitions =
+        new LinkedHashMap<>(16, 0.75f, true); // access order
+
+    /**
+     * Transports of a timetable by departure date.
+     */
+    private interface DatedTransports {
+        /**
+         * @return the departure dates of the timetable, in order
+         */
+        List<LocalDate> dates() throws IOException;
+
+        /**
+         * Adds the transports leaving on a date to a list.
+         */
+        void read(LocalDate date, List<Transport> rows) throws IOException;
+    }
+
+    /**
+     * Departure dates covered by a slice, both inclusive.
+     */
+    private static final class DateRange {
+        final LocalDate first;
+        final LocalDate last;
+
+        DateRange(LocalDate first, LocalDate last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DateRange)) return false;
+            DateRange other = (DateRange) o;
+            return first.equals(other.first) && last.equals(other.last);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(first, last);
+        }
+    }
+
+    public PartitionedTransportService(Path directory) {
+        this(directory, DEFAULT_MAX_SLICES, DEFAULT_FOLLOWING_DAYS, ForkJoinPool.commonPool(), CityRegistry.shared());
+    }
+
+    /**
+     * @param directory directory written by {@link TimetablePartitioner}; a missing partition
+     *                  file means no transport on that date
+     * @param maxSlices maximum number of slices kept in memory, at least 3 with a prefetch executor
+     * @param followingDays days after the departure date whose transports a journey can use
+     * @param prefetchExecutor loads the slices of adjacent dates, or null to load slices only on demand
+     * @param cities registry used to map city names to ids
+     */
+    public PartitionedTransportService(Path directory, int maxSlices, int followingDays, Executor prefetchExecutor,
+                                       CityRegistry cities) {
+        this(partitionFiles(directory), maxSlices, followingDays, prefetchExecutor, cities);
+    }
+
+    private PartitionedTransportService(DatedTransports source, int maxSlices, int followingDays,
+                                        Executor prefetchExecutor, CityRegistry cities) {
+        if (maxSlices <= 0) {
+            throw new IllegalArgumentException("maxSlices must be positive: " + maxSlices);
+        }
+        if (prefetchExecutor != null && maxSlices < 3) {
+            throw new IllegalArgumentException("maxSlices must be at least 3 with prefetch: " + maxSlices);
+        }
+        if (followingDays < 0) {
+            throw new IllegalArgumentException("followingDays must not be negative: " + followingDays);
+        }
+        this.source = source;
+        this.maxSlices = maxSlices;
+        this.followingDays = followingDays;
+        this.maxPartitions = maxSlices * (followingDays + 1);
+        this.prefetchExecutor = prefetchExecutor;
+        this.cities = cities;
+    }
+
+    /**
+     * Reads a GTFS feed (see {@link GtfsFeed}) whose calendars are expanded per departure
+     * date as slices need them; memory grows with the trips of the feed and the dates in
+     * use, not with the range.
+     *
+     * @param feedDirectory directory containing the GTFS files
+     * @param firstDate first departure date read by queries without a date
+     * @param lastDate last departure date read by queries without a date (inclusive)
+     * @throws IOException if the feed cannot be read
+     * @see #PartitionedTransportService(Path, int, int, Executor, CityRegistry)
+     */
+    public static PartitionedTransportService fromGtfs(Path feedDirectory, LocalDate firstDate, LocalDate lastDate,
+                                                       int maxSlices, int followingDays, Executor prefetchExecutor,
+                                                       CityRegistry cities) throws IOException {
+        GtfsFeed feed = GtfsFeed.read(feedDirectory);
+        DatedTransports source = new DatedTransports() {
+            @Override
+            public List<LocalDate> dates() {
+                List<LocalDate> dates = new ArrayList<>();
+                for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+                    dates.add(date);
+                }
+                return dates;
+            }
+
+            @Override
+            public void read(LocalDate date, List<Transport> rows) {
+                feed.transportsLeaving(date, rows);
+            }
+        };
+        return new PartitionedTransportService(source, maxSlices, followingDays, prefetchExecutor, cities);
+    }
+
+    /**
+     * Partition files of a directory; a missing file means no transport on that date.
+     */
+    private static DatedTransports partitionFiles(Path directory) {
+        return new DatedTransports() {
+            @Override
+            public List<LocalDate> dates() throws IOException {
+                List<LocalDate> dates = new ArrayList<>();
+                if (Files.isDirectory(directory)) {
+                    try (Stream<Path> listing = Files.list(directory)) {
+                        listing.map(TimetablePartitioner::partitionDate).filter(Objects::nonNull).sorted()
+                            .forEach(dates::add);
+                    }
+                }
+                return dates;
+            }
+
+            @Override
+            public void read(LocalDate date, List<Transport> rows) throws IOException {
+                Path file = TimetablePartitioner.partitionFile(directory, date);
+                if (Files.exists(file)) {
+                    Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                    try (CatalogReader catalogReader = new CatalogReader(reader)) {
+                        catalogReader.forEachTransport(rows::add);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return hits, misses and evictions of the slice cache so far (a hit is a query finding
+     *         its slice loaded or being loaded, including by a prefetch)
+     */
+    public CacheStats getCacheStats() {
+        return stats;
+    }
+
+    @Override
+    public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        try {
+            return sliceOf(departureDate).findTransports(departureCity, arrivalCity, departureDate, mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+        try {
+            return sliceOf(departureDate).findJourneys(departureCity, arrivalCity, departureDate, mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Trip> findJourneys(String departureCity, String arrivalCity, LocalDateTime departureDate,
+                                   String mode, String priority, int k) {
+        try {
+            return sliceOf(departureDate).findJourneys(departureCity, arrivalCity, departureDate, mode, priority, k);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Answered by one slice covering the whole window.
+     */
+    @Override
+    public Map<LocalDate, Trip> findBestJourneysByDate(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                       LocalDate lastDate, String mode, String priority) {
+        if (firstDate == null || lastDate == null || lastDate.isBefore(firstDate)) {
+            return new TreeMap<>();
+        }
+        try {
+            return slice(new DateRange(firstDate, lastDate.plusDays(followingDays)), false)
+                .findBestJourneysByDate(departureCity, arrivalCity, firstDate, lastDate, mode, priority);
+        } catch (Exception e) {
+            // In case of error: return empty map
+            return new TreeMap<>();
+        }
+    }
+
+    /**
+     * Answered by the min-price calendar of one slice covering the whole window.
+     */
+    @Override
+    public Map<LocalDate, Double> findMinPrices(String departureCity, String arrivalCity, LocalDate firstDate,
+                                                LocalDate lastDate, String mode) {
+        if (firstDate == null || lastDate == null || lastDate.isBefore(firstDate)) {
+            return new TreeMap<>();
+        }
+        try {
+            return slice(new DateRange(firstDate, lastDate.plusDays(followingDays)), false)
+                .findMinPrices(departureCity, arrivalCity, firstDate, lastDate, mode);
+        } catch (Exception e) {
+            // In case of error: return empty map
+            return new TreeMap<>();
+        }
+    }
+
+    /**
+     * Answered by one slice covering the dates from the earliest departure to the deadline.
+     */
+    @Override
+    public List<Trip> findLatestDepartures(String departureCity, String arrivalCity, LocalDateTime earliestDeparture,
+                                           LocalDateTime arrivalDeadline, String mode) {
+        if (arrivalDeadline == null) {
+            return new ArrayList<>();
+        }
+        LocalDate first = earliestDeparture == null ? arrivalDeadline.toLocalDate() : earliestDeparture.toLocalDate();
+        if (first.isAfter(arrivalDeadline.toLocalDate())) {
+            return new ArrayList<>();
+        }
+        try {
+            return slice(new DateRange(first, arrivalDeadline.toLocalDate()), false)
+                .findLatestDepartures(departureCity, arrivalCity, earliestDeparture, arrivalDeadline, mode);
+        } catch (Exception e) {
+            // In case of error: return empty list
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return the slice of a query leaving on a date, or every partition if the date is null
+     */
+    private JsonTransportService sliceOf(LocalDateTime departureDate) throws IOException {
+        if (departureDate == null) {
+            return load(null);
+        }
+        LocalDate date = departureDate.toLocalDate();
+        return slice(new DateRange(date, date.plusDays(followingDays)), true);
+    }
+
+    /**
+     * Returns a cached slice, loading it if needed; a failed load is not cached.
+     *
+     * @param prefetch true to load the slices of the previous and next dates in the background
+     *                 if this one was not cached
+     */
+    private JsonTransportService slice(DateRange range, boolean prefetch) {
+        CompletableFuture<JsonTransportService> slice;
+        boolean load = false;
+        synchronized (slices) {
+            slice = slices.get(range);
+            if (slice == null) {
+                slice = new CompletableFuture<>();
+                slices.put(range, slice);
+                evictOverflow(range);
+                load = true;
+                stats.miss();
+            } else {
+                stats.hit();
+            }
+        }
+        if (load) {
+            complete(range, slice);
+            if (prefetch && prefetchExecutor != null) {
+                prefetch(new DateRange(range.first.minusDays(1), range.last.minusDays(1)), range);
+                prefetch(new DateRange(range.first.plusDays(1), range.last.plusDays(1)), range);
+            }
+        }
+        try {
+            return slice.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param query the range of the query that started the prefetch, kept in the cache
+     */
+    private void prefetch(DateRange range, DateRange query) {
+        CompletableFuture<JsonTransportService> slice;
+        synchronized (slices) {
+            if (slices.containsKey(range)) {
+                return;
+            }
+            slice = new CompletableFuture<>();
+            slices.put(range, slice);
+            evictOverflow(query);
+        }
+        prefetchExecutor.execute(() -> complete(range, slice));
+    }
+
+    private void complete(DateRange range, CompletableFuture<JsonTransportService> slice) {
+        try {
+            slice.complete(load(range));
+        } catch (IOException | RuntimeException e) {
+            synchronized (slices) {
+                slices.remove(range, slice);
+            }
+            slice.completeExceptionally(e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+        }
+    }
+
+    /**
+     * Drops the least recently used slices beyond the maximum, except the slice of a query.
+     */
+    private void evictOverflow(DateRange kept) {
+        Iterator<DateRange> eldest = slices.keySet().iterator();
+        while (slices.size() > maxSlices && eldest.hasNext()) {
+            if (!eldest.next().equals(kept)) {
+                eldest.remove();
+                stats.evicted();
+            }
+        }
+    }
+
+    /**
+     * Reads the partitions of a range of dates, or every partition if the range is null.
+     */
+    private JsonTransportService load(DateRange range) throws IOException {
+        List<Transport> rows = new ArrayList<>();
+        if (range == null) {
+            for (LocalDate date : source.dates()) {
+                source.read(date, rows);
+            }
+        } else {
+            for (LocalDate date = range.first; !date.isAfter(range.last); date = date.plusDays(1)) {
+                rows.addAll(partition(date));
+            }
+        }
+        return new JsonTransportService(new TransportCatalog(rows, cities));
+    }
+
+    /**
+     * Returns the transports of a departure date, reading its partition if it is not cached;
+     * a failed read is not cached.
+     */
+    private List<Transport> partition(LocalDate date) throws IOException {
+        CompletableFuture<List<Transport>> rows;
+        boolean read = false;
+        synchronized (partitions) {
+            rows = partitions.get(date);
+            if (rows == null) {
+                rows = new CompletableFuture<>();
+                partitions.put(date, rows);
+                Iterator<LocalDate> eldest = partitions.keySet().iterator();
+                while (partitions.size() > maxPartitions) {
+                    eldest.next();
+                    eldest.remove();
+                }
+                read = true;
+            }
+        }
+        if (read) {
+            try {
+                List<Transport> transports = new ArrayList<>();
+                source.read(date, transports);
+                rows.complete(Collections.unmodifiableList(transports));
+            } catch (IOException | RuntimeException e) {
+                synchronized (partitions) {
+                    partitions.remove(date, rows);
+                }
+                rows.completeExceptionally(e);
+            }
+        }
+        try {
+            return rows.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+}
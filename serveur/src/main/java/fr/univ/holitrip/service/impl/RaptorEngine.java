@@ -0,0 +1,541 @@
+package fr.univ.holitrip.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+
+import fr.univ.holitrip.model.Trip;
+
+/**
+ * Multi-criteria journey search inspired by RAPTOR (Round-bAsed Public Transit Optimized Router).
+ *
+ * Round k only extends the labels created in round k - 1, so after {@code maxLegs}
+ * rounds every journey with up to {@code maxLegs} legs has been considered. Each city
+ * keeps, per round, a bag of non-dominated labels (price, arrival time, first departure
+ * time, same mode), which is enough to produce the Pareto set of journeys over
+ * (total price, total duration, number of legs) at the destination. Labels dominated by
+ * an earlier round or by a journey already at the destination are pruned as well; the
+ * numbers of labels created and pruned are added to a {@link SearchStats}. With a
+ * {@link ReachabilityMatrix}, pairs without a route within the leg limit are answered at
+ * once and labels at cities that cannot reach the destination with the legs left are pruned.
+ * Searches for any mode can be split into one search per mode ({@link ParallelModeSearch}).
+ */
+final class RaptorEngine {
+    private final TransportCatalog catalog;
+    private final int maxLegs;
+    private final long minConnectionMinutes;
+    private final SearchStats stats;
+    private final ReachabilityMatrix reachability; // null to search without it
+    private final ParallelModeSearch parallel;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final Comparator<JourneyLabel> BY_ARRIVAL = Comparator.comparingInt(l -> l.arrival);
+
+    RaptorEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes) {
+        this(catalog, maxLegs, minConnectionMinutes, new SearchStats());
+    }
+
+    RaptorEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes, SearchStats stats) {
+        this(catalog, maxLegs, minConnectionMinutes, stats, null, ParallelModeSearch.SEQUENTIAL);
+    }
+
+    RaptorEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes, SearchStats stats,
+                 ReachabilityMatrix reachability, ParallelModeSearch parallel) {
+        this.catalog = catalog;
+        this.maxLegs = maxLegs;
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.stats = stats;
+        this.reachability = reachability;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Finds the Pareto-optimal journeys over (total price, total duration, number of legs).
+     * The first leg must leave on the given day (any day if null); following legs must use
+     * the same mode and leave strictly more than the minimum connection time after the
+     * previous arrival.
+     *
+     * @param mode the transport mode, or null for all modes
+     * @return the non-dominated journeys sorted by price, then duration, then number of legs
+     */
+    List<Trip> findParetoJourneys(String departureCity, String arrivalCity, LocalDate date, String mode) {
+        int dayStart = Integer.MIN_VALUE;
+        int dayEnd = Integer.MAX_VALUE;
+        if (date != null) {
+            dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+            dayEnd = dayStart + MINUTES_PER_DAY;
+        }
+        List<JourneyLabel> reached = journeysToTarget(departureCity, arrivalCity, mode, dayStart, dayEnd, false);
+        return reached == null ? Collections.emptyList() : toParetoTrips(reached, catalog);
+    }
+
+    /**
+     * Finds, for each day of a window, the best journey whose first leg leaves that day.
+     * The whole window is searched at once: the rounds start from every first leg of the
+     * window and a label only competes with the labels that left on the same day, so each
+     * day gets the same answer as a search restricted to it.
+     *
+     * @param mode the transport mode, or null for all modes
+     * @param byDuration true to rank by duration then price, false by price then duration
+     *                   (then by number of legs in both cases)
+     * @return the best journey per departure day, in date order; days without any journey are absent
+     */
+    Map<LocalDate, Trip> findBestJourneyPerDay(String departureCity, String arrivalCity, LocalDate firstDay,
+                                               LocalDate lastDay, String mode, boolean byDuration) {
+        Map<LocalDate, Trip> best = new TreeMap<>();
+        if (firstDay == null || lastDay == null || lastDay.isBefore(firstDay)) {
+            return best;
+        }
+        int windowStart = TransportCatalog.toEpochMinute(firstDay.atStartOfDay());
+        int windowEnd = TransportCatalog.toEpochMinute(lastDay.plusDays(1).atStartOfDay());
+        List<JourneyLabel> reached = journeysToTarget(departureCity, arrivalCity, mode, windowStart, windowEnd, true);
+        if (reached == null) {
+            return best;
+        }
+        Comparator<JourneyLabel> order = byDuration
+            ? Comparator.comparingInt(JourneyLabel::duration).thenComparingInt((JourneyLabel l) -> l.price)
+            : Comparator.comparingInt((JourneyLabel l) -> l.price).thenComparingInt(JourneyLabel::duration);
+        order = order.thenComparingInt(l -> l.legs).thenComparing(JourneyLabel.inDepartureOrder(catalog));
+        Map<Integer, JourneyLabel> bestByDay = new HashMap<>();
+        for (JourneyLabel label : reached) {
+            bestByDay.merge(dayOf(label.firstDeparture), label, BinaryOperator.minBy(order));
+        }
+        for (Map.Entry<Integer, JourneyLabel> entry : bestByDay.entrySet()) {
+            best.put(LocalDate.ofEpochDay(entry.getKey()), entry.getValue().toTrip(catalog));
+        }
+        return best;
+    }
+
+    /**
+     * Finds the cheapest journeys from a city to every other one, for each departure day of
+     * the first leg in a window: the rounds of {@link #findBestJourneyPerDay} by price, run
+     * once for every destination and day. Only the price matters, so a label is dominated by
+     * any label of the same mode and day arriving no later for no more, whatever their first
+     * departures, and a departure only extends the cheapest label that can catch it.
+     *
+     * @param modeFilter the mode id, or -1 for all modes
+     * @return labels at every city reached, among which the cheapest journey of each
+     *         arrival city, mode and departure day
+     */
+    List<JourneyLabel> findCheapestJourneysPerDay(int origin, int modeFilter, int firstDay, int lastDay) {
+        Search search = search(origin, -1, modeFilter, firstDay * MINUTES_PER_DAY, (lastDay + 1) * MINUTES_PER_DAY,
+            true, true);
+        List<JourneyLabel> labels = new ArrayList<>();
+        search.earlierRounds.values().forEach(labels::addAll);
+        return labels;
+    }
+
+    private static int dayOf(int epochMinute) {
+        return Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+    }
+
+    /**
+     * Runs the rounds for first legs leaving in [dayStart, dayEnd), one search per mode when
+     * the search is split ({@link ParallelModeSearch}).
+     *
+     * @param perDay true to only compare labels whose first legs leave on the same day
+     * @return the labels that reached the destination, or null if a city or the mode is
+     *         unknown or the destination is out of reach
+     */
+    private List<JourneyLabel> journeysToTarget(String departureCity, String arrivalCity, String mode,
+                                                int dayStart, int dayEnd, boolean perDay) {
+        int origin = catalog.cityId(departureCity);
+        int target = catalog.cityId(arrivalCity);
+        if (origin < 0 || target < 0 || origin == target) {
+            return null;
+        }
+        int modeFilter = -1;
+        if (mode != null) {
+            modeFilter = catalog.modeId(mode);
+            if (modeFilter < 0) {
+                return null;
+            }
+        }
+        if (reachability != null && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return null;
+        }
+
+        if (parallel.appliesTo(catalog, modeFilter)) {
+            List<JourneyLabel> reached = new ArrayList<>();
+            int created = 0;
+            int pruned = 0;
+            for (Search search : parallel.run(catalog.modeCount(),
+                    m -> search(origin, target, m, dayStart, dayEnd, perDay, false))) {
+                reached.addAll(search.reachedTarget);
+                created += search.created;
+                pruned += search.pruned;
+            }
+            stats.record(created, pruned);
+            return reached;
+        }
+        Search search = search(origin, target, modeFilter, dayStart, dayEnd, perDay, false);
+        stats.record(search.created, search.pruned);
+        return search.reachedTarget;
+    }
+
+    /**
+     * @param target the destination city id, or -1 to search toward every city
+     * @param modeFilter the mode id, or -1 for all modes
+     */
+    private Search search(int origin, int target, int modeFilter, int dayStart, int dayEnd, boolean perDay,
+                          boolean pricesOnly) {
+        Search search = new Search(target, perDay, pricesOnly, dayStart, dayEnd);
+        if (target >= 0 && modeFilter >= 0 && reachability != null
+                && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return search;
+        }
+
+        // Round 1: every first leg leaving the origin in the requested days
+        Map<Integer, List<JourneyLabel>> bags = new HashMap<>();
+        int[] firstLegs = catalog.departuresFrom(origin);
+        for (int j = catalog.firstDepartureAtOrAfter(origin, dayStart); j < firstLegs.length; j++) {
+            int i = firstLegs[j];
+            int departure = catalog.departureMinute(i);
+            if (departure >= dayEnd) {
+                break;
+            }
+            if (modeFilter >= 0 && catalog.modeIdOf(i) != modeFilter) {
+                continue;
+            }
+            int to = catalog.arrivalCityId(i);
+            if (to == origin) {
+                continue;
+            }
+            search.addToBag(bags, null, i, to, catalog.modeIdOf(i), departure,
+                catalog.arrivalMinute(i), catalog.priceCents(i));
+        }
+        search.endRound(bags);
+
+        // Rounds 2..maxLegs: extend the labels of the previous round by one leg
+        for (int round = 2; round <= maxLegs && !bags.isEmpty(); round++) {
+            Map<Integer, List<JourneyLabel>> next = new HashMap<>();
+            if (pricesOnly) {
+                extendCheapest(search, bags, next, origin, round == maxLegs);
+                bags = next;
+                search.endRound(bags);
+                continue;
+            }
+            for (Map.Entry<Integer, List<JourneyLabel>> entry : bags.entrySet()) {
+                int city = search.cityOf(entry.getKey());
+                if (city == target) {
+                    continue;
+                }
+                // Labels by arrival: a departure can only be taken by a prefix of them, and
+                // departures before the earliest possible connection are skipped by binary search
+                List<JourneyLabel> labels = entry.getValue();
+                labels.sort(BY_ARRIVAL);
+                int[] departures = catalog.departuresFrom(city);
+                int earliest = labels.get(0).arrival + (int) minConnectionMinutes + 1;
+                for (int j = catalog.firstDepartureAtOrAfter(city, earliest); j < departures.length; j++) {
+                    int i = departures[j];
+                    int to = catalog.arrivalCityId(i);
+                    if (to == origin) {
+                        continue;
+                    }
+                    int departure = catalog.departureMinute(i);
+                    for (JourneyLabel label : labels) {
+                        if (departure <= label.arrival + minConnectionMinutes) {
+                            break;
+                        }
+                        if (catalog.modeIdOf(i) != label.mode || label.visits(to)) {
+                            continue;
+                        }
+                        search.addToBag(next, label, i, to, label.mode, label.firstDeparture,
+                            catalog.arrivalMinute(i), label.price + catalog.priceCents(i));
+                    }
+                }
+            }
+            bags = next;
+            search.endRound(bags);
+        }
+        return search;
+    }
+
+    /**
+     * Extends the labels of a round by one leg in a search by price only. A departure is
+     * extended from the last label of its mode and day that can catch it: labels of one mode
+     * that do not dominate each other are cheaper the later they arrive, so that label is the
+     * cheapest one. In the last round only the lowest price of each city matters, so each
+     * label is only extended with the cheapest departure to each city that it can catch.
+     */
+    private void extendCheapest(Search search, Map<Integer, List<JourneyLabel>> bags,
+                                Map<Integer, List<JourneyLabel>> next, int origin, boolean lastRound) {
+        if (lastRound) {
+            Map<Integer, List<JourneyLabel>> labelsByCity = new HashMap<>();
+            for (Map.Entry<Integer, List<JourneyLabel>> entry : bags.entrySet()) {
+                labelsByCity.computeIfAbsent(search.cityOf(entry.getKey()), c -> new ArrayList<>())
+                    .addAll(entry.getValue());
+            }
+            labelsByCity.forEach((city, labels) -> extendWithCheapestDepartures(search, next, origin, city, labels));
+            return;
+        }
+        for (Map.Entry<Integer, List<JourneyLabel>> entry : bags.entrySet()) {
+            int city = search.cityOf(entry.getKey());
+            List<JourneyLabel> labels = entry.getValue();
+            labels.sort(BY_ARRIVAL);
+            int[] departures = catalog.departuresFrom(city);
+            int earliest = labels.get(0).arrival + (int) minConnectionMinutes + 1;
+            int catchable = 0;
+            for (int j = catalog.firstDepartureAtOrAfter(city, earliest); j < departures.length; j++) {
+                int i = departures[j];
+                int to = catalog.arrivalCityId(i);
+                if (to == origin) {
+                    continue;
+                }
+                int departure = catalog.departureMinute(i);
+                while (catchable < labels.size() && departure > labels.get(catchable).arrival + minConnectionMinutes) {
+                    catchable++;
+                }
+                int mode = catalog.modeIdOf(i);
+                for (int l = catchable - 1; l >= 0; l--) {
+                    JourneyLabel label = labels.get(l);
+                    if (label.mode == mode) {
+                        if (!label.visits(to)) {
+                            search.addToBag(next, label, i, to, mode, label.firstDeparture,
+                                catalog.arrivalMinute(i), label.price + catalog.priceCents(i));
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Extends the labels of a city, of every day, with the cheapest departure of their mode
+     * to each city that they can catch: the departures are scanned once, from the last one,
+     * keeping the cheapest one so far per arrival city and mode.
+     */
+    private void extendWithCheapestDepartures(Search search, Map<Integer, List<JourneyLabel>> next, int origin,
+                                              int city, List<JourneyLabel> labels) {
+        labels.sort(BY_ARRIVAL.reversed());
+        int modes = catalog.modeCount();
+        int[] cheapest = search.cheapestDepartures; // by arrival city and mode, -1 if none yet
+        List<Integer> reached = new ArrayList<>();
+        int[] departures = catalog.departuresFrom(city);
+        int j = departures.length - 1;
+        for (JourneyLabel label : labels) {
+            for (; j >= 0 && catalog.departureMinute(departures[j]) > label.arrival + minConnectionMinutes; j--) {
+                int i = departures[j];
+                int slot = catalog.arrivalCityId(i) * modes + catalog.modeIdOf(i);
+                if (cheapest[slot] < 0) {
+                    reached.add(slot);
+                    cheapest[slot] = i;
+                } else if (catalog.priceCents(i) <= catalog.priceCents(cheapest[slot])) {
+                    cheapest[slot] = i;
+                }
+            }
+            for (int slot : reached) {
+                int i = cheapest[slot];
+                int to = slot / modes;
+                int price = label.price + catalog.priceCents(i);
+                if (slot % modes == label.mode && to != origin && search.cheaperThanLabels(to, label, price)
+                        && !label.visits(to)) {
+                    search.addToBag(next, label, i, to, label.mode, label.firstDeparture, catalog.arrivalMinute(i), price);
+                }
+            }
+        }
+        for (int slot : reached) {
+            cheapest[slot] = -1;
+        }
+    }
+
+    /**
+     * State of one query. Besides the bags of the current round, it keeps the labels of the
+     * previous rounds and the journeys that already reached the destination, so a candidate
+     * is pruned as soon as it is dominated by any of them:
+     * <ul>
+     *   <li>a label of the same round at the same city (same mode, not more expensive,
+     *       not later, not shorter);</li>
+     *   <li>a label of an earlier round at the same city, which also has fewer legs;</li>
+     *   <li>a journey at the destination that is not more expensive, not longer and has at
+     *       most one leg more, since completing the candidate can only add to its price,
+     *       duration and legs.</li>
+     * </ul>
+     * Candidates that end the last round away from the destination are not created at all.
+     * In a per-day search, labels are only compared with labels whose first leg left on
+     * the same day, so bags and earlier rounds are kept per city and day.
+     */
+    private final class Search {
+        final int target; // -1 for every city
+        final Map<Integer, List<JourneyLabel>> earlierRounds = new HashMap<>();
+        final List<JourneyLabel> reachedTarget = new ArrayList<>();
+        int created;
+        int pruned;
+
+        final boolean perDay;
+        final boolean pricesOnly; // first departures do not matter
+        final int firstDay;
+        final int days;
+        // When prices only: the cheapest label created by key and mode, its price and arrival
+        final int[] cheapest;
+        final int[] cheapestArrival;
+        final int[] cheapestDepartures; // scratch of the last round, by arrival city and mode
+
+        Search(int target, boolean perDay, boolean pricesOnly, int dayStart, int dayEnd) {
+            this.target = target;
+            this.perDay = perDay;
+            this.pricesOnly = pricesOnly;
+            this.firstDay = dayOf(dayStart);
+            this.days = perDay ? dayOf(dayEnd - 1) - firstDay + 1 : 1;
+            int size = pricesOnly ? days * catalog.cityCount() * catalog.modeCount() : 0;
+            this.cheapest = pricesOnly ? new int[size] : null;
+            this.cheapestArrival = pricesOnly ? new int[size] : null;
+            this.cheapestDepartures = pricesOnly ? new int[catalog.cityCount() * catalog.modeCount()] : null;
+            if (pricesOnly) {
+                Arrays.fill(cheapest, Integer.MAX_VALUE);
+                Arrays.fill(cheapestDepartures, -1);
+            }
+        }
+
+        /**
+         * @return the key of the bags of a city, and of the day of a first departure in a per-day search
+         */
+        int key(int city, int firstDeparture) {
+            return perDay ? city * days + dayOf(firstDeparture) - firstDay : city;
+        }
+
+        int cityOf(int key) {
+            return perDay ? key / days : key;
+        }
+
+        /**
+         * @return whether a price is lower than every label of a search by price at a city,
+         *         of the mode and day of a label
+         */
+        boolean cheaperThanLabels(int city, JourneyLabel label, int price) {
+            return price < cheapest[key(city, label.firstDeparture) * catalog.modeCount() + label.mode];
+        }
+
+        void addToBag(Map<Integer, List<JourneyLabel>> bags, JourneyLabel parent, int connection,
+                      int city, int mode, int firstDeparture, int arrival, int price) {
+            int legs = parent == null ? 1 : parent.legs + 1;
+            int key = key(city, firstDeparture);
+            // Dominated by the cheapest label, created before and still in a bag or dominated
+            // by one; labels of the last round are not extended, so only their price matters
+            int slot = pricesOnly ? key * catalog.modeCount() + mode : -1;
+            if (pricesOnly && price >= cheapest[slot] && (legs == maxLegs || arrival >= cheapestArrival[slot])) {
+                pruned++;
+                return;
+            }
+            if ((target >= 0 && city != target && legs + legsToTarget(mode, city) > maxLegs)
+                    || dominatedAtTarget(city, legs, price, firstDeparture, arrival - firstDeparture)
+                    || dominatedIn(earlierRounds.get(key), mode, firstDeparture, arrival, price)) {
+                pruned++;
+                return;
+            }
+            List<JourneyLabel> bag = bags.get(key);
+            if (bag == null) {
+                bag = new ArrayList<>(4);
+                bags.put(key, bag);
+            } else if (dominatedIn(bag, mode, firstDeparture, arrival, price)) {
+                pruned++;
+                return;
+            }
+            JourneyLabel label = new JourneyLabel(parent, connection, city, mode, firstDeparture, arrival, price);
+            created++;
+            if (pricesOnly && (price < cheapest[slot] || (price == cheapest[slot] && arrival < cheapestArrival[slot]))) {
+                cheapest[slot] = price;
+                cheapestArrival[slot] = arrival;
+            }
+            int before = bag.size();
+            bag.removeIf(other -> sameDay(other, firstDeparture)
+                && label.dominates(other.mode, other.price, other.arrival,
+                    pricesOnly ? firstDeparture : other.firstDeparture));
+            pruned += before - bag.size();
+            bag.add(label);
+        }
+
+        /**
+         * @return a lower bound of the legs left from a city other than the destination
+         */
+        private int legsToTarget(int mode, int city) {
+            return reachability == null ? 1 : reachability.minLegs(mode, city, target);
+        }
+
+        /**
+         * Moves the labels of a finished round to the destination set or to the earlier rounds.
+         */
+        void endRound(Map<Integer, List<JourneyLabel>> bags) {
+            for (Map.Entry<Integer, List<JourneyLabel>> entry : bags.entrySet()) {
+                if (cityOf(entry.getKey()) == target) {
+                    reachedTarget.addAll(entry.getValue());
+                } else {
+                    earlierRounds.computeIfAbsent(entry.getKey(), c -> new ArrayList<>(4)).addAll(entry.getValue());
+                }
+            }
+        }
+
+        private boolean sameDay(JourneyLabel label, int firstDeparture) {
+            return !perDay || dayOf(label.firstDeparture) == dayOf(firstDeparture);
+        }
+
+        private boolean dominatedAtTarget(int city, int legs, int price, int firstDeparture, int duration) {
+            int minLegs = city == target ? legs : legs + 1;
+            for (JourneyLabel reached : reachedTarget) {
+                if (sameDay(reached, firstDeparture) && reached.price <= price && reached.duration() <= duration && reached.legs <= minLegs) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean dominatedIn(List<JourneyLabel> labels, int mode, int firstDeparture, int arrival, int price) {
+            if (labels != null) {
+                for (JourneyLabel existing : labels) {
+                    if (sameDay(existing, firstDeparture) && existing.dominates(mode, price, arrival,
+                            pricesOnly ? existing.firstDeparture : firstDeparture)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static List<Trip> toParetoTrips(List<JourneyLabel> reached, TransportCatalog catalog) {
+        // Among equal journeys, the one whose last leg comes first in departure order is kept,
+        // whatever the order in which the searches found them
+        List<JourneyLabel> candidates = new ArrayList<>(reached);
+        candidates.sort(Comparator.comparingInt((JourneyLabel l) -> l.price)
+            .thenComparingInt(JourneyLabel::duration)
+            .thenComparingInt(l -> l.legs)
+            .thenComparing(JourneyLabel.inDepartureOrder(catalog)));
+        List<JourneyLabel> pareto = new ArrayList<>();
+        for (JourneyLabel candidate : candidates) {
+            boolean dominated = false;
+            for (JourneyLabel other : candidates) {
+                if (other != candidate
+                        && other.price <= candidate.price
+                        && other.duration() <= candidate.duration()
+                        && other.legs <= candidate.legs
+                        && (other.price < candidate.price
+                            || other.duration() < candidate.duration()
+                            || other.legs < candidate.legs
+                            || pareto.contains(other))) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                pareto.add(candidate);
+            }
+        }
+        pareto.sort(Comparator.comparingInt((JourneyLabel l) -> l.price)
+            .thenComparingInt(JourneyLabel::duration)
+            .thenComparingInt(l -> l.legs));
+
+        List<Trip> trips = new ArrayList<>();
+        for (JourneyLabel label : pareto) {
+            trips.add(label.toTrip(catalog));
+        }
+        return trips;
+    }
+}
@@ -0,0 +1,289 @@
+package fr.univ.holitrip.service.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+
+/**
+ * Minimum number of legs between every pair of cities, per mode, ignoring times.
+ *
+ * A journey uses one mode, so it cannot reach a city in fewer legs than the shortest path
+ * of that mode in the route graph (one edge per city pair served by the mode). The searches
+ * use this to answer at once for pairs that have no route within the leg limit and to drop
+ * partial journeys at cities that cannot reach the destination with the legs left.
+ *
+ * The matrix is built once per timetable with one breadth-first search per city and mode,
+ * stopped at the leg limit; counts above the limit are stored as limit + 1. It takes
+ * (modes + 1) x cities² bytes, so it is not built beyond {@value #MAX_BYTES} bytes.
+ * After inventory changes it is updated from the changed legs ({@link #withChanges}), and
+ * its counts are then lower bounds, which is all the searches need. A binary timetable
+ * stores the matrix after its rows ({@link #writeTo}), and the matrix of a mapped file
+ * ({@link #mapped}) is read in place.
+ */
+final class ReachabilityMatrix {
+    static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int cities;
+    private final int maxLegs;
+    private final byte[][] legs; // [mode, or modeCount for any mode][from * cities + to], null if mapped
+    private final ByteBuffer mapped; // the same layers one after the other, or null
+    private final int anyMode; // layer of any mode
+
+    private ReachabilityMatrix(int cities, int maxLegs, byte[][] legs) {
+        this.cities = cities;
+        this.maxLegs = maxLegs;
+        this.legs = legs;
+        this.mapped = null;
+        this.anyMode = legs.length - 1;
+    }
+
+    private ReachabilityMatrix(int cities, int modes, int maxLegs, ByteBuffer mapped) {
+        this.cities = cities;
+        this.maxLegs = maxLegs;
+        this.legs = null;
+        this.mapped = mapped;
+        this.anyMode = modes;
+    }
+
+    /**
+     * @return the bytes of the matrix of a timetable, written by {@link #writeTo}
+     */
+    static long bytes(int cities, int modes) {
+        return (long) cities * cities * (modes + 1);
+    }
+
+    /**
+     * Matrix read in place from bytes written by {@link #writeTo}; it cannot be updated
+     * with {@link #withChanges}.
+     */
+    static ReachabilityMatrix mapped(ByteBuffer bytes, int cities, int modes, int maxLegs) {
+        return new ReachabilityMatrix(cities, modes, maxLegs, bytes);
+    }
+
+    /**
+     * Writes the layers of the matrix, {@link #bytes} bytes in all.
+     */
+    void writeTo(ByteBuffer out) {
+        for (byte[] layer : legs) {
+            out.put(layer);
+        }
+    }
+
+    int maxLegs() {
+        return maxLegs;
+    }
+
+    /**
+     * @return the matrix of the timetable, or null if it would be larger than {@value #MAX_BYTES} bytes
+     */
+    static ReachabilityMatrix build(ConnectionTimetable timetable, int maxLegs) {
+        int cities = timetable.cityCount();
+        int modes = timetable.modeCount();
+        if (bytes(cities, modes) > MAX_BYTES) {
+            return null;
+        }
+        byte unreachable = (byte) (maxLegs + 1);
+        byte[][] legs = new byte[modes + 1][];
+        byte[] any = new byte[cities * cities];
+        Arrays.fill(any, unreachable);
+        int[] queue = new int[cities];
+        int[] depth = new int[cities];
+        for (int mode = 0; mode < modes; mode++) {
+            int[][] next = routes(timetable, mode, cities);
+            byte[] byMode = new byte[cities * cities];
+            Arrays.fill(byMode, unreachable);
+            for (int from = 0; from < cities; from++) {
+                if (next[from].length == 0) {
+                    byMode[from * cities + from] = 0;
+                    continue;
+                }
+                // Breadth-first search stopped at the leg limit
+                int row = from * cities;
+                byMode[row + from] = 0;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = from;
+                depth[from] = 0;
+                while (head < tail) {
+                    int city = queue[head++];
+                    if (depth[city] == maxLegs) {
+                        continue;
+                    }
+                    for (int to : next[city]) {
+                        if (byMode[row + to] == unreachable) {
+                            byMode[row + to] = (byte) (depth[city] + 1);
+                            depth[to] = depth[city] + 1;
+                            queue[tail++] = to;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < any.length; i++) {
+                any[i] = (byte) Math.min(any[i], byMode[i]);
+            }
+            legs[mode] = byMode;
+        }
+        for (int city = 0; city < cities; city++) {
+            any[city * cities + city] = 0;
+        }
+        legs[modes] = any;
+        return new ReachabilityMatrix(cities, maxLegs, legs);
+    }
+
+    /**
+     * Matrix of a timetable derived by changes from the one of this matrix, whose city and
+     * mode ids it keeps. A leg inserted on a route this matrix has no leg on lowers the
+     * counts of the pairs that can go through it (one pass over the pairs per new route, on
+     * copies of the layers of its mode and of any mode); every other layer is shared. Removed
+     * legs leave the counts as they are: they stay lower bounds, so the searches prune a bit
+     * less until the next full build but return the same journeys.
+     *
+     * @return the updated matrix, or null if it would be larger than {@value #MAX_BYTES} bytes
+     */
+    ReachabilityMatrix withChanges(ConnectionTimetable timetable, List<TransportChange> changes) {
+        int nextCities = timetable.cityCount();
+        int modes = timetable.modeCount();
+        if (bytes(nextCities, modes) > MAX_BYTES) {
+            return null;
+        }
+        int previousModes = legs.length - 1;
+        byte[][] next = new byte[modes + 1][];
+        boolean[] copied = new boolean[modes + 1];
+        for (int mode = 0; mode <= modes; mode++) {
+            byte[] layer = mode == modes ? legs[previousModes] : mode < previousModes ? legs[mode] : null;
+            if (layer == null || nextCities != cities) {
+                next[mode] = resized(layer, nextCities);
+                copied[mode] = true;
+            } else {
+                next[mode] = layer;
+            }
+        }
+        for (TransportChange change : changes) {
+            if (change == null || change.getOperation() == null
+                    || change.getOperation() == TransportChange.Operation.DELETE) {
+                continue;
+            }
+            Transport t = change.getTransport();
+            if (t == null || t.getDepartureCity() == null || t.getArrivalCity() == null || t.getMode() == null) {
+                continue;
+            }
+            int from = timetable.cityId(t.getDepartureCity());
+            int to = timetable.cityId(t.getArrivalCity());
+            int mode = timetable.modeId(t.getMode());
+            if (from < 0 || to < 0 || mode < 0 || next[mode][from * nextCities + to] <= 1) {
+                continue;
+            }
+            for (int layer : new int[] {mode, modes}) {
+                if (!copied[layer]) {
+                    next[layer] = next[layer].clone();
+                    copied[layer] = true;
+                }
+            }
+            addRoute(next[mode], next[modes], nextCities, from, to);
+        }
+        return new ReachabilityMatrix(nextCities, maxLegs, next);
+    }
+
+    /**
+     * Copy of a layer for more cities, the new ones reaching only themselves.
+     *
+     * @param layer the layer, or null for a mode without legs
+     */
+    private byte[] resized(byte[] layer, int nextCities) {
+        byte[] copy = new byte[nextCities * nextCities];
+        Arrays.fill(copy, (byte) (maxLegs + 1));
+        for (int city = 0; city < nextCities; city++) {
+            copy[city * nextCities + city] = 0;
+        }
+        if (layer != null) {
+            for (int from = 0; from < cities; from++) {
+                System.arraycopy(layer, from * cities, copy, from * nextCities, cities);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Lowers the counts of a mode, and of any mode, for a new route: a pair can now go
+     * through it in the legs to its departure city, plus one, plus the legs from its arrival
+     * city. Rows are updated in place, since no count through the route gets lower by
+     * taking the route twice.
+     */
+    private void addRoute(byte[] byMode, byte[] any, int cities, int from, int to) {
+        for (int origin = 0; origin < cities; origin++) {
+            int row = origin * cities;
+            int toRoute = byMode[row + from];
+            if (toRoute >= maxLegs) {
+                continue;
+            }
+            int fromRoute = to * cities;
+            for (int city = 0; city < cities; city++) {
+                int count = toRoute + 1 + byMode[fromRoute + city];
+                if (count < byMode[row + city]) {
+                    byMode[row + city] = (byte) count;
+                    any[row + city] = (byte) Math.min(any[row + city], count);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the distinct arrival cities of the mode, per departure city
+     */
+    private static int[][] routes(ConnectionTimetable timetable, int mode, int cities) {
+        int n = timetable.connectionCount();
+        long[] edges = new long[n];
+        int count = 0;
+        for (int p = 0; p < n; p++) {
+            int i = timetable.connectionAt(p);
+            if (timetable.modeIdOf(i) == mode) {
+                edges[count++] = (long) timetable.departureCityId(i) * cities + timetable.arrivalCityId(i);
+            }
+        }
+        Arrays.sort(edges, 0, count);
+        int[] degree = new int[cities];
+        int distinct = 0;
+        for (int e = 0; e < count; e++) {
+            if (e == 0 || edges[e] != edges[e - 1]) {
+                edges[distinct++] = edges[e];
+                degree[(int) (edges[e] / cities)]++;
+            }
+        }
+        int[][] next = new int[cities][];
+        for (int city = 0; city < cities; city++) {
+            next[city] = new int[degree[city]];
+        }
+        int[] filled = new int[cities];
+        for (int e = 0; e < distinct; e++) {
+            int from = (int) (edges[e] / cities);
+            next[from][filled[from]++] = (int) (edges[e] % cities);
+        }
+        return next;
+    }
+
+    /**
+     * @param mode the mode id, or -1 for any mode
+     * @return the minimum number of legs from one city to another, or maxLegs + 1 if it is
+     *         more than maxLegs or a city is unknown
+     */
+    int minLegs(int mode, int from, int to) {
+        if (from < 0 || to < 0 || from >= cities || to >= cities) {
+            return maxLegs + 1;
+        }
+        int layer = mode < 0 ? anyMode : mode;
+        if (mapped != null) {
+            return mapped.get((layer * cities + from) * cities + to);
+        }
+        return legs[layer][from * cities + to];
+    }
+
+    /**
+     * @return whether a journey of the mode (-1 for any) can go from one city to another in at most the given legs
+     */
+    boolean reachable(int mode, int from, int to, int legsLeft) {
+        return minLegs(mode, from, to) <= legsLeft;
+    }
+}
@@ -0,0 +1,50 @@
+package fr.univ.holitrip.service.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative counters of the label-based journey searches.
+ * A search counts its labels locally and adds them once it is done, so the counters can
+ * be shared by concurrent searches without contention.
+ */
+public final class SearchStats {
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder labelsCreated = new LongAdder();
+    private final LongAdder labelsPruned = new LongAdder();
+
+    void record(int created, int pruned) {
+        searches.increment();
+        labelsCreated.add(created);
+        labelsPruned.add(pruned);
+    }
+
+    /**
+     * @return the number of searches recorded
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * @return the number of partial journeys (labels) allocated by the searches
+     */
+    public long getLabelsCreated() {
+        return labelsCreated.sum();
+    }
+
+    /**
+     * @return the number of partial journeys dropped because another one dominated them
+     *         or because they can no longer reach the destination, whether they were
+     *         rejected before allocation or removed afterwards
+     */
+    public long getLabelsPruned() {
+        return labelsPruned.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{searches=" + getSearches()
+            + ", labelsCreated=" + getLabelsCreated()
+            + ", labelsPruned=" + getLabelsPruned() + '}';
+    }
+}
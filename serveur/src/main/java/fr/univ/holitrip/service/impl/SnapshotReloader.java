@@ -0,0 +1,182 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current immutable snapshot of a catalog and, optionally, rebuilds it when its
+ * file changes on disk.
+ *
+ * Readers call {@link #get()} once per query and keep using that snapshot, so a query
+ * that started before a reload finishes on the old data and no reader ever waits for a
+ * reload. A background daemon thread watches the directory of the file with a
+ * {@link WatchService}, waits until the file has been quiet for a short delay, loads a
+ * new snapshot and publishes it with a single volatile write. If loading fails (for
+ * example a half-written file), the current snapshot is kept.
+ */
+final class SnapshotReloader<T> implements AutoCloseable {
+    private static final long QUIET_MILLIS = 200;
+
+    /**
+     * Builds a snapshot from a file; any exception keeps the previous snapshot.
+     */
+    interface Loader<T> {
+        T load(Path file) throws Exception;
+    }
+
+    private final Path file;
+    private final Loader<T> loader;
+    private volatile T current;
+    private volatile long version;
+    private WatchService watchService;
+
+    private SnapshotReloader(Path file, Loader<T> loader, T initial) {
+        this.file = file;
+        this.loader = loader;
+        this.current = initial;
+    }
+
+    /**
+     * A snapshot that never changes.
+     */
+    static <T> SnapshotReloader<T> fixed(T snapshot) {
+        return new SnapshotReloader<>(null, null, snapshot);
+    }
+
+    /**
+     * Loads a snapshot from a file and, if {@code watch} is true, reloads it in the
+     * background whenever the file is created or modified.
+     *
+     * @param fallback snapshot used if the file cannot be loaded at startup
+     */
+    static <T> SnapshotReloader<T> fromFile(Path file, Loader<T> loader, T fallback, boolean watch) {
+        Path absolute = file.toAbsolutePath();
+        SnapshotReloader<T> reloader = new SnapshotReloader<>(absolute, loader, fallback);
+        reloader.reload();
+        if (watch) {
+            reloader.startWatching();
+        }
+        return reloader;
+    }
+
+    T get() {
+        return current;
+    }
+
+    /**
+     * @return the number of snapshots published so far, loaded from the file or derived with
+     *         {@link #update(UnaryOperator)} (0 for a fixed snapshot never updated)
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Loads the file again and publishes the new snapshot.
+     *
+     * @return false if the file could not be loaded (the current snapshot is kept)
+     */
+    synchronized boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        T next;
+        try {
+            next = loader.load(file);
+        } catch (Exception e) {
+            return false;
+        }
+        if (next == null) {
+            return false;
+        }
+        current = next;
+        version++;
+        return true;
+    }
+
+    /**
+     * Publishes a snapshot derived from the current one. Updates and reloads are applied one
+     * at a time; a reload of the file replaces the snapshot, updates included.
+     */
+    synchronized void update(UnaryOperator<T> change) {
+        current = change.apply(current);
+        version++;
+    }
+
+    private void startWatching() {
+        Path directory = file.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            // Watching is best effort: the snapshot simply stays as loaded
+            watchService = null;
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "catalog-reloader-" + file.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = drain(key);
+                // Wait for the writer to finish before reading the file
+                while (changed) {
+                    WatchKey more = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                    if (more == null) {
+                        reload();
+                        break;
+                    }
+                    drain(more);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed: stop watching
+        }
+    }
+
+    /**
+     * @return true if one of the events concerns the watched file
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getFileName().equals(context))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the file; the current snapshot stays available.
+     */
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import fr.univ.holitrip.model.Transport;
+
+/**
+ * Offline splitter of a JSON transport file into one JSON file per departure date, read
+ * by {@link PartitionedTransportService}.
+ *
+ * Usage (from serveur/):
+ * mvn exec:java -Dexec.mainClass="fr.univ.holitrip.service.impl.TimetablePartitioner" \
+ *     -Dexec.args="data/transports.json target/partitions"
+ *
+ * The input is a file path, or a classpath resource if no such file exists. The transports
+ * are streamed: only one open file per departure date is kept while writing.
+ */
+public final class TimetablePartitioner {
+    static final String PREFIX = "transports-";
+    static final String SUFFIX = ".json";
+
+    private TimetablePartitioner() {
+        // Utility class - prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TimetablePartitioner <transports.json> <directory>");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        try (InputStream json = Files.isRegularFile(input)
+                ? Files.newInputStream(input) : CatalogReader.openResource(args[0])) {
+            if (json == null) {
+                throw new IOException("No such file or resource: " + args[0]);
+            }
+            int rows = partition(json, Paths.get(args[1]));
+            System.out.println(rows + " transports written to " + args[1]);
+        }
+    }
+
+    /**
+     * Writes the transports of a JSON array to one file per departure date in a directory,
+     * replacing the files of the same dates.
+     *
+     * @return the number of transports written
+     */
+    public static int partition(InputStream json, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<LocalDate, JsonWriter> writers = new HashMap<>();
+        int[] rows = {0};
+        try (CatalogReader reader = new CatalogReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+            reader.forEachTransport(t -> {
+                if (t.getDepartureDateTime() == null) {
+                    return;
+                }
+                try {
+                    JsonWriter writer = writers.get(t.getDepartureDateTime().toLocalDate());
+                    if (writer == null) {
+                        LocalDate date = t.getDepartureDateTime().toLocalDate();
+                        writer = new JsonWriter(Files.newBufferedWriter(partitionFile(directory, date),
+                            StandardCharsets.UTF_8));
+                        writer.beginArray();
+                        writers.put(date, writer);
+                    }
+                    write(writer, t);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            IOException failure = null;
+            for (JsonWriter writer : writers.values()) {
+                try {
+                    writer.endArray();
+                    writer.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return rows[0];
+    }
+
+    private static void write(JsonWriter writer, Transport t) throws IOException {
+        writer.beginObject();
+        writer.name("departureCity").value(t.getDepartureCity());
+        writer.name("arrivalCity").value(t.getArrivalCity());
+        writer.name("departureDateTime").value(t.getDepartureDateTime().toString());
+        writer.name("arrivalDateTime").value(t.getArrivalDateTime() == null ? null : t.getArrivalDateTime().toString());
+        writer.name("mode").value(t.getMode());
+        writer.name("price").value(t.getPrice());
+        writer.endObject();
+    }
+
+    /**
+     * @return the file of the transports leaving on a date
+     */
+    static Path partitionFile(Path directory, LocalDate date) {
+        return directory.resolve(PREFIX + date + SUFFIX);
+    }
+
+    /**
+     * @return the date of a partition file, or null if the name is not one of a partition
+     */
+    static LocalDate partitionDate(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
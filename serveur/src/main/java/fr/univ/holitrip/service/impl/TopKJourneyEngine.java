@@ -0,0 +1,277 @@
+package fr.univ.holitrip.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import fr.univ.holitrip.model.Trip;
+
+/**
+ * Search for the k best journeys for a priority (k-shortest paths with dominance pruning).
+ *
+ * Labels are expanded best-first from a priority queue ordered by the priority key
+ * (price then duration, or duration then price). Extending a journey never makes its
+ * key smaller, so journeys reach the destination in priority order and the search stops
+ * after the k-th one. A label is dropped as soon as k other labels at the same city
+ * dominate it (same mode, not more expensive, not later, not shorter, no more legs):
+ * each of them can be extended like it, so it cannot be part of the k best journeys.
+ * The numbers of labels created and pruned are added to a {@link SearchStats}.
+ *
+ * With a {@link GeoHeuristic}, the queue is ordered by the key plus a lower bound of what
+ * is left to the destination (A*): labels heading away from the destination are expanded
+ * later, often not at all. The bound never overestimates, so the journeys and their order
+ * are the same as without it. With a {@link ReachabilityMatrix}, pairs without a route
+ * within the leg limit are answered at once and labels at cities that cannot reach the
+ * destination with the legs left are not created. Searches for any mode can be split into
+ * one search per mode ({@link ParallelModeSearch}).
+ */
+final class TopKJourneyEngine {
+    private final TransportCatalog catalog;
+    private final int maxLegs;
+    private final long minConnectionMinutes;
+    private final SearchStats stats;
+    private final GeoHeuristic heuristic; // null for a plain best-first search
+    private final ReachabilityMatrix reachability; // null to search without it
+    private final ParallelModeSearch parallel;
+
+    TopKJourneyEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes) {
+        this(catalog, maxLegs, minConnectionMinutes, new SearchStats());
+    }
+
+    TopKJourneyEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes, SearchStats stats) {
+        this(catalog, maxLegs, minConnectionMinutes, stats, null, null, ParallelModeSearch.SEQUENTIAL);
+    }
+
+    /**
+     * @param heuristic lower bounds guiding the search toward the destination, or null
+     * @param reachability minimum legs between cities, or null
+     * @param parallel how "any mode" searches are split per mode
+     */
+    TopKJourneyEngine(TransportCatalog catalog, int maxLegs, long minConnectionMinutes, SearchStats stats,
+                      GeoHeuristic heuristic, ReachabilityMatrix reachability, ParallelModeSearch parallel) {
+        this.catalog = catalog;
+        this.maxLegs = maxLegs;
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.stats = stats;
+        this.heuristic = heuristic;
+        this.reachability = reachability;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Finds the k best journeys for a priority. The first leg must leave on the given day
+     * (any day if null); following legs must use the same mode and leave strictly more
+     * than the minimum connection time after the previous arrival.
+     *
+     * @param mode the transport mode, or null for all modes
+     * @param byDuration true to rank by duration then price, false to rank by price then duration
+     * @return at most k journeys, best first (ties broken by the number of legs)
+     */
+    List<Trip> findBestJourneys(String departureCity, String arrivalCity, LocalDate date, String mode,
+                                boolean byDuration, int k) {
+        int origin = catalog.cityId(departureCity);
+        int target = catalog.cityId(arrivalCity);
+        if (k <= 0 || origin < 0 || target < 0 || origin == target) {
+            return Collections.emptyList();
+        }
+        int modeFilter = -1;
+        if (mode != null) {
+            modeFilter = catalog.modeId(mode);
+            if (modeFilter < 0) {
+                return Collections.emptyList();
+            }
+        }
+        if (reachability != null && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return Collections.emptyList();
+        }
+        int dayStart = Integer.MIN_VALUE;
+        int dayEnd = Integer.MAX_VALUE;
+        if (date != null) {
+            dayStart = TransportCatalog.toEpochMinute(date.atStartOfDay());
+            dayEnd = dayStart + 24 * 60;
+        }
+
+        List<JourneyLabel> best;
+        if (parallel.appliesTo(catalog, modeFilter)) {
+            // The k best of each mode contain the k best overall
+            int from = dayStart;
+            int to = dayEnd;
+            best = new ArrayList<>();
+            int created = 0;
+            int pruned = 0;
+            for (Search search : parallel.run(catalog.modeCount(),
+                    m -> search(origin, target, m, from, to, byDuration, k))) {
+                best.addAll(search.reached);
+                created += search.created;
+                pruned += search.pruned;
+            }
+            stats.record(created, pruned);
+            best.sort(order(byDuration));
+            if (best.size() > k) {
+                best = best.subList(0, k);
+            }
+        } else {
+            Search search = search(origin, target, modeFilter, dayStart, dayEnd, byDuration, k);
+            stats.record(search.created, search.pruned);
+            best = search.reached;
+        }
+
+        List<Trip> trips = new ArrayList<>(best.size());
+        for (JourneyLabel label : best) {
+            trips.add(label.toTrip(catalog));
+        }
+        return trips;
+    }
+
+    /**
+     * @param modeFilter the mode id, or -1 for all modes
+     * @return the finished search, its k best journeys in {@code reached}
+     */
+    private Search search(int origin, int target, int modeFilter, int dayStart, int dayEnd, boolean byDuration,
+                          int k) {
+        Search search = new Search(target, k, byDuration);
+        if (modeFilter >= 0 && reachability != null && !reachability.reachable(modeFilter, origin, target, maxLegs)) {
+            return search;
+        }
+
+        int[] firstLegs = catalog.departuresFrom(origin);
+        for (int j = catalog.firstDepartureAtOrAfter(origin, dayStart); j < firstLegs.length; j++) {
+            int i = firstLegs[j];
+            int departure = catalog.departureMinute(i);
+            if (departure >= dayEnd) {
+                break;
+            }
+            if (modeFilter >= 0 && catalog.modeIdOf(i) != modeFilter) {
+                continue;
+            }
+            int to = catalog.arrivalCityId(i);
+            if (to == origin) {
+                continue;
+            }
+            search.offer(null, i, to, catalog.modeIdOf(i), departure,
+                catalog.arrivalMinute(i), catalog.priceCents(i));
+        }
+
+        while (!search.queue.isEmpty() && search.reached.size() < k) {
+            JourneyLabel label = search.queue.poll();
+            if (label.city == target) {
+                search.reached.add(label);
+                continue;
+            }
+            // Labels created after this one may have pushed it out of the k best of its city;
+            // a dropped label no longer counts against the others
+            List<JourneyLabel> bag = search.bags.get(label.city);
+            if (countDominating(bag, label, k) >= k) {
+                bag.remove(label);
+                search.pruned++;
+                continue;
+            }
+            // Only the departures after the minimum connection time are visited
+            int[] departures = catalog.departuresFrom(label.city);
+            int earliest = label.arrival + (int) minConnectionMinutes + 1;
+            for (int j = catalog.firstDepartureAtOrAfter(label.city, earliest); j < departures.length; j++) {
+                int i = departures[j];
+                if (catalog.modeIdOf(i) != label.mode) {
+                    continue;
+                }
+                int to = catalog.arrivalCityId(i);
+                if (to == origin || label.visits(to)) {
+                    continue;
+                }
+                search.offer(label, i, to, label.mode, label.firstDeparture,
+                    catalog.arrivalMinute(i), label.price + catalog.priceCents(i));
+            }
+        }
+        return search;
+    }
+
+    /**
+     * Order of the queue: the key of the priority plus the remaining bound, then the other
+     * criterion. Labels at the destination have no remaining bound, so they come out in the
+     * order of the priority.
+     */
+    private Comparator<JourneyLabel> order(boolean byDuration) {
+        Comparator<JourneyLabel> primary = byDuration
+            ? Comparator.comparingInt((JourneyLabel l) -> l.duration() + l.remaining).thenComparingInt(l -> l.price)
+            : Comparator.comparingInt((JourneyLabel l) -> l.price + l.remaining).thenComparingInt(JourneyLabel::duration);
+        return primary.thenComparingInt(l -> l.legs).thenComparing(JourneyLabel.inDepartureOrder(catalog));
+    }
+
+    /**
+     * State of one query: the queue of labels to expand and, per city, the labels that
+     * were queued and not dropped yet.
+     */
+    private final class Search {
+        final int target;
+        final int k;
+        final boolean byDuration;
+        final GeoHeuristic.Target bounds; // null without heuristic
+        final PriorityQueue<JourneyLabel> queue;
+        final Map<Integer, List<JourneyLabel>> bags = new HashMap<>();
+        final List<JourneyLabel> reached = new ArrayList<>();
+        int created;
+        int pruned;
+
+        Search(int target, int k, boolean byDuration) {
+            this.target = target;
+            this.k = k;
+            this.byDuration = byDuration;
+            this.bounds = heuristic == null ? null : heuristic.toward(target);
+            this.queue = new PriorityQueue<>(order(byDuration));
+        }
+
+        /**
+         * Queues a new label unless k labels of its city already dominate it. Labels at the
+         * destination are never extended, so they are only ranked by the queue; labels that
+         * cannot be extended any more are not created elsewhere.
+         */
+        void offer(JourneyLabel parent, int connection, int city, int mode,
+                   int firstDeparture, int arrival, int price) {
+            int legs = parent == null ? 1 : parent.legs + 1;
+            List<JourneyLabel> bag = null;
+            if (city != target) {
+                int legsToTarget = reachability == null ? 1 : reachability.minLegs(mode, city, target);
+                if (legs + legsToTarget > maxLegs) {
+                    pruned++;
+                    return;
+                }
+                bag = bags.computeIfAbsent(city, c -> new ArrayList<>(4));
+                int dominating = 0;
+                for (JourneyLabel existing : bag) {
+                    if (existing.legs <= legs && existing.dominates(mode, price, arrival, firstDeparture)
+                            && ++dominating >= k) {
+                        pruned++;
+                        return;
+                    }
+                }
+            }
+            int remaining = 0;
+            if (bounds != null && city != target) {
+                remaining = byDuration ? bounds.minutes(city, mode) : bounds.cents(city, mode);
+            }
+            JourneyLabel label = new JourneyLabel(parent, connection, city, mode, firstDeparture, arrival, price,
+                remaining);
+            created++;
+            if (bag != null) {
+                bag.add(label);
+            }
+            queue.add(label);
+        }
+    }
+
+    private static int countDominating(List<JourneyLabel> bag, JourneyLabel label, int k) {
+        int dominating = 0;
+        for (JourneyLabel existing : bag) {
+            if (existing != label && existing.legs <= label.legs && existing.dominates(label)
+                    && ++dominating >= k) {
+                break;
+            }
+        }
+        return dominating;
+    }
+}
@@ -0,0 +1,894 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Immutable in-memory snapshot of the transport timetable.
+ * The JSON file is streamed once ({@link CatalogReader}) and every query then reads the same snapshot,
+ * so it can be shared between threads without synchronization.
+ *
+ * Transports are not kept as objects: each one is a departure city, an arrival city, a mode,
+ * a departure time, a duration and a price, stored as columns indexed by connection id
+ * (21 bytes per transport), with the ids in departure order in a separate array. Cities
+ * are int ids, modes byte ids, times epoch minutes and prices cents. The rows are
+ * independent legs, not stops of known trips, so there is no trip shape to factor out of
+ * them; most of the heap of a catalog is its per-city indexes below. The searches only read these columns; a
+ * {@link Transport} is created for each result returned to the caller, with times to the minute.
+ * City ids are local to the catalog: they number the cities of its transports densely, so
+ * the arrays of the searches are sized by the cities the catalog serves, not by every city
+ * of the {@link CityRegistry} it shares the normalization of names with. Returned transports
+ * spell each city as the first transport of the catalog that uses it does, whatever other
+ * users of the registry registered first.
+ *
+ * The label searches read the departures of a city from a per-city array in departure
+ * order, starting at the first catchable one found by binary search, without allocating.
+ * Direct lookups go through a per-city hash index keyed by (arrival city, departure date),
+ * built when the snapshot is created.
+ * Inventory changes never modify a snapshot: {@link #withChanges(List)} derives a new one.
+ * Connection ids are never reused, and ids and departure order agree on equal departure
+ * minutes, so the connections of a derived snapshot keep their ids and its searches break
+ * ties in the same order as a snapshot loaded from scratch.
+ */
+final class TransportCatalog implements ConnectionTimetable {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int[] NO_DEPARTURES = new int[0];
+    private static final CityDepartures NO_CITY_DEPARTURES = new CityDepartures(NO_DEPARTURES, NO_DEPARTURES, Map.of());
+
+    private final CityRegistry cities;
+    private final String[] cityNames; // by local city id, as spelled by the first transport of the city
+    private final int cityCount;
+    private final int[] localIds; // by registry id, -1 for the cities without transports
+    private final Map<String, Integer> modeIds = new HashMap<>();
+    private final List<String> modeNames = new ArrayList<>();
+
+    // Connections by id, ids below idCount
+    private final Trips trips;
+    private final int idCount;
+    private final int[] departureCities;
+    private final int[] arrivalCities;
+    private final byte[] modes;
+    private final int[] departureMinutes;
+    private final int[] durations; // minutes
+    private final int[] priceCents;
+    private final int[] order; // ids of the current connections, in departure order
+    private final CityDepartures[] departuresByCity;
+
+    /**
+     * Departures of one city: connection ids in departure order, their departure minutes for
+     * binary search, and the direct index of the city, whose buckets hold the ids of one
+     * arrival city and departure day (see {@link #directKey}) in departure order.
+     * Snapshots share it until a change touches the city.
+     */
+    private static final class CityDepartures {
+        final int[] connections;
+        final int[] minutes;
+        final Map<Long, int[]> direct;
+
+        CityDepartures(int[] connections, int[] minutes, Map<Long, int[]> direct) {
+            this.connections = connections;
+            this.minutes = minutes;
+            this.direct = direct;
+        }
+
+        static CityDepartures of(int[] connections, Columns columns) {
+            if (connections.length == 0) {
+                return NO_CITY_DEPARTURES;
+            }
+            int[] minutes = new int[connections.length];
+            long[] keys = new long[connections.length];
+            Map<Long, int[]> counts = new HashMap<>();
+            for (int j = 0; j < connections.length; j++) {
+                int i = connections[j];
+                minutes[j] = columns.departureMinutes[i];
+                keys[j] = directKey(columns.arrivalCities[i],
+                    Math.floorDiv(minutes[j], MINUTES_PER_DAY));
+                counts.computeIfAbsent(keys[j], k -> new int[1])[0]++;
+            }
+            Map<Long, int[]> direct = new HashMap<>(counts.size() * 4 / 3 + 1);
+            for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+                direct.put(entry.getKey(), new int[entry.getValue()[0]]);
+                entry.getValue()[0] = 0;
+            }
+            for (int j = 0; j < connections.length; j++) {
+                direct.get(keys[j])[counts.get(keys[j])[0]++] = connections[j];
+            }
+            return new CityDepartures(connections, minutes, direct);
+        }
+    }
+
+    /**
+     * Connection columns shared by a catalog and the catalogs derived from it. Ids are never
+     * reused, so the first catalog derived from this one appends its inserted connections
+     * after the last id, where no reader of this catalog looks, instead of copying the columns.
+     */
+    private static final class Trips {
+        final int[] departureCities;
+        final int[] arrivalCities;
+        final byte[] modes;
+        final int[] departureMinutes;
+        final int[] durations;
+        final int[] prices;
+        private int used;
+
+        Trips(Columns columns) {
+            this.departureCities = columns.departureCities;
+            this.arrivalCities = columns.arrivalCities;
+            this.modes = columns.modes;
+            this.departureMinutes = columns.departureMinutes;
+            this.durations = columns.durations;
+            this.prices = columns.prices;
+            this.used = columns.size;
+        }
+
+        /**
+         * @return whether the ids from the given one on were free and room for count more
+         *         connections is left; they are then reserved for the caller
+         */
+        synchronized boolean reserve(int from, int count) {
+            if (used != from || modes.length - from < count) {
+                return false;
+            }
+            used = from + count;
+            return true;
+        }
+    }
+
+    /**
+     * Growable columns of a catalog being built: cities, modes and connections by id.
+     */
+    private static final class Columns {
+        String[] cityNames;
+        int cityCount;
+        int[] localIds;
+        boolean citiesShared; // the city arrays are the ones of a base catalog
+        final Map<String, Integer> modeIds = new HashMap<>();
+        final List<String> modeNames = new ArrayList<>();
+        Trips trips; // the reserved columns of a base catalog, or null
+        int[] departureCities;
+        int[] arrivalCities;
+        byte[] modes;
+        int[] departureMinutes;
+        int[] durations;
+        int[] prices;
+        int size;
+
+        Columns(int capacity) {
+            cityNames = new String[8];
+            localIds = new int[0];
+            allocate(capacity);
+        }
+
+        /**
+         * Columns starting with the cities and modes of a catalog, copied on write, and none
+         * of its connections.
+         */
+        Columns(TransportCatalog base, int capacity) {
+            cityNames = base.cityNames;
+            cityCount = base.cityCount;
+            localIds = base.localIds;
+            citiesShared = true;
+            modeIds.putAll(base.modeIds);
+            modeNames.addAll(base.modeNames);
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            departureCities = new int[capacity];
+            arrivalCities = new int[capacity];
+            modes = new byte[capacity];
+            departureMinutes = new int[capacity];
+            durations = new int[capacity];
+            prices = new int[capacity];
+        }
+
+        /**
+         * Continues the connections of a catalog, with room for the given number of new ones:
+         * they are appended to its columns when no other catalog did, to copies otherwise.
+         */
+        void extend(TransportCatalog base, int count) {
+            size = base.idCount;
+            if (base.trips.reserve(size, count)) {
+                trips = base.trips;
+                departureCities = trips.departureCities;
+                arrivalCities = trips.arrivalCities;
+                modes = trips.modes;
+                departureMinutes = trips.departureMinutes;
+                durations = trips.durations;
+                prices = trips.prices;
+            } else {
+                int capacity = size + count + (size >> 2) + 16;
+                departureCities = Arrays.copyOf(base.departureCities, capacity);
+                arrivalCities = Arrays.copyOf(base.arrivalCities, capacity);
+                modes = Arrays.copyOf(base.modes, capacity);
+                departureMinutes = Arrays.copyOf(base.departureMinutes, capacity);
+                durations = Arrays.copyOf(base.durations, capacity);
+                prices = Arrays.copyOf(base.priceCents, capacity);
+            }
+        }
+
+        /**
+         * @return the local id of a city, registering it if needed
+         */
+        int city(CityRegistry cities, String name) {
+            int id = cities.register(name);
+            if (id < localIds.length && localIds[id] >= 0) {
+                return localIds[id];
+            }
+            if (citiesShared) {
+                cityNames = cityNames.clone();
+                localIds = localIds.clone();
+                citiesShared = false;
+            }
+            if (id >= localIds.length) {
+                int previous = localIds.length;
+                localIds = Arrays.copyOf(localIds, Math.max(id + 1, 2 * previous));
+                Arrays.fill(localIds, previous, localIds.length, -1);
+            }
+            if (cityCount == cityNames.length) {
+                cityNames = Arrays.copyOf(cityNames, cityCount * 2);
+            }
+            cityNames[cityCount] = name;
+            localIds[id] = cityCount;
+            return cityCount++;
+        }
+
+        void add(Transport t, CityRegistry cities) {
+            int departure = toEpochMinute(t.getDepartureDateTime());
+            add(city(cities, t.getDepartureCity()), city(cities, t.getArrivalCity()),
+                registerMode(modeIds, modeNames, t.getMode()), departure,
+                toEpochMinute(t.getArrivalDateTime()) - departure, toCents(t.getPrice()));
+        }
+
+        void add(int from, int to, byte mode, int departureMinute, int duration, int price) {
+            if (size == modes.length) {
+                int capacity = Math.max(8, size * 2);
+                departureCities = Arrays.copyOf(departureCities, capacity);
+                arrivalCities = Arrays.copyOf(arrivalCities, capacity);
+                modes = Arrays.copyOf(modes, capacity);
+                departureMinutes = Arrays.copyOf(departureMinutes, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+            }
+            departureCities[size] = from;
+            arrivalCities[size] = to;
+            modes[size] = mode;
+            departureMinutes[size] = departureMinute;
+            durations[size] = duration;
+            prices[size] = price;
+            size++;
+        }
+    }
+
+    /**
+     * Builds a catalog from connections added one at a time in any order, without creating
+     * {@link Transport} objects (used by importers of other formats).
+     */
+    static final class Builder {
+        private final CityRegistry cities;
+        private final Columns columns = new Columns(1024);
+
+        Builder(CityRegistry cities) {
+            this.cities = cities;
+        }
+
+        /**
+         * @return the id of a city in the catalog, registering it if needed
+         */
+        int city(String name) {
+            return columns.city(cities, name);
+        }
+
+        /**
+         * @return the id of a mode, registering it if needed
+         */
+        int mode(String name) {
+            return registerMode(columns.modeIds, columns.modeNames, name);
+        }
+
+        /**
+         * @param departureCity a city id returned by {@link #city(String)}
+         * @param arrivalCity a city id returned by {@link #city(String)}
+         * @param mode a mode id returned by {@link #mode(String)}
+         */
+        void add(int departureCity, int arrivalCity, int mode, int departureMinute, int arrivalMinute, int priceCents) {
+            columns.add(departureCity, arrivalCity, (byte) mode, departureMinute, arrivalMinute - departureMinute,
+                priceCents);
+        }
+
+        /**
+         * @return the catalog; connections with the same departure minute keep the order in which they were added
+         */
+        TransportCatalog build() {
+            int n = columns.size;
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = ((long) columns.departureMinutes[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            Columns sorted = new Columns(n);
+            sorted.cityNames = columns.cityNames;
+            sorted.cityCount = columns.cityCount;
+            sorted.localIds = columns.localIds;
+            sorted.modeIds.putAll(columns.modeIds);
+            sorted.modeNames.addAll(columns.modeNames);
+            for (long key : order) {
+                int i = (int) key;
+                sorted.add(columns.departureCities[i], columns.arrivalCities[i], columns.modes[i],
+                    columns.departureMinutes[i], columns.durations[i], columns.prices[i]);
+            }
+            return new TransportCatalog(cities, sorted);
+        }
+    }
+
+    TransportCatalog(List<Transport> transports) {
+        this(transports, CityRegistry.shared());
+    }
+
+    TransportCatalog(List<Transport> transports, CityRegistry cities) {
+        this(cities, columnsOf(transports, cities));
+    }
+
+    private static Columns columnsOf(List<Transport> transports, CityRegistry cities) {
+        List<Transport> rows = new ArrayList<>();
+        if (transports != null) {
+            for (Transport t : transports) {
+                if (isComplete(t)) {
+                    rows.add(t);
+                }
+            }
+        }
+        rows.sort(Comparator.comparing(Transport::getDepartureDateTime)); // stable: file order on ties
+        Columns columns = new Columns(rows.size());
+        for (Transport t : rows) {
+            columns.add(t, cities);
+        }
+        return columns;
+    }
+
+    /**
+     * Catalog of columns already in departure order, ids being positions.
+     */
+    private TransportCatalog(CityRegistry cities, Columns columns) {
+        this(cities, columns, positions(columns.size));
+    }
+
+    private TransportCatalog(CityRegistry cities, Columns columns, int[] order) {
+        this(cities, columns, order, groupByDepartureCity(columns, order));
+    }
+
+    private TransportCatalog(CityRegistry cities, Columns columns, int[] order, CityDepartures[] departuresByCity) {
+        this.cities = cities;
+        this.cityNames = columns.citiesShared ? columns.cityNames : Arrays.copyOf(columns.cityNames, columns.cityCount);
+        this.cityCount = columns.cityCount;
+        this.localIds = columns.localIds;
+        this.modeIds.putAll(columns.modeIds);
+        this.modeNames.addAll(columns.modeNames);
+        this.trips = columns.trips != null ? columns.trips : new Trips(columns);
+        this.idCount = columns.size;
+        this.departureCities = trips.departureCities;
+        this.arrivalCities = trips.arrivalCities;
+        this.modes = trips.modes;
+        this.departureMinutes = trips.departureMinutes;
+        this.durations = trips.durations;
+        this.priceCents = trips.prices;
+        this.order = order;
+        this.departuresByCity = departuresByCity;
+    }
+
+    private static int[] positions(int size) {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    private static CityDepartures[] groupByDepartureCity(Columns columns, int[] order) {
+        int[] counts = new int[columns.cityCount];
+        for (int i : order) {
+            counts[columns.departureCities[i]]++;
+        }
+        int[][] groups = new int[columns.cityCount][];
+        for (int c = 0; c < groups.length; c++) {
+            groups[c] = counts[c] == 0 ? NO_DEPARTURES : new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i : order) {
+            int city = columns.departureCities[i];
+            groups[city][counts[city]++] = i;
+        }
+        CityDepartures[] departures = new CityDepartures[groups.length];
+        for (int c = 0; c < groups.length; c++) {
+            departures[c] = CityDepartures.of(groups[c], columns);
+        }
+        return departures;
+    }
+
+    /**
+     * Rows without cities or dates cannot be matched by any query.
+     */
+    private static boolean isComplete(Transport t) {
+        return t != null && t.getDepartureCity() != null && t.getArrivalCity() != null
+            && t.getDepartureDateTime() != null && t.getArrivalDateTime() != null
+            && t.getMode() != null;
+    }
+
+    /**
+     * @return the id of a mode, registering it (with the spelling of its first transport) if needed
+     */
+    private static byte registerMode(Map<String, Integer> modeIds, List<String> modeNames, String mode) {
+        String key = normalizeMode(mode);
+        Integer id = modeIds.get(key);
+        if (id == null) {
+            if (modeNames.size() > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many transport modes");
+            }
+            id = modeNames.size();
+            modeIds.put(key, id);
+            modeNames.add(mode);
+        }
+        return (byte) (int) id;
+    }
+
+    /**
+     * Minutes since 1970-01-01T00:00 (timetable times are local, so no zone is applied).
+     */
+    static int toEpochMinute(LocalDateTime dateTime) {
+        return (int) Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    static LocalDateTime fromEpochMinute(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    static int toCents(double price) {
+        return Math.toIntExact(Math.round(price * 100));
+    }
+
+    /**
+     * Returns a new catalog with a batch of changes applied in order (see {@link TransportChange}
+     * for how transports are matched; times are compared to the minute); this catalog is not
+     * modified, so readers holding it are never blocked nor see a half-applied batch.
+     * Changes with an incomplete transport are ignored.
+     *
+     * Nothing is parsed or sorted again and the connections keep their ids: inserted
+     * transports get the next ids, in departure order, and are appended to the shared
+     * columns. The departures and direct index of a city are copied on write: only the
+     * cities with a changed departure are rebuilt, every other one is shared with this
+     * catalog. The departure
+     * order of the connection scan is merged with one array copy per run of unchanged
+     * connections. Removed connections leave unused ids behind; once they outnumber the
+     * current connections, the ids are renumbered.
+     */
+    TransportCatalog withChanges(List<TransportChange> changes) {
+        Set<Integer> removed = new HashSet<>();
+        List<Transport> added = new ArrayList<>();
+        boolean changed = false;
+        for (TransportChange change : changes) {
+            if (change == null || change.getOperation() == null || !isComplete(change.getTransport())) {
+                continue;
+            }
+            Transport t = change.getTransport();
+            switch (change.getOperation()) {
+                case INSERT:
+                    added.add(t);
+                    break;
+                case UPDATE:
+                    removeMatching(t, removed, added);
+                    added.add(t);
+                    break;
+                case DELETE:
+                    removeMatching(t, removed, added);
+                    break;
+                default:
+                    break;
+            }
+            changed = true;
+        }
+        if (!changed) {
+            return this;
+        }
+        added.sort(Comparator.comparing(Transport::getDepartureDateTime)); // stable: change order on ties
+
+        Columns next = new Columns(this, 0);
+        next.extend(this, added.size());
+        Map<Integer, List<Integer>> insertedByCity = new HashMap<>();
+        int[] insertedPositions = new int[added.size()];
+        for (int a = 0; a < added.size(); a++) {
+            Transport t = added.get(a);
+            next.add(t, cities);
+            // After the connections of the same minute, as a full load would place it
+            insertedPositions[a] = firstConnectionAtOrAfter(toEpochMinute(t.getDepartureDateTime()) + 1);
+            int id = next.size - 1;
+            insertedByCity.computeIfAbsent(next.departureCities[id], c -> new ArrayList<>()).add(id);
+        }
+        int[] removedPositions = new int[removed.size()];
+        int r = 0;
+        for (int i : removed) {
+            removedPositions[r++] = positionOf(i);
+        }
+        Arrays.sort(removedPositions);
+        int[] nextOrder = mergeOrder(removedPositions, insertedPositions, idCount);
+
+        Set<Integer> changedCities = new HashSet<>(insertedByCity.keySet());
+        for (int i : removed) {
+            changedCities.add(departureCityId(i));
+        }
+        CityDepartures[] byCity = Arrays.copyOf(departuresByCity, next.cityCount);
+        for (int c = departuresByCity.length; c < byCity.length; c++) {
+            byCity[c] = NO_CITY_DEPARTURES;
+        }
+        for (int city : changedCities) {
+            int[] merged = mergeDepartures(byCity[city].connections, removed,
+                insertedByCity.getOrDefault(city, List.of()), next.departureMinutes);
+            byCity[city] = CityDepartures.of(merged, next);
+        }
+        TransportCatalog catalog = new TransportCatalog(cities, next, nextOrder, byCity);
+        return catalog.idCount - nextOrder.length > nextOrder.length ? catalog.renumbered() : catalog;
+    }
+
+    /**
+     * Copy of this catalog whose ids are the positions of its connections, dropping unused ids.
+     */
+    private TransportCatalog renumbered() {
+        Columns columns = new Columns(this, order.length);
+        for (int i : order) {
+            columns.add(departureCities[i], arrivalCities[i], modes[i], departureMinutes[i], durations[i],
+                priceCents[i]);
+        }
+        return new TransportCatalog(cities, columns);
+    }
+
+    /**
+     * Marks the connections with the same identity as a transport as removed, and drops
+     * the matching transports inserted earlier in the same batch.
+     */
+    private void removeMatching(Transport t, Set<Integer> removed, List<Transport> added) {
+        added.removeIf(other -> sameIdentity(other, t));
+        int from = cityId(t.getDepartureCity());
+        int to = cityId(t.getArrivalCity());
+        int mode = modeId(t.getMode());
+        if (from < 0 || to < 0 || mode < 0) {
+            return;
+        }
+        int minute = toEpochMinute(t.getDepartureDateTime());
+        for (int p = firstConnectionAtOrAfter(minute); p < order.length && departureMinutes[order[p]] == minute; p++) {
+            int i = order[p];
+            if (departureCityId(i) == from && arrivalCityId(i) == to && modeIdOf(i) == mode) {
+                removed.add(i);
+            }
+        }
+    }
+
+    private static boolean sameIdentity(Transport a, Transport b) {
+        return toEpochMinute(a.getDepartureDateTime()) == toEpochMinute(b.getDepartureDateTime())
+            && normalizeMode(a.getMode()).equals(normalizeMode(b.getMode()))
+            && CityRegistry.sameCity(a.getDepartureCity(), b.getDepartureCity())
+            && CityRegistry.sameCity(a.getArrivalCity(), b.getArrivalCity());
+    }
+
+    /**
+     * @return the position of a current connection in departure order
+     */
+    private int positionOf(int id) {
+        int minute = departureMinutes[id];
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int other = order[mid];
+            if (departureMinutes[other] < minute || (departureMinutes[other] == minute && other < id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Departure order without the connections at the removed positions, with the inserted
+     * connections (consecutive ids from the first one) before the given positions.
+     */
+    private int[] mergeOrder(int[] removedPositions, int[] insertedPositions, int firstInsertedId) {
+        int[] merged = new int[order.length - removedPositions.length + insertedPositions.length];
+        int source = 0;
+        int target = 0;
+        int r = 0;
+        int a = 0;
+        while (source < order.length || a < insertedPositions.length) {
+            if (a < insertedPositions.length && insertedPositions[a] <= source) {
+                merged[target++] = firstInsertedId + a++;
+            } else if (r < removedPositions.length && removedPositions[r] == source) {
+                source++;
+                r++;
+            } else {
+                int end = Math.min(r < removedPositions.length ? removedPositions[r] : order.length,
+                    a < insertedPositions.length ? insertedPositions[a] : order.length);
+                System.arraycopy(order, source, merged, target, end - source);
+                target += end - source;
+                source = end;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Departures of a city without the removed connections, with the inserted ones (in
+     * departure order, after the kept ones of the same minute).
+     */
+    private static int[] mergeDepartures(int[] kept, Set<Integer> removed, List<Integer> inserted,
+                                         int[] departureMinutes) {
+        int[] merged = new int[kept.length + inserted.size()];
+        int n = 0;
+        int a = 0;
+        for (int i : kept) {
+            if (removed.contains(i)) {
+                continue;
+            }
+            while (a < inserted.size() && departureMinutes[inserted.get(a)] < departureMinutes[i]) {
+                merged[n++] = inserted.get(a++);
+            }
+            merged[n++] = i;
+        }
+        while (a < inserted.size()) {
+            merged[n++] = inserted.get(a++);
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Key of a bucket of the direct index of a city: arrival city id and departure day (days since 1970-01-01).
+     */
+    private static long directKey(int arrivalCity, int epochDay) {
+        return ((long) arrivalCity << 32) | (epochDay & 0xFFFFFFFFL);
+    }
+
+    static String normalizeMode(String mode) {
+        return mode.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Loads a catalog from a classpath resource.
+     * Returns an empty catalog if the resource is missing or cannot be parsed.
+     */
+    static TransportCatalog fromResource(String resourcePath, CityRegistry cities) {
+        try (InputStream is = CatalogReader.openResource(resourcePath)) {
+            if (is == null) {
+                return new TransportCatalog(null, cities);
+            }
+            return read(new InputStreamReader(is, StandardCharsets.UTF_8), cities);
+        } catch (Exception e) {
+            return new TransportCatalog(null, cities);
+        }
+    }
+
+    /**
+     * Streams a JSON array of transports into a catalog; the reader is closed.
+     */
+    static TransportCatalog read(Reader reader, CityRegistry cities) throws IOException {
+        List<Transport> rows = new ArrayList<>();
+        try (CatalogReader catalogReader = new CatalogReader(reader)) {
+            catalogReader.forEachTransport(rows::add);
+        }
+        return new TransportCatalog(rows, cities);
+    }
+
+    /**
+     * Direct transports from one city to another leaving on a given day.
+     *
+     * @param mode the transport mode, or null for all modes
+     * @return matching transports in departure order (may be empty)
+     */
+    List<Transport> findDirect(String departureCity, String arrivalCity, LocalDate date, String mode) {
+        List<Transport> result = new ArrayList<>();
+        int from = cityId(departureCity);
+        int to = cityId(arrivalCity);
+        int modeFilter = mode == null ? -1 : modeId(mode);
+        if (from < 0 || to < 0 || (mode != null && modeFilter < 0)) {
+            return result;
+        }
+        int[] bucket = departuresByCity[from].direct.get(directKey(to, (int) date.toEpochDay()));
+        if (bucket == null) {
+            return result;
+        }
+        for (int i : bucket) {
+            if (modeFilter < 0 || modeIdOf(i) == modeFilter) {
+                result.add(connection(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Direct transports matching a partially specified query (any null criterion matches
+     * everything). Cities and modes are compared by id; a date restricts the scan to the
+     * connections of that day.
+     *
+     * @return matching transports in departure order
+     */
+    List<Transport> scanDirect(String departureCity, String arrivalCity, LocalDate date, String mode) {
+        int from = departureCity == null ? -1 : cityId(departureCity);
+        int to = arrivalCity == null ? -1 : cityId(arrivalCity);
+        int modeFilter = mode == null ? -1 : modeId(mode);
+        List<Transport> result = new ArrayList<>();
+        if ((departureCity != null && from < 0) || (arrivalCity != null && to < 0) || (mode != null && modeFilter < 0)) {
+            return result;
+        }
+        int first = 0;
+        int end = order.length;
+        if (date != null) {
+            int dayStart = toEpochMinute(date.atStartOfDay());
+            first = firstConnectionAtOrAfter(dayStart);
+            end = firstConnectionAtOrAfter(dayStart + MINUTES_PER_DAY);
+        }
+        for (int p = first; p < end; p++) {
+            int i = order[p];
+            if ((from < 0 || departureCityId(i) == from)
+                    && (to < 0 || arrivalCityId(i) == to)
+                    && (modeFilter < 0 || modeIdOf(i) == modeFilter)) {
+                result.add(connection(i));
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return order.length;
+    }
+
+    /**
+     * @return the id of a city, or -1 if no transport serves it
+     */
+    @Override
+    public int cityId(String city) {
+        int id = cities.find(city);
+        return id < 0 || id >= localIds.length ? -1 : localIds[id];
+    }
+
+    /**
+     * @return the number of cities of the catalog; city ids go from 0 to this number - 1
+     */
+    @Override
+    public int cityCount() {
+        return cityCount;
+    }
+
+    /**
+     * @return the name of a city of the catalog, as spelled by its first transport
+     */
+    String cityName(int cityId) {
+        return cityNames[cityId];
+    }
+
+    /**
+     * @return the id of a mode, or -1 if no transport uses it
+     */
+    @Override
+    public int modeId(String mode) {
+        Integer id = mode == null ? null : modeIds.get(normalizeMode(mode));
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public int modeCount() {
+        return modeNames.size();
+    }
+
+    /**
+     * Position of the first connection departing at or after the given epoch minute.
+     */
+    @Override
+    public int firstConnectionAtOrAfter(int epochMinute) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureMinutes[order[mid]] < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return ids of the connections leaving a city, in departure order (do not modify)
+     */
+    int[] departuresFrom(int cityId) {
+        return cityId >= 0 && cityId < departuresByCity.length ? departuresByCity[cityId].connections : NO_DEPARTURES;
+    }
+
+    /**
+     * Position, in {@link #departuresFrom(int)}, of the first connection leaving a city at
+     * or after the given epoch minute. The connections from that position on are the only
+     * ones a journey arriving before that minute can still take.
+     *
+     * @return a position between 0 and the number of departures of the city
+     */
+    int firstDepartureAtOrAfter(int cityId, int epochMinute) {
+        if (cityId < 0 || cityId >= departuresByCity.length) {
+            return 0;
+        }
+        int[] minutes = departuresByCity[cityId].minutes;
+        int low = 0;
+        int high = minutes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (minutes[mid] < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int connectionCount() {
+        return order.length;
+    }
+
+    @Override
+    public int connectionAt(int position) {
+        return order[position];
+    }
+
+    @Override
+    public Transport connection(int i) {
+        return new Transport(cityName(departureCities[i]), cityName(arrivalCities[i]),
+            fromEpochMinute(departureMinutes[i]), fromEpochMinute(departureMinutes[i] + durations[i]),
+            modeNames.get(modes[i]), priceCents[i] / 100.0);
+    }
+
+    @Override
+    public int departureCityId(int i) {
+        return departureCities[i];
+    }
+
+    @Override
+    public int arrivalCityId(int i) {
+        return arrivalCities[i];
+    }
+
+    @Override
+    public int modeIdOf(int i) {
+        return modes[i];
+    }
+
+    @Override
+    public int departureMinute(int i) {
+        return departureMinutes[i];
+    }
+
+    @Override
+    public int arrivalMinute(int i) {
+        return departureMinutes[i] + durations[i];
+    }
+
+    @Override
+    public int priceCents(int i) {
+        return priceCents[i];
+    }
+}
@@ -0,0 +1,108 @@
+package fr.univ.holitrip.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry mapping city names to dense int ids.
+ *
+ * Names are normalized (trimmed, lower case) so "Paris", "paris" and " PARIS " share
+ * the same id. Catalogs register their cities once when they load, then store and
+ * compare ids instead of calling {@code equalsIgnoreCase} in their filters. Lookups are
+ * lock-free; registering a new city is synchronized.
+ */
+public final class CityRegistry {
+    private static final CityRegistry SHARED = new CityRegistry();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    /**
+     * @return the registry shared by the services that are not given their own one
+     */
+    public static CityRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Normalizes a city name for comparisons.
+     *
+     * @return the trimmed lower-case name, or null if the name is null
+     */
+    public static String normalize(String city) {
+        return city == null ? null : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Case-insensitive city comparison (two null names are not the same city).
+     */
+    public static boolean sameCity(String a, String b) {
+        return a != null && b != null && normalize(a).equals(normalize(b));
+    }
+
+    /**
+     * Returns the id of a city, registering it if needed.
+     *
+     * @return the city id, or -1 if the name is null
+     */
+    public int register(String city) {
+        String key = normalize(city);
+        if (key == null) {
+            return -1;
+        }
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            String[] current = names;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[newId] = city.trim();
+            names = current;
+            size = newId + 1;
+            ids.put(key, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Returns the id of a city without registering it.
+     *
+     * @return the city id, or -1 if the city is unknown or the name is null
+     */
+    public int find(String city) {
+        String key = normalize(city);
+        if (key == null) {
+            return -1;
+        }
+        Integer id = ids.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the name of a city as it was first registered
+     */
+    public String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown city id: " + id);
+        }
+        return names[id];
+    }
+
+    /**
+     * @return the number of registered cities (ids go from 0 to size - 1)
+     */
+    public int size() {
+        return size;
+    }
+}
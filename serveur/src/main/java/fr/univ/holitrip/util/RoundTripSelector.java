@@ -0,0 +1,207 @@
+package fr.univ.holitrip.util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+
+/**
+ * Utility class choosing the outbound and return journeys of a package together.
+ *
+ * Choosing each direction on its own can pick an outbound journey arriving after the best
+ * return journey leaves, or a pair too expensive for the budget, although another pair
+ * would fit. Here every pair is considered under the priority:
+ *   - "PRICE": lowest total price, then shortest total duration
+ *   - "DURATION"/"TIME": shortest total duration, then lowest total price
+ *   - otherwise: the first pair that fits, in the order of the candidates
+ *
+ * Both lists are sorted by the priority, so the value of a journey plus the best value of
+ * the other direction is a lower bound of every pair it belongs to: the search stops as
+ * soon as this bound cannot beat the best pair found. The same is done with prices for
+ * the budget.
+ */
+public final class RoundTripSelector {
+
+    private RoundTripSelector() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * An outbound journey and the return journey chosen with it.
+     */
+    public static final class RoundTrip {
+        private final Trip outbound;
+        private final Trip inbound;
+
+        RoundTrip(Trip outbound, Trip inbound) {
+            this.outbound = outbound;
+            this.inbound = inbound;
+        }
+
+        public Trip getOutbound() {
+            return outbound;
+        }
+
+        public Trip getReturn() {
+            return inbound;
+        }
+
+        public double getTotalPrice() {
+            return outbound.getTotalPrice() + inbound.getTotalPrice();
+        }
+
+        @Override
+        public String toString() {
+            return "RoundTrip{outbound=" + outbound + ", return=" + inbound + "}";
+        }
+    }
+
+    /**
+     * Select the best pair of journeys whose outbound arrives before the return leaves.
+     *
+     * The outbound journey must use the preferred mode. The return journey uses it if such a
+     * pair exists, otherwise any mode. Pairs within maxPrice come first; if none fits, the
+     * best pair over it is returned.
+     *
+     * @param outboundJourneys Candidate journeys to the destination
+     * @param returnJourneys Candidate journeys back from the destination
+     * @param preferredMode Transport mode (e.g., "TRAIN", "PLANE"), or null for any
+     * @param priority Selection priority: "PRICE" for cheapest, "DURATION"/"TIME" for fastest
+     * @param maxPrice Maximum total price of the two journeys (Double.POSITIVE_INFINITY for no limit)
+     * @return Best pair, or null if no return journey can follow an outbound journey
+     */
+    public static RoundTrip selectBestRoundTrip(List<Trip> outboundJourneys, List<Trip> returnJourneys,
+                                                String preferredMode, String priority, double maxPrice) {
+        List<Trip> outbound = usable(outboundJourneys, preferredMode);
+        if (outbound.isEmpty()) {
+            return null;
+        }
+        boolean withMode = preferredMode != null && !preferredMode.isBlank();
+        List<Trip> preferredReturns = usable(returnJourneys, preferredMode);
+        List<Trip> anyReturns = withMode ? usable(returnJourneys, null) : preferredReturns;
+
+        boolean ranked = "PRICE".equalsIgnoreCase(priority) || TransportHelper.isDurationPriority(priority);
+        if (ranked) {
+            Comparator<Trip> order = TransportHelper.journeyComparator(priority);
+            outbound.sort(order);
+            preferredReturns.sort(order);
+            if (anyReturns != preferredReturns) {
+                anyReturns.sort(order);
+            }
+        }
+
+        double[] budgets = maxPrice < Double.POSITIVE_INFINITY
+            ? new double[] {maxPrice, Double.POSITIVE_INFINITY}
+            : new double[] {Double.POSITIVE_INFINITY};
+        for (double budget : budgets) {
+            for (List<Trip> returns : withMode ? List.of(preferredReturns, anyReturns) : List.of(anyReturns)) {
+                RoundTrip best = ranked
+                    ? bestPair(outbound, returns, TransportHelper.isDurationPriority(priority), budget)
+                    : firstPair(outbound, returns, budget);
+                if (best != null) {
+                    return best;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Trip> usable(List<Trip> trips, String preferredMode) {
+        if (trips == null) {
+            return new ArrayList<>();
+        }
+        return trips.stream()
+                .filter(trip -> trip != null && trip.getTransports() != null && !trip.getTransports().isEmpty())
+                .filter(trip -> TransportHelper.validateTransportMode(trip.getTransports(), preferredMode))
+                .collect(Collectors.toList());
+    }
+
+    private static RoundTrip firstPair(List<Trip> outbound, List<Trip> returns, double maxPrice) {
+        for (Trip out : outbound) {
+            for (Trip back : returns) {
+                if (out.getTotalPrice() + back.getTotalPrice() <= maxPrice && connects(out, back)) {
+                    return new RoundTrip(out, back);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Best pair of two lists sorted by the priority, pruned with lower bounds.
+     */
+    private static RoundTrip bestPair(List<Trip> outbound, List<Trip> returns, boolean byDuration, double maxPrice) {
+        if (returns.isEmpty()) {
+            return null;
+        }
+        double cheapestReturn = returns.stream().mapToDouble(Trip::getTotalPrice).min().orElse(0.0);
+        double bestReturnKey = key(returns.get(0), byDuration);
+
+        RoundTrip best = null;
+        double bestKey = Double.POSITIVE_INFINITY;
+        double bestTieBreak = Double.POSITIVE_INFINITY;
+        int bestLegs = Integer.MAX_VALUE;
+        for (Trip out : outbound) {
+            double outKey = key(out, byDuration);
+            if (outKey + bestReturnKey > bestKey) {
+                break; // later outbound journeys are no better
+            }
+            if (out.getTotalPrice() + cheapestReturn > maxPrice) {
+                continue;
+            }
+            for (Trip back : returns) {
+                double pairKey = outKey + key(back, byDuration);
+                if (pairKey > bestKey) {
+                    break; // later return journeys are no better
+                }
+                if (out.getTotalPrice() + back.getTotalPrice() > maxPrice || !connects(out, back)) {
+                    continue;
+                }
+                double tieBreak = key(out, !byDuration) + key(back, !byDuration);
+                int legs = out.getTransports().size() + back.getTransports().size();
+                if (pairKey < bestKey
+                        || (pairKey == bestKey && (tieBreak < bestTieBreak
+                            || (tieBreak == bestTieBreak && legs < bestLegs)))) {
+                    best = new RoundTrip(out, back);
+                    bestKey = pairKey;
+                    bestTieBreak = tieBreak;
+                    bestLegs = legs;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double key(Trip trip, boolean byDuration) {
+        if (!byDuration) {
+            return trip.getTotalPrice();
+        }
+        long minutes = TransportHelper.journeyDurationMinutes(trip);
+        return minutes == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : minutes;
+    }
+
+    /**
+     * Whether the outbound journey arrives before the return journey leaves (true when a
+     * date is missing).
+     */
+    static boolean connects(Trip outbound, Trip inbound) {
+        LocalDateTime lastArrival = outbound.getTransports().stream()
+                .filter(Objects::nonNull)
+                .map(Transport::getArrivalDateTime)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        LocalDateTime firstDeparture = inbound.getTransports().stream()
+                .filter(Objects::nonNull)
+                .map(Transport::getDepartureDateTime)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        return lastArrival == null || firstDeparture == null || lastArrival.isBefore(firstDeparture);
+    }
+}
@@ -1,10 +1,12 @@
 package fr.univ.holitrip.util;
 
+import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
 
 /**
  * Utility class providing helper methods for transport selection and validation.
@@ -16,7 +18,8 @@ public class TransportHelper {
     }
 
     /**
-     * Calculate the duration of a transport in minutes.
+     * Calculate the duration of a transport in minutes (no object is allocated, so it can be
+     * called from comparators).
      * Returns Long.MAX_VALUE if dates are missing or invalid.
      */
     public static long transportDurationMinutes(Transport t) {
@@ -24,16 +27,32 @@ public class TransportHelper {
             return Long.MAX_VALUE;
         }
         try {
-            return java.time.Duration.between(t.getDepartureDateTime(), t.getArrivalDateTime()).toMinutes();
+            return t.getDepartureDateTime().until(t.getArrivalDateTime(), ChronoUnit.MINUTES);
         } catch (Exception e) {
             return Long.MAX_VALUE;
         }
     }
 
+    /**
+     * Calculate the duration of a journey in minutes, from the first departure to the last arrival.
+     * Returns Long.MAX_VALUE if the trip is empty or dates are missing.
+     */
+    public static long journeyDurationMinutes(Trip trip) {
+        if (trip == null || trip.getTransports() == null || trip.getTransports().isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        Transport first = trip.getTransports().get(0);
+        Transport last = trip.getTransports().get(trip.getTransports().size() - 1);
+        if (first == null || last == null || first.getDepartureDateTime() == null || last.getArrivalDateTime() == null) {
+            return Long.MAX_VALUE;
+        }
+        return first.getDepartureDateTime().until(last.getArrivalDateTime(), ChronoUnit.MINUTES);
+    }
+
     /**
      * Check if a list of transports represents a multi-leg journey.
      * A multi-leg journey has at least 2 transports where each arrival city
-     * matches the next departure city.
+     * matches the next departure city (case-insensitive, like every city comparison).
      */
     public static boolean isMultiLeg(List<Transport> transports) {
         if (transports == null || transports.size() < 2) {
@@ -47,7 +66,7 @@ public class TransportHelper {
             if (current == null || next == null) {
                 return false;
             }
-            if (current.getArrivalCity() == null || !current.getArrivalCity().equals(next.getDepartureCity())) {
+            if (!CityRegistry.sameCity(current.getArrivalCity(), next.getDepartureCity())) {
                 return false;
             }
         }
@@ -123,4 +142,59 @@ public class TransportHelper {
         }
         return candidates.get(0);
     }
+
+    /**
+     * Select the best journey from a list of candidate trips based on mode filter and priority.
+     * A trip matches the preferred mode only if all of its legs use that mode.
+     *
+     * @param trips List of candidate journeys
+     * @param preferredMode Transport mode to filter by (e.g., "TRAIN", "PLANE"), or null
+     * @param priority Selection priority: "PRICE" for cheapest, "DURATION"/"TIME" for fastest
+     * @return Best matching trip, or null if none found
+     */
+    public static Trip selectBestJourney(List<Trip> trips, String preferredMode, String priority) {
+        if (trips == null || trips.isEmpty()) {
+            return null;
+        }
+        List<Trip> candidates = trips.stream()
+                .filter(trip -> trip != null && trip.getTransports() != null && !trip.getTransports().isEmpty())
+                .filter(trip -> preferredMode == null || preferredMode.isBlank()
+                        || validateTransportMode(trip.getTransports(), preferredMode))
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        if ("PRICE".equalsIgnoreCase(priority) || isDurationPriority(priority)) {
+            return candidates.stream()
+                    .min(journeyComparator(priority))
+                    .orElse(candidates.get(0));
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * Whether a priority asks for the fastest option ("DURATION" or "TIME").
+     */
+    public static boolean isDurationPriority(String priority) {
+        return "DURATION".equalsIgnoreCase(priority) || "TIME".equalsIgnoreCase(priority);
+    }
+
+    /**
+     * Order of journeys for a priority: by duration, then price, then number of legs for
+     * "DURATION"/"TIME"; by price, then duration, then number of legs otherwise.
+     *
+     * @param priority Selection priority
+     * @return Comparator putting the best journey first
+     */
+    public static Comparator<Trip> journeyComparator(String priority) {
+        if (isDurationPriority(priority)) {
+            return Comparator.comparingLong(TransportHelper::journeyDurationMinutes)
+                    .thenComparingDouble(Trip::getTotalPrice)
+                    .thenComparingInt(trip -> trip.getTransports().size());
+        }
+        return Comparator.comparingDouble(Trip::getTotalPrice)
+                .thenComparingLong(TransportHelper::journeyDurationMinutes)
+                .thenComparingInt(trip -> trip.getTransports().size());
+    }
 }
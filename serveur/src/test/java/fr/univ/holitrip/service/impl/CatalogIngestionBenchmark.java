@@ -0,0 +1,103 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.reflect.TypeToken;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.testhelpers.data.SyntheticTimetable;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Time and allocation to load a large transport file: streaming reader against Gson data
+ * binding of the whole list, and opening the same timetable converted to the mapped
+ * binary format. With the default parameters the JSON file is about 300 MB.
+ *
+ * mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark=CatalogIngestionBenchmark -Dbenchmark.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CatalogIngestionBenchmark {
+    @Param({"2000"})
+    public int cities;
+
+    @Param({"100"})
+    public int departuresPerCityPerDay;
+
+    @Param({"10"})
+    public int days;
+
+    private Path file;
+    private Path binaryFile;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("transports", ".json");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            SyntheticTimetable.writeJson(out, cities, 10, days, departuresPerCityPerDay, 42L);
+        }
+        binaryFile = Files.createTempFile("transports", ".bin");
+        try (InputStream json = Files.newInputStream(file)) {
+            BinaryTimetableConverter.convert(json, binaryFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Benchmark
+    public int streamingReader() throws IOException {
+        Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return TransportCatalog.read(reader, new CityRegistry()).size();
+    }
+
+    @Benchmark
+    public int gsonDataBinding() throws IOException {
+        Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class,
+                (JsonDeserializer<LocalDateTime>) (json, type, context) -> LocalDateTime.parse(json.getAsString()))
+            .create();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<Transport> transports = gson.fromJson(reader, new TypeToken<List<Transport>>() {}.getType());
+            return new TransportCatalog(transports, new CityRegistry()).size();
+        }
+    }
+
+    @Benchmark
+    public int mappedBinaryOpen() throws IOException {
+        return BinaryTimetable.open(binaryFile).connectionCount();
+    }
+}
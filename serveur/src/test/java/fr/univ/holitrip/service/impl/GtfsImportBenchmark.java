@@ -0,0 +1,99 @@
+package fr.univ.holitrip.service.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.univ.holitrip.testhelpers.data.SyntheticGtfsFeed;
+import fr.univ.holitrip.testhelpers.data.SyntheticTimetable;
+import fr.univ.holitrip.util.CityRegistry;
+
+/**
+ * Time and allocation to build the catalog of a large GTFS feed (stop times streamed one
+ * trip at a time, calendars expanded per date) against the streaming JSON reader on the
+ * same connections written as a JSON file. With the default parameters the feed has
+ * 96,000 stop times and the catalog about 1.5 million connections.
+ *
+ * mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark=GtfsImportBenchmark -Dbenchmark.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class GtfsImportBenchmark {
+    @Param({"2000"})
+    public int cities;
+
+    @Param({"300"})
+    public int lines;
+
+    @Param({"8"})
+    public int stopsPerLine;
+
+    @Param({"40"})
+    public int tripsPerLine;
+
+    @Param({"7"})
+    public int days;
+
+    private Path feed;
+    private Path jsonFile;
+    private LocalDate lastDate;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        feed = Files.createTempDirectory("gtfs");
+        SyntheticGtfsFeed.write(feed, cities, lines, stopsPerLine, tripsPerLine, days, 42L);
+        lastDate = SyntheticTimetable.FIRST_DAY.plusDays(days - 1L);
+        TransportCatalog catalog = GtfsFeed.read(feed).catalog(SyntheticTimetable.FIRST_DAY, lastDate,
+            new CityRegistry());
+        jsonFile = Files.createTempFile("transports", ".json");
+        try (Writer out = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+            SyntheticTimetable.writeJson(out, catalog.scanDirect(null, null, null, null)::forEach);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(feed)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.deleteIfExists(jsonFile);
+    }
+
+    @Benchmark
+    public int gtfsImport() throws IOException {
+        return GtfsFeed.read(feed).catalog(SyntheticTimetable.FIRST_DAY, lastDate, new CityRegistry()).size();
+    }
+
+    @Benchmark
+    public int jsonStreamingReader() throws IOException {
+        Reader reader = Files.newBufferedReader(jsonFile, StandardCharsets.UTF_8);
+        return TransportCatalog.read(reader, new CityRegistry()).size();
+    }
+}
@@ -0,0 +1,69 @@
+package fr.univ.holitrip.service.impl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.testhelpers.data.SyntheticTimetable;
+
+/**
+ * Time and allocation per multi-leg journey query on a synthetic hub-heavy timetable.
+ *
+ * Run with the GC profiler to get the allocation rate per query ("gc.alloc.rate.norm"):
+ * mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark=JourneySearchBenchmark -Dbenchmark.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JourneySearchBenchmark {
+    @Param({"200"})
+    public int cities;
+
+    @Param({"20"})
+    public int departuresPerCityPerDay;
+
+    private RaptorEngine raptor;
+    private ConnectionScanEngine connectionScan;
+    private TopKJourneyEngine topK;
+    private final LocalDate date = SyntheticTimetable.FIRST_DAY;
+
+    @Setup
+    public void setUp() {
+        TransportCatalog catalog = new TransportCatalog(
+            SyntheticTimetable.generate(cities, 5, 3, departuresPerCityPerDay, 42L));
+        raptor = new RaptorEngine(catalog, 3, 60);
+        connectionScan = new ConnectionScanEngine(catalog, 3, 60);
+        topK = new TopKJourneyEngine(catalog, 3, 60);
+    }
+
+    @Benchmark
+    public List<Trip> paretoJourneys() {
+        return raptor.findParetoJourneys("City7", "City" + (cities - 3), date, null);
+    }
+
+    @Benchmark
+    public Object earliestArrival() {
+        return connectionScan.findEarliestArrival("City7", "City" + (cities - 3), date, null);
+    }
+
+    @Benchmark
+    public List<Trip> topKJourneys() {
+        return topK.findBestJourneys("City7", "City" + (cities - 3), date, null, false, 5);
+    }
+}
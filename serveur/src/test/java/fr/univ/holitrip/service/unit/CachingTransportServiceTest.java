@@ -0,0 +1,253 @@
+package fr.univ.holitrip.service.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.service.impl.CacheStats;
+import fr.univ.holitrip.service.impl.CachingTransportService;
+import fr.univ.holitrip.service.impl.JsonTransportService;
+
+class CachingTransportServiceTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+    /**
+     * Answers one transport per query and counts the queries it received.
+     */
+    private static final class CountingTransportService implements TransportService {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public List<Transport> findTransports(String departureCity, String arrivalCity, LocalDateTime departureDate, String mode) {
+            calls.incrementAndGet();
+            List<Transport> transports = new ArrayList<>();
+            transports.add(new Transport(departureCity, arrivalCity, departureDate, departureDate.plusHours(2),
+                mode == null ? "TRAIN" : mode, 80.0));
+            return transports;
+        }
+    }
+
+    /**
+     * Clock moved by hand.
+     */
+    private static final class ManualClock extends Clock {
+        final AtomicLong millis = new AtomicLong();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+
+    @Test
+    void testRepeatedQuery_ShouldBeAnsweredFromCache() {
+        // ARRANGE
+        CountingTransportService delegate = new CountingTransportService();
+        CachingTransportService cache = new CachingTransportService(delegate, 10, Duration.ofMinutes(5));
+
+        // ACT
+        List<Transport> first = cache.findTransports("Bordeaux", "Paris", DATE, "TRAIN");
+        List<Transport> second = cache.findTransports("bordeaux", "PARIS", DATE, "train");
+        first.clear();
+        List<Transport> third = cache.findTransports("Bordeaux", "Paris", DATE, "TRAIN");
+
+        // ASSERT
+        assertEquals(1, delegate.calls.get());
+        assertEquals(1, second.size());
+        assertEquals(1, third.size());
+        CacheStats stats = cache.getCacheStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getHits());
+    }
+
+    @Test
+    void testDifferentQueries_ShouldNotShareEntries() {
+        // ARRANGE
+        CountingTransportService delegate = new CountingTransportService();
+        CachingTransportService cache = new CachingTransportService(delegate, 10, null);
+
+        // ACT
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+        cache.findTransports("Bordeaux", "Paris", DATE, "PLANE");
+        cache.findTransports("Bordeaux", "Paris", DATE.plusDays(1), null);
+        cache.findJourneys("Bordeaux", "Paris", DATE, null);
+        cache.findJourneys("Bordeaux", "Paris", DATE, null, "PRICE", 2);
+        cache.findJourneys("Bordeaux", "Paris", DATE, null, "TIME", 2);
+        cache.findJourneys("Bordeaux", "Paris", DATE, null, "DURATION", 2);
+
+        // ASSERT
+        // The journeys use the default implementations, which call findTransports again;
+        // DURATION and TIME are the same priority
+        assertEquals(6, cache.getCacheStats().getMisses());
+        assertEquals(1, cache.getCacheStats().getHits());
+    }
+
+    @Test
+    void testFullCache_ShouldEvictLeastRecentlyUsedQuery() {
+        // ARRANGE
+        CountingTransportService delegate = new CountingTransportService();
+        CachingTransportService cache = new CachingTransportService(delegate, 2, null);
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+        cache.findTransports("Paris", "Nice", DATE, null);
+        cache.findTransports("Bordeaux", "Paris", DATE, null); // Paris -> Nice is now the eldest
+
+        // ACT
+        cache.findTransports("Nice", "Lyon", DATE, null);
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+        cache.findTransports("Paris", "Nice", DATE, null);
+
+        // ASSERT
+        assertEquals(4, delegate.calls.get());
+        assertEquals(2, cache.getCacheStats().getEvictions());
+    }
+
+    @Test
+    void testExpiredEntry_ShouldBeRecomputed() {
+        // ARRANGE
+        CountingTransportService delegate = new CountingTransportService();
+        ManualClock clock = new ManualClock();
+        CachingTransportService cache = new CachingTransportService(delegate, 10, Duration.ofSeconds(30), () -> 0L, clock);
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+
+        // ACT
+        clock.millis.addAndGet(29_000);
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+        clock.millis.addAndGet(1_000);
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+
+        // ASSERT
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, cache.getCacheStats().getInvalidations());
+    }
+
+    @Test
+    void testNewSnapshotVersion_ShouldClearTheCache() {
+        // ARRANGE
+        CountingTransportService delegate = new CountingTransportService();
+        AtomicLong version = new AtomicLong();
+        CachingTransportService cache = new CachingTransportService(delegate, 10, null, version::get, Clock.systemUTC());
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+        cache.findTransports("Paris", "Nice", DATE, null);
+
+        // ACT
+        version.incrementAndGet();
+        cache.findTransports("Bordeaux", "Paris", DATE, null);
+
+        // ASSERT
+        assertEquals(3, delegate.calls.get());
+        assertEquals(2, cache.getCacheStats().getInvalidations());
+    }
+
+    @Test
+    void testAppliedChanges_ShouldNotBeHiddenByTheCache(@TempDir Path dir) throws Exception {
+        // ARRANGE
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, "[{\"departureCity\": \"Bordeaux\", \"arrivalCity\": \"Paris\", "
+            + "\"departureDateTime\": \"2026-02-10T08:00:00\", \"arrivalDateTime\": \"2026-02-10T10:00:00\", "
+            + "\"mode\": \"TRAIN\", \"price\": 80.0}]");
+        try (JsonTransportService service = new JsonTransportService(file, false)) {
+            CachingTransportService cache = new CachingTransportService(service, 10, Duration.ofHours(1));
+            List<Transport> before = cache.findTransports("Bordeaux", "Paris", DATE, null);
+
+            // ACT
+            service.applyChanges(List.of(new TransportChange(TransportChange.Operation.UPDATE,
+                new Transport("Bordeaux", "Paris", DATE, DATE.plusHours(2), "TRAIN", 55.0))));
+            List<Transport> after = cache.findTransports("Bordeaux", "Paris", DATE, null);
+
+            // ASSERT
+            assertEquals(80.0, before.get(0).getPrice(), 0.001);
+            assertEquals(55.0, after.get(0).getPrice(), 0.001);
+        }
+    }
+
+    @Test
+    void testConcurrentMisses_ShouldComputeTheQueryOnce() throws Exception {
+        // ARRANGE
+        CountDownLatch release = new CountDownLatch(1);
+        CountingTransportService counting = new CountingTransportService();
+        TransportService slow = (from, to, date, mode) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return counting.findTransports(from, to, date, mode);
+        };
+        CachingTransportService cache = new CachingTransportService(slow, 10, null);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            // ACT
+            List<Future<List<Transport>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.findTransports("Bordeaux", "Paris", DATE, null)));
+            }
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (cache.getCacheStats().getHits() + cache.getCacheStats().getMisses() < 8
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            // ASSERT
+            for (Future<List<Transport>> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS).size());
+            }
+            assertEquals(1, counting.calls.get());
+            assertEquals(1, cache.getCacheStats().getMisses());
+            assertEquals(7, cache.getCacheStats().getHits());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedQuery_ShouldNotBeCached() {
+        // ARRANGE
+        AtomicInteger calls = new AtomicInteger();
+        TransportService failingOnce = (from, to, date, mode) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("catalog unavailable");
+            }
+            return new ArrayList<>();
+        };
+        CachingTransportService cache = new CachingTransportService(failingOnce, 10, null);
+
+        // ACT / ASSERT
+        assertThrows(IllegalStateException.class, () -> cache.findTransports("Bordeaux", "Paris", DATE, null));
+        assertTrue(cache.findTransports("Bordeaux", "Paris", DATE, null).isEmpty());
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,205 @@
+package fr.univ.holitrip.service.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.service.impl.GtfsTransportService;
+import fr.univ.holitrip.service.impl.PartitionedTransportService;
+import fr.univ.holitrip.util.CityRegistry;
+
+class GtfsTransportServiceTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2026, 2, 1);
+    private static final LocalDate LAST_DATE = LocalDate.of(2026, 2, 28);
+
+    @TempDir
+    Path feed;
+
+    private TransportService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        write("stops.txt",
+            "stop_id,stop_name,location_type,parent_station",
+            "BDX,Bordeaux,1,",
+            "BDX-1,Bordeaux Saint-Jean quai 1,0,BDX",
+            "AGN,Agen,0,",
+            "TLS,Toulouse,0,",
+            "MPL,Montpellier,0,");
+        write("routes.txt",
+            "route_id,route_type",
+            "R1,2",
+            "R2,3");
+        write("calendar.txt",
+            "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date",
+            "WEEK,1,1,1,1,1,0,0,20260201,20260228");
+        write("calendar_dates.txt",
+            "service_id,date,exception_type",
+            "WEEK,20260210,2",
+            "WEEK,20260214,1",
+            "NIGHT,20260211,1");
+        write("trips.txt",
+            "route_id,service_id,trip_id",
+            "R1,WEEK,T1",
+            "R2,NIGHT,N1");
+        write("stop_times.txt",
+            "trip_id,arrival_time,departure_time,stop_id,stop_sequence,price",
+            "T1,08:00:00,08:00:00,BDX-1,1,0",
+            "T1,09:05:00,09:10:00,AGN,2,20.5",
+            "T1,10:00:00,10:00:00,TLS,3,30",
+            "N1,23:30:00,23:30:00,TLS,1,",
+            "N1,25:15:00,25:15:00,MPL,2,");
+        service = new GtfsTransportService(feed, FIRST_DATE, LAST_DATE);
+    }
+
+    private void write(String file, String... lines) throws Exception {
+        Files.write(feed.resolve(file), List.of(lines));
+    }
+
+    @Test
+    void testFindTransports_ShouldReturnLegsBetweenEveryPairOfStops() {
+        // ARRANGE
+        LocalDateTime monday = LocalDateTime.of(2026, 2, 9, 0, 0);
+
+        // ACT
+        List<Transport> direct = service.findTransports("Bordeaux", "Toulouse", monday, null);
+        List<Transport> firstLeg = service.findTransports("Bordeaux", "Agen", monday, null);
+        List<Transport> lastLeg = service.findTransports("Agen", "Toulouse", monday, null);
+
+        // ASSERT
+        assertEquals(1, direct.size());
+        assertEquals(LocalDateTime.of(2026, 2, 9, 8, 0), direct.get(0).getDepartureDateTime());
+        assertEquals(LocalDateTime.of(2026, 2, 9, 10, 0), direct.get(0).getArrivalDateTime());
+        assertEquals(30.0, direct.get(0).getPrice(), 0.001);
+        assertEquals("TRAIN", direct.get(0).getMode());
+        assertEquals(1, firstLeg.size());
+        assertEquals(LocalDateTime.of(2026, 2, 9, 9, 5), firstLeg.get(0).getArrivalDateTime());
+        assertEquals(20.5, firstLeg.get(0).getPrice(), 0.001);
+        assertEquals(1, lastLeg.size());
+        assertEquals(LocalDateTime.of(2026, 2, 9, 9, 10), lastLeg.get(0).getDepartureDateTime());
+        assertEquals(9.5, lastLeg.get(0).getPrice(), 0.001);
+    }
+
+    @Test
+    void testFindTransports_ShouldFollowCalendarAndExceptions() {
+        // ACT
+        List<Transport> removedTuesday = service.findTransports("Bordeaux", "Toulouse",
+            LocalDateTime.of(2026, 2, 10, 0, 0), null);
+        List<Transport> addedSaturday = service.findTransports("Bordeaux", "Toulouse",
+            LocalDateTime.of(2026, 2, 14, 0, 0), null);
+        List<Transport> sunday = service.findTransports("Bordeaux", "Toulouse",
+            LocalDateTime.of(2026, 2, 15, 0, 0), null);
+        List<Transport> all = service.findTransports("Bordeaux", "Toulouse", null, null);
+
+        // ASSERT
+        assertTrue(removedTuesday.isEmpty());
+        assertEquals(1, addedSaturday.size());
+        assertTrue(sunday.isEmpty());
+        // 20 weekdays in February 2026, minus the 10th, plus the 14th
+        assertEquals(20, all.size());
+    }
+
+    @Test
+    void testFindTransports_TripAfterMidnight_ShouldArriveTheNextDay() {
+        // ACT
+        List<Transport> result = service.findTransports("Toulouse", "Montpellier",
+            LocalDateTime.of(2026, 2, 11, 0, 0), null);
+
+        // ASSERT
+        assertEquals(1, result.size());
+        assertEquals(LocalDateTime.of(2026, 2, 11, 23, 30), result.get(0).getDepartureDateTime());
+        assertEquals(LocalDateTime.of(2026, 2, 12, 1, 15), result.get(0).getArrivalDateTime());
+        assertEquals("BUS", result.get(0).getMode());
+        assertEquals(0.0, result.get(0).getPrice(), 0.001);
+    }
+
+    @Test
+    void testFindTransports_ShouldNameStopsAfterTheirParentStation() {
+        // ACT
+        List<Transport> fromPlatform = service.findTransports("Bordeaux Saint-Jean quai 1", null, null, null);
+
+        // ASSERT
+        assertTrue(fromPlatform.isEmpty());
+        assertFalse(service.findTransports("Bordeaux", null, null, null).isEmpty());
+    }
+
+    @Test
+    void testFromGtfs_ShouldExpandEachDepartureDateLikeTheWholeRange() throws Exception {
+        // ARRANGE
+        write("trips.txt",
+            "route_id,service_id,trip_id",
+            "R1,WEEK,T1",
+            "R2,NIGHT,N1",
+            "R2,NIGHT,N2");
+        write("stop_times.txt",
+            "trip_id,arrival_time,departure_time,stop_id,stop_sequence,price",
+            "T1,08:00:00,08:00:00,BDX-1,1,0",
+            "T1,09:05:00,09:10:00,AGN,2,20.5",
+            "T1,10:00:00,10:00:00,TLS,3,30",
+            "N1,23:30:00,23:30:00,TLS,1,",
+            "N1,25:15:00,25:15:00,MPL,2,",
+            "N2,24:30:00,24:30:00,MPL,1,",
+            "N2,26:00:00,26:00:00,TLS,2,");
+        TransportService expanded = new GtfsTransportService(feed, FIRST_DATE, LAST_DATE, new CityRegistry());
+        TransportService partitioned = PartitionedTransportService.fromGtfs(feed, FIRST_DATE, LAST_DATE, 4, 1, null,
+            new CityRegistry());
+        String[][] pairs = {
+            {"Bordeaux", "Toulouse"},
+            {"Agen", "Toulouse"},
+            {"Toulouse", "Montpellier"},
+            {"Montpellier", "Toulouse"},
+        };
+
+        for (LocalDate date = LocalDate.of(2026, 2, 9); !date.isAfter(LocalDate.of(2026, 2, 15));
+                date = date.plusDays(1)) {
+            for (String[] pair : pairs) {
+                // ACT
+                String expected = expanded.findTransports(pair[0], pair[1], date.atStartOfDay(), null).toString();
+                String actual = partitioned.findTransports(pair[0], pair[1], date.atStartOfDay(), null).toString();
+
+                // ASSERT
+                assertEquals(expected, actual, String.join(",", pair) + " " + date);
+            }
+        }
+        // the trip of the 11th leaving at 24:30 is a departure of the 12th
+        assertEquals(1, partitioned.findTransports("Montpellier", "Toulouse",
+            LocalDateTime.of(2026, 2, 12, 0, 0), null).size());
+        assertEquals(expanded.findTransports(null, null, null, null).size(),
+            partitioned.findTransports(null, null, null, null).size());
+    }
+
+    @Test
+    void testConstructor_NonContiguousStopTimes_ShouldHaveNoTransport() throws Exception {
+        // ARRANGE
+        write("stop_times.txt",
+            "trip_id,arrival_time,departure_time,stop_id,stop_sequence",
+            "T1,08:00:00,08:00:00,BDX-1,1",
+            "N1,23:30:00,23:30:00,TLS,1",
+            "T1,10:00:00,10:00:00,TLS,2");
+
+        // ACT
+        TransportService rejected = new GtfsTransportService(feed, FIRST_DATE, LAST_DATE);
+
+        // ASSERT
+        assertTrue(rejected.findTransports(null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void testConstructor_MissingFeed_ShouldHaveNoTransport() {
+        // ACT
+        TransportService missing = new GtfsTransportService(feed.resolve("absent"), FIRST_DATE, LAST_DATE);
+
+        // ASSERT
+        assertTrue(missing.findTransports(null, null, null, null).isEmpty());
+    }
+}
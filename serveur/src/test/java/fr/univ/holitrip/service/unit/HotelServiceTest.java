@@ -2,10 +2,13 @@ package fr.univ.holitrip.service.unit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import fr.univ.holitrip.model.Hotel;
 import fr.univ.holitrip.service.impl.JsonHotelService;
@@ -171,4 +174,65 @@ class HotelServiceTest {
         assertNotNull(hotels);
         assertFalse(hotels.isEmpty());
     }
+
+    @Test
+    void testFindHotels_ShouldReadEveryField() {
+        // ARRANGE
+        String city = "Paris";
+
+        // ACT
+        List<Hotel> hotels = hotelService.findHotels(city, 3, 95.0);
+
+        // ASSERT
+        Hotel ibis = hotels.stream()
+            .filter(h -> "Hôtel Ibis Paris Gare de Lyon".equals(h.getName()))
+            .findFirst()
+            .orElseThrow();
+        assertEquals("2 Place Louis Armand", ibis.getAddress());
+        assertEquals("Paris", ibis.getCity());
+        assertEquals(3, ibis.getRating());
+        assertEquals(95.0, ibis.getPricePerNight(), 0.001);
+    }
+
+    @Test
+    void testHotReload_ShouldPublishNewHotelsAndKeepThemOnInvalidFile(@TempDir Path dir) throws Exception {
+        // ARRANGE
+        Path file = dir.resolve("hotels.json");
+        Files.writeString(file, hotelsJson("Hôtel A"));
+        try (JsonHotelService service = new JsonHotelService(file, true)) {
+            assertEquals(1, service.findHotels("Reloadville", 1, 500.0).size());
+
+            // ACT
+            Files.writeString(file, hotelsJson("Hôtel A", "Hôtel B"));
+            List<Hotel> reloaded = waitForHotels(service, 2);
+            Files.writeString(file, "[{\"name\": ");
+            Thread.sleep(1000);
+
+            // ASSERT
+            assertEquals(2, reloaded.size());
+            assertEquals(2, service.findHotels("Reloadville", 1, 500.0).size());
+        }
+    }
+
+    private static String hotelsJson(String... names) {
+        StringBuilder json = new StringBuilder("[");
+        for (String name : names) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"name\": \"").append(name)
+                .append("\", \"city\": \"Reloadville\", \"rating\": 3, \"pricePerNight\": 80.0}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static List<Hotel> waitForHotels(JsonHotelService service, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<Hotel> hotels = service.findHotels("Reloadville", 1, 500.0);
+        while (hotels.size() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            hotels = service.findHotels("Reloadville", 1, 500.0);
+        }
+        return hotels;
+    }
 }
@@ -0,0 +1,98 @@
+package fr.univ.holitrip.service.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.service.impl.BinaryTimetableConverter;
+import fr.univ.holitrip.service.impl.JsonTransportService;
+import fr.univ.holitrip.service.impl.MappedTransportService;
+
+class MappedTransportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private TransportService jsonService;
+    private TransportService mappedService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path binary = tempDir.resolve("transports.bin");
+        try (InputStream json = getClass().getClassLoader().getResourceAsStream("data/transports.json")) {
+            BinaryTimetableConverter.convert(json, binary);
+        }
+        jsonService = new JsonTransportService("data/transports.json");
+        mappedService = new MappedTransportService(binary);
+    }
+
+    @Test
+    void testConvert_ShouldWriteEveryTransport() throws Exception {
+        // ARRANGE
+        Path binary = tempDir.resolve("other.bin");
+
+        // ACT
+        int rows;
+        try (InputStream json = getClass().getClassLoader().getResourceAsStream("data/transports.json")) {
+            rows = BinaryTimetableConverter.convert(json, binary);
+        }
+
+        // ASSERT
+        assertEquals(jsonService.findTransports(null, null, null, null).size(), rows);
+    }
+
+    @Test
+    void testFindTransports_ShouldMatchJsonService() {
+        // ARRANGE
+        LocalDateTime date = LocalDateTime.of(2026, 2, 10, 8, 0);
+        String[][] queries = {
+            {"Bordeaux", "Paris", null},
+            {"Bordeaux", "Paris", "TRAIN"},
+            {"bordeaux", "PARIS", "plane"},
+            {"Bordeaux", "Nice", null},
+            {"Bordeaux", "Nice", "TRAIN"},
+            {"Paris", "Marseille", null},
+            {"Bordeaux", "Atlantis", null},
+        };
+
+        for (String[] q : queries) {
+            // ACT
+            List<Transport> expected = jsonService.findTransports(q[0], q[1], date, q[2]);
+            List<Transport> actual = mappedService.findTransports(q[0], q[1], date, q[2]);
+
+            // ASSERT
+            assertEquals(expected.toString(), actual.toString(), String.join(",", q[0], q[1], String.valueOf(q[2])));
+        }
+    }
+
+    @Test
+    void testFindTransports_WithPartialCriteria_ShouldMatchJsonService() {
+        // ACT / ASSERT
+        assertEquals(jsonService.findTransports(null, null, null, null).toString(),
+            mappedService.findTransports(null, null, null, null).toString());
+        assertEquals(jsonService.findTransports("Paris", null, null, "TRAIN").toString(),
+            mappedService.findTransports("Paris", null, null, "TRAIN").toString());
+        assertEquals(jsonService.findTransports(null, "Nice", LocalDateTime.of(2026, 2, 10, 0, 0), null).toString(),
+            mappedService.findTransports(null, "Nice", LocalDateTime.of(2026, 2, 10, 0, 0), null).toString());
+    }
+
+    @Test
+    void testMissingFile_ShouldReturnEmptyList() {
+        // ARRANGE
+        TransportService service = new MappedTransportService(tempDir.resolve("missing.bin"));
+
+        // ACT
+        List<Transport> transports = service.findTransports("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 10, 8, 0), null);
+
+        // ASSERT
+        assertTrue(transports.isEmpty());
+    }
+}
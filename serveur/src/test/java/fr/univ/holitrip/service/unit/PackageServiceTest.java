@@ -4,6 +4,7 @@ import fr.univ.holitrip.model.Package;
 import fr.univ.holitrip.model.Hotel;
 import fr.univ.holitrip.model.Activity;
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
 import fr.univ.holitrip.service.impl.PackageBuilder;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -11,9 +12,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -1087,4 +1091,134 @@ class PackageServiceTest {
         assertFalse(res.get(0).isValid(), "Package should be invalid without return transport");
     }
 
+    @Test
+    void testCandidateJourneys_ShouldPickOptimumForPriority() {
+        // ARRANGE
+        // The transport service returns a Pareto set: a cheap connection and a fast direct plane
+        LocalDateTime d = LocalDateTime.of(2025,1,15,8,0);
+        Trip cheap = new Trip(Arrays.asList(
+            t("A","C", d, d.plusHours(2), "TRAIN", 30.0),
+            t("C","B", d.plusHours(4), d.plusHours(6), "TRAIN", 30.0)));
+        Trip fast = new Trip(Collections.singletonList(t("A","B", d.plusHours(1), d.plusHours(2), "PLANE", 150.0)));
+        Trip back = new Trip(Collections.singletonList(t("B","A", d.plusDays(3), d.plusDays(3).plusHours(2), "TRAIN", 50.0)));
+        when(transportService.findJourneys(eq("A"), eq("B"), any(), any())).thenReturn(Arrays.asList(cheap, fast));
+        when(transportService.findJourneys(eq("B"), eq("A"), any(), any())).thenReturn(Collections.singletonList(back));
+
+        Hotel h = new Hotel(); h.setRating(3); h.setPricePerNight(50.0);
+        when(hotelService.findHotels(anyString(), anyInt(), anyDouble())).thenReturn(Collections.singletonList(h));
+        when(activityService.findActivities(anyString(), anyList(), any(), anyDouble(), any(), anyDouble())).thenReturn(Collections.emptyList());
+
+        // ACT
+        List<Package> byPrice = packageService.findPackages("A","B","2025-01-15",3,1000.0,null,"PRICE",0,"PRICE",Collections.emptyList(),10.0);
+        List<Package> byDuration = packageService.findPackages("A","B","2025-01-15",3,1000.0,null,"DURATION",0,"PRICE",Collections.emptyList(),10.0);
+
+        // ASSERT
+        assertEquals(2, byPrice.get(0).getOutboundTrip().getTransports().size());
+        assertEquals(1, byDuration.get(0).getOutboundTrip().getTransports().size());
+        assertEquals("PLANE", byDuration.get(0).getOutboundTrip().getTransports().get(0).getMode());
+        // Journeys were available: the flat transport search is not needed
+        verify(transportService, never()).findTransports(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void testRoundTrip_ShouldChooseOutboundAndReturnTogether() {
+        // ARRANGE
+        // The cheapest outbound arrives after the cheapest return leaves: choosing each
+        // direction alone would give no package
+        LocalDateTime d = LocalDateTime.of(2025,1,15,8,0);
+        Trip lateCheap = new Trip(Collections.singletonList(t("A","B", d.plusDays(3), d.plusDays(3).plusHours(2), "TRAIN", 20.0)));
+        Trip early = new Trip(Collections.singletonList(t("A","B", d, d.plusHours(2), "TRAIN", 60.0)));
+        Trip cheapBack = new Trip(Collections.singletonList(t("B","A", d.plusDays(3).plusHours(1), d.plusDays(3).plusHours(3), "TRAIN", 20.0)));
+        Trip lateBack = new Trip(Collections.singletonList(t("B","A", d.plusDays(3).plusHours(10), d.plusDays(3).plusHours(12), "TRAIN", 50.0)));
+        when(transportService.findJourneys(eq("A"), eq("B"), any(), any())).thenReturn(Arrays.asList(lateCheap, early));
+        when(transportService.findJourneys(eq("B"), eq("A"), any(), any())).thenReturn(Arrays.asList(cheapBack, lateBack));
+
+        Hotel h = new Hotel(); h.setRating(3); h.setPricePerNight(50.0);
+        when(hotelService.findHotels(anyString(), anyInt(), anyDouble())).thenReturn(Collections.singletonList(h));
+        when(activityService.findActivities(anyString(), anyList(), any(), anyDouble(), any(), anyDouble())).thenReturn(Collections.emptyList());
+
+        // ACT
+        List<Package> result = packageService.findPackages("A","B","2025-01-15",3,1000.0,"TRAIN","PRICE",0,"PRICE",Collections.emptyList(),10.0);
+        // 150 for the hotel leaves 90 for the transports: 20 + 50 only
+        List<Package> tight = packageService.findPackages("A","B","2025-01-15",3,240.0,"TRAIN","PRICE",0,"PRICE",Collections.emptyList(),10.0);
+
+        // ASSERT
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).isValid());
+        // 20 + 50 beats 60 + 20
+        assertEquals(70.0, result.get(0).getOutboundTrip().getTotalPrice() + result.get(0).getReturnTrip().getTotalPrice(), 0.001);
+        assertTrue(tight.get(0).isValid());
+        assertEquals(220.0, tight.get(0).getTotalPrice(3), 0.001);
+    }
+
+    @Test
+    void testReturn_ShouldPreferJourneysHomeByTheDeadline() {
+        // ARRANGE
+        // Return day is the 18th: the cheapest return of the day only arrives after midnight
+        LocalDateTime d = LocalDateTime.of(2025,1,15,8,0);
+        LocalDateTime back = LocalDateTime.of(2025,1,18,0,0);
+        Trip out = new Trip(Collections.singletonList(t("A","B", d, d.plusHours(2), "TRAIN", 40.0)));
+        Trip overnight = new Trip(Collections.singletonList(t("B","A", back.withHour(22), back.plusDays(1).withHour(1), "TRAIN", 20.0)));
+        Trip morning = new Trip(Collections.singletonList(t("B","A", back.withHour(9), back.withHour(11), "TRAIN", 60.0)));
+        Trip evening = new Trip(Collections.singletonList(t("B","A", back.withHour(19), back.withHour(22), "TRAIN", 45.0)));
+        when(transportService.findJourneys(eq("A"), eq("B"), any(), any())).thenReturn(Collections.singletonList(out));
+        when(transportService.findJourneys(eq("B"), eq("A"), any(), any())).thenReturn(Arrays.asList(overnight, morning));
+        when(transportService.findLatestDepartures(eq("B"), eq("A"), any(), any(), any())).thenReturn(Collections.singletonList(evening));
+
+        Hotel h = new Hotel(); h.setRating(3); h.setPricePerNight(50.0);
+        when(hotelService.findHotels(anyString(), anyInt(), anyDouble())).thenReturn(Collections.singletonList(h));
+        when(activityService.findActivities(anyString(), anyList(), any(), anyDouble(), any(), anyDouble())).thenReturn(Collections.emptyList());
+
+        // ACT
+        List<Package> result = packageService.findPackages("A","B","2025-01-15",3,1000.0,"TRAIN","PRICE",0,"PRICE",Collections.emptyList(),10.0);
+
+        // ASSERT
+        assertEquals(1, result.size());
+        assertEquals(45.0, result.get(0).getReturnTrip().getTotalPrice(), 0.001);
+        verify(transportService).findLatestDepartures("B", "A", back, back.withHour(23).withMinute(59), null);
+    }
+
+    @Test
+    void testBestPackagesByStartDate_ShouldKeepOnePackagePerDate() {
+        // ARRANGE
+        // Outbound journeys on the 14th and 16th only, returns three days later
+        LocalDate first = LocalDate.of(2025,1,14);
+        LocalDate d14 = first, d16 = first.plusDays(2);
+        Map<LocalDate, Trip> outbound = new TreeMap<>();
+        outbound.put(d14, new Trip(Collections.singletonList(t("A","B", d14.atTime(8,0), d14.atTime(10,0), "TRAIN", 40.0))));
+        outbound.put(d16, new Trip(Collections.singletonList(t("A","B", d16.atTime(8,0), d16.atTime(10,0), "TRAIN", 20.0))));
+        Map<LocalDate, Trip> back = new TreeMap<>();
+        back.put(d14.plusDays(3), new Trip(Collections.singletonList(t("B","A", d14.plusDays(3).atTime(9,0), d14.plusDays(3).atTime(11,0), "TRAIN", 40.0))));
+        back.put(d16.plusDays(3), new Trip(Collections.singletonList(t("B","A", d16.plusDays(3).atTime(9,0), d16.plusDays(3).atTime(11,0), "TRAIN", 20.0))));
+        when(transportService.findBestJourneysByDate(eq("A"), eq("B"), eq(first), eq(first.plusDays(2)), any(), any())).thenReturn(outbound);
+        when(transportService.findBestJourneysByDate(eq("B"), eq("A"), eq(first.plusDays(3)), eq(first.plusDays(5)), any(), any())).thenReturn(back);
+
+        Hotel h = new Hotel(); h.setRating(3); h.setPricePerNight(50.0);
+        when(hotelService.findHotels(anyString(), anyInt(), anyDouble())).thenReturn(Collections.singletonList(h));
+        when(activityService.findActivities(anyString(), anyList(), any(), anyDouble(), any(), anyDouble())).thenReturn(Collections.emptyList());
+
+        // ACT
+        Map<LocalDate, Package> best = packageService.findBestPackagesByStartDate("A","B","2025-01-15",1,3,1000.0,
+            "TRAIN","PRICE",0,"PRICE",Collections.emptyList(),10.0);
+
+        // ASSERT
+        assertEquals(Arrays.asList(d14, d16), new ArrayList<>(best.keySet()));
+        assertEquals(230.0, best.get(d14).getTotalPrice(3), 0.001);
+        assertEquals(190.0, best.get(d16).getTotalPrice(3), 0.001);
+        assertTrue(best.values().stream().allMatch(Package::isValid));
+        // One search per direction for the whole window, hotels looked up once
+        verify(transportService, never()).findJourneys(anyString(), anyString(), any(), any());
+        verify(hotelService, times(1)).findHotels(anyString(), anyInt(), anyDouble());
+    }
+
+    @Test
+    void testBestPackagesByStartDate_InvalidDate_ShouldReturnEmpty() {
+        // ACT
+        Map<LocalDate, Package> best = packageService.findBestPackagesByStartDate("A","B","not-a-date",2,3,1000.0,
+            null,"PRICE",0,"PRICE",Collections.emptyList(),10.0);
+
+        // ASSERT
+        assertTrue(best.isEmpty());
+        verifyNoInteractions(transportService);
+    }
 }
@@ -0,0 +1,224 @@
+package fr.univ.holitrip.service.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.TransportService;
+import fr.univ.holitrip.service.impl.CacheStats;
+import fr.univ.holitrip.service.impl.JsonTransportService;
+import fr.univ.holitrip.service.impl.PartitionedTransportService;
+import fr.univ.holitrip.service.impl.TimetablePartitioner;
+import fr.univ.holitrip.util.CityRegistry;
+
+class PartitionedTransportServiceTest {
+    @TempDir
+    Path partitions;
+
+    private TransportService jsonService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (InputStream json = getClass().getClassLoader().getResourceAsStream("data/transports.json")) {
+            TimetablePartitioner.partition(json, partitions);
+        }
+        jsonService = new JsonTransportService("data/transports.json");
+    }
+
+    @Test
+    void testPartition_ShouldWriteOneFilePerDepartureDate() throws Exception {
+        // ACT
+        long files;
+        try (Stream<Path> listing = Files.list(partitions)) {
+            files = listing.count();
+        }
+
+        // ASSERT
+        assertEquals(6, files);
+        assertTrue(Files.exists(partitions.resolve("transports-2026-02-10.json")));
+    }
+
+    @Test
+    void testFindTransports_ShouldMatchJsonService() {
+        // ARRANGE
+        TransportService service = new PartitionedTransportService(partitions, 4, 1, null, new CityRegistry());
+        String[][] queries = {
+            {"Bordeaux", "Paris", null},
+            {"Bordeaux", "Paris", "PLANE"},
+            {"Bordeaux", "Nice", null},
+            {"Bordeaux", "Atlantis", null},
+        };
+
+        for (LocalDateTime date : List.of(LocalDateTime.of(2026, 2, 10, 8, 0), LocalDateTime.of(2026, 2, 13, 0, 0))) {
+            for (String[] q : queries) {
+                // ACT
+                String expected = jsonService.findTransports(q[0], q[1], date, q[2]).toString();
+                String actual = service.findTransports(q[0], q[1], date, q[2]).toString();
+
+                // ASSERT
+                assertEquals(expected, actual, String.join(",", q) + " " + date);
+            }
+        }
+        assertEquals(jsonService.findTransports(null, null, null, null).size(),
+            service.findTransports(null, null, null, null).size());
+    }
+
+    @Test
+    void testFindTransports_JourneyBeyondTheFollowingDays_ShouldNeedALargerSlice() {
+        // ARRANGE
+        LocalDateTime date = LocalDateTime.of(2026, 2, 13, 0, 0);
+        TransportService oneDay = new PartitionedTransportService(partitions, 4, 1, null, new CityRegistry());
+        TransportService twoDays = new PartitionedTransportService(partitions, 4, 2, null, new CityRegistry());
+        String expected = jsonService.findTransports("Paris", "Marseille", date, null).toString();
+
+        // ACT
+        List<Transport> withOneDay = oneDay.findTransports("Paris", "Marseille", date, null);
+        List<Transport> withTwoDays = twoDays.findTransports("Paris", "Marseille", date, null);
+
+        // ASSERT
+        // the journey changes trains two days after its first departure
+        assertTrue(withOneDay.isEmpty());
+        assertEquals(expected, withTwoDays.toString());
+    }
+
+    @Test
+    void testFindBestJourneysByDate_ShouldMatchJsonService() {
+        // ARRANGE
+        TransportService service = new PartitionedTransportService(partitions, 4, 1, null, new CityRegistry());
+        LocalDate first = LocalDate.of(2026, 2, 9);
+        LocalDate last = LocalDate.of(2026, 2, 16);
+
+        // ACT
+        String expected = jsonService.findBestJourneysByDate("Bordeaux", "Paris", first, last, null, "PRICE").toString();
+        String actual = service.findBestJourneysByDate("Bordeaux", "Paris", first, last, null, "PRICE").toString();
+
+        // ASSERT
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testFindJourneys_ShouldLoadEachSliceOnce() {
+        // ARRANGE
+        PartitionedTransportService service = new PartitionedTransportService(partitions, 4, 1, null, new CityRegistry());
+        LocalDateTime date = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        // ACT
+        List<Trip> first = service.findJourneys("Bordeaux", "Paris", date, null);
+        List<Trip> second = service.findJourneys("Bordeaux", "Paris", date.plusHours(2), null);
+
+        // ASSERT
+        CacheStats stats = service.getCacheStats();
+        assertFalse(first.isEmpty());
+        assertEquals(first.toString(), second.toString());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getHits());
+    }
+
+    @Test
+    void testFindJourneys_ShouldPrefetchAdjacentDates() {
+        // ARRANGE
+        PartitionedTransportService service = new PartitionedTransportService(partitions, 4, 1, Runnable::run,
+            new CityRegistry());
+
+        // ACT
+        service.findJourneys("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 10, 0, 0), null);
+        service.findJourneys("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 11, 0, 0), null);
+        service.findJourneys("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 9, 0, 0), null);
+
+        // ASSERT
+        CacheStats stats = service.getCacheStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getHits());
+    }
+
+    @Test
+    void testFindJourneys_Hit_ShouldNotPrefetch() {
+        // ARRANGE
+        PartitionedTransportService service = new PartitionedTransportService(partitions, 3, 1, Runnable::run,
+            new CityRegistry());
+        LocalDateTime tenth = LocalDateTime.of(2026, 2, 10, 0, 0);
+
+        // ACT
+        service.findJourneys("Bordeaux", "Paris", tenth, null);
+        service.findJourneys("Bordeaux", "Paris", tenth.plusDays(1), null);
+        service.findJourneys("Bordeaux", "Paris", tenth, null);
+        service.findJourneys("Bordeaux", "Paris", tenth.minusDays(1), null);
+
+        // ASSERT
+        // the slice of the 12th is not prefetched by the hit on the 11th, so nothing is evicted
+        CacheStats stats = service.getCacheStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(3, stats.getHits());
+        assertEquals(0, stats.getEvictions());
+    }
+
+    @Test
+    void testConstructor_PrefetchWithFewerThanThreeSlices_ShouldThrow() {
+        // ACT & ASSERT
+        assertThrows(IllegalArgumentException.class,
+            () -> new PartitionedTransportService(partitions, 2, 1, Runnable::run, new CityRegistry()));
+    }
+
+    @Test
+    void testFindTransports_OverlappingSlices_ShouldReadEachDateOnce() throws Exception {
+        // ARRANGE
+        TransportService service = new PartitionedTransportService(partitions, 4, 1, null, new CityRegistry());
+        LocalDateTime thirteenth = LocalDateTime.of(2026, 2, 13, 0, 0);
+        String expected = jsonService.findTransports(null, null, thirteenth.plusDays(1), null).toString();
+
+        // ACT
+        service.findTransports(null, null, thirteenth, null);
+        // the 14th is shared with the slice of the 13th: its partition is not read again
+        Files.delete(partitions.resolve("transports-2026-02-14.json"));
+        List<Transport> fourteenth = service.findTransports(null, null, thirteenth.plusDays(1), null);
+
+        // ASSERT
+        assertFalse(fourteenth.isEmpty());
+        assertEquals(expected, fourteenth.toString());
+    }
+
+    @Test
+    void testFindJourneys_FullCache_ShouldEvictLeastRecentlyUsedSlice() {
+        // ARRANGE
+        PartitionedTransportService service = new PartitionedTransportService(partitions, 2, 1, null, new CityRegistry());
+        LocalDateTime tenth = LocalDateTime.of(2026, 2, 10, 0, 0);
+        LocalDateTime thirteenth = LocalDateTime.of(2026, 2, 13, 0, 0);
+        LocalDateTime fifteenth = LocalDateTime.of(2026, 2, 15, 0, 0);
+
+        // ACT
+        service.findJourneys("Bordeaux", "Paris", tenth, null);
+        service.findJourneys("Bordeaux", "Paris", thirteenth, null);
+        service.findJourneys("Bordeaux", "Paris", tenth, null);
+        service.findJourneys("Bordeaux", "Paris", fifteenth, null);
+        service.findJourneys("Bordeaux", "Paris", thirteenth, null);
+
+        // ASSERT
+        CacheStats stats = service.getCacheStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(4, stats.getMisses());
+        assertEquals(2, stats.getEvictions());
+    }
+
+    @Test
+    void testFindTransports_MissingDirectory_ShouldReturnEmptyList() {
+        // ARRANGE
+        TransportService service = new PartitionedTransportService(partitions.resolve("absent"), 2, 1, null,
+            new CityRegistry());
+
+        // ACT & ASSERT
+        assertTrue(service.findTransports("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 10, 0, 0), null).isEmpty());
+        assertTrue(service.findTransports(null, null, null, null).isEmpty());
+    }
+}
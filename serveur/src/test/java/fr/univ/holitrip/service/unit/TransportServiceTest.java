@@ -2,15 +2,33 @@ package fr.univ.holitrip.service.unit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.TransportChange;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.service.impl.CityLocations;
 import fr.univ.holitrip.service.impl.JsonTransportService;
+import fr.univ.holitrip.service.impl.SearchStats;
+import fr.univ.holitrip.util.CityRegistry;
 
 public class TransportServiceTest {
     private fr.univ.holitrip.service.TransportService transportService;
@@ -279,4 +297,792 @@ public class TransportServiceTest {
 
         System.out.println("=====SEPARATOR=====");
     }
+
+    @Test
+    void testFindTransports_RepeatedQueries_ShouldReuseParsedCatalog() {
+        //ARRANGE
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 9, 0);
+
+        //ACT
+        List<Transport> first = transportService.findTransports("Bordeaux", "Paris", departureDate, "TRAIN");
+        List<Transport> second = transportService.findTransports("Bordeaux", "Paris", departureDate, "TRAIN");
+
+        //ASSERT
+        // The JSON file is parsed once and both queries read the same snapshot; transports
+        // are created for each result, so the queries return equal but distinct instances
+        assertFalse(first.isEmpty());
+        assertEquals(first.toString(), second.toString());
+        assertNotSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    void testFindTransports_MissingFile_ShouldReturnEmpty() {
+        //ARRANGE
+        JsonTransportService missing = new JsonTransportService("data/does-not-exist.json");
+
+        //ACT
+        List<Transport> transports = missing.findTransports("Bordeaux", "Paris", LocalDateTime.of(2026, 2, 10, 9, 0), null);
+
+        //ASSERT
+        assertNotNull(transports);
+        assertTrue(transports.isEmpty());
+    }
+
+    @Test
+    void testFindTransports_NoDate_ShouldScanAllDates() {
+        //ARRANGE
+        // Without a date the indexed lookup cannot be used: every day must still be returned
+
+        //ACT
+        List<Transport> transports = transportService.findTransports("Bordeaux", "Paris", null, "TRAIN");
+
+        //ASSERT
+        assertFalse(transports.isEmpty());
+        for (Transport transport : transports) {
+            assertEquals("Bordeaux", transport.getDepartureCity());
+            assertEquals("Paris", transport.getArrivalCity());
+            assertEquals("TRAIN", transport.getMode());
+        }
+        assertTrue(transports.size() >= transportService.findTransports("Bordeaux", "Paris",
+            LocalDateTime.of(2026, 2, 10, 9, 0), "TRAIN").size());
+    }
+
+    @Test
+    void testFindTransports_MultiLeg_ShouldReturnEarliestArrival() {
+        //ARRANGE
+        // Bordeaux -> Nice has several connections on 2026-02-10:
+        // TRAIN via Toulouse arrives at 19:30, PLANE via Paris arrives at 13:30
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Transport> transports = transportService.findTransports("Bordeaux", "Nice", departureDate, null);
+
+        //ASSERT
+        assertEquals(2, transports.size());
+        assertEquals(LocalDateTime.of(2026, 2, 10, 13, 30), transports.get(1).getArrivalDateTime());
+        assertEquals(transports.get(0).getMode(), transports.get(1).getMode());
+    }
+
+    @Test
+    void testFindJourneys_ShouldReturnParetoSet() {
+        //ARRANGE
+        // Bordeaux -> Nice: TRAIN via Toulouse is the cheapest (130€), PLANE via Paris the fastest (4h30)
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Trip> journeys = transportService.findJourneys("Bordeaux", "Nice", departureDate, null);
+
+        //ASSERT
+        assertEquals(2, journeys.size());
+        assertEquals(130.0, journeys.get(0).getTotalPrice(), 0.001);
+        assertEquals(270, journeys.get(1).getTotalDuration());
+        // No journey may be at least as good as another one on every criterion
+        for (Trip a : journeys) {
+            for (Trip b : journeys) {
+                if (a != b) {
+                    assertFalse(a.getTotalPrice() <= b.getTotalPrice()
+                        && a.getTotalDuration() <= b.getTotalDuration()
+                        && a.getTransports().size() <= b.getTransports().size());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindJourneys_WithMode_ShouldOnlyUseThatMode() {
+        //ARRANGE
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Trip> journeys = transportService.findJourneys("Bordeaux", "Nice", departureDate, "PLANE");
+
+        //ASSERT
+        assertEquals(1, journeys.size());
+        for (Transport t : journeys.get(0).getTransports()) {
+            assertEquals("PLANE", t.getMode());
+        }
+    }
+
+    @Test
+    void testFindJourneysTopK_ByPrice_ShouldIncludeDominatedAlternatives() {
+        //ARRANGE
+        // Bordeaux -> Nice: 130€ TRAIN via Toulouse, then two slower 3-leg journeys at 140€ and 145€
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Trip> journeys = transportService.findJourneys("Bordeaux", "Nice", departureDate, null, "PRICE", 3);
+
+        //ASSERT
+        assertEquals(3, journeys.size());
+        assertEquals(130.0, journeys.get(0).getTotalPrice(), 0.001);
+        assertEquals(140.0, journeys.get(1).getTotalPrice(), 0.001);
+        assertEquals(145.0, journeys.get(2).getTotalPrice(), 0.001);
+        assertEquals(3, journeys.get(2).getTransports().size());
+    }
+
+    @Test
+    void testFindJourneysTopK_ByDuration_ShouldRankFastestFirst() {
+        //ARRANGE
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Trip> journeys = transportService.findJourneys("Bordeaux", "Nice", departureDate, null, "DURATION", 10);
+
+        //ASSERT
+        // Only four journeys exist, so a larger k returns all of them
+        assertEquals(4, journeys.size());
+        assertEquals(270, journeys.get(0).getTotalDuration());
+        for (int i = 1; i < journeys.size(); i++) {
+            assertTrue(journeys.get(i - 1).getTotalDuration() <= journeys.get(i).getTotalDuration());
+        }
+    }
+
+    @Test
+    void testFindJourneysTopK_WithZeroK_ShouldReturnEmpty() {
+        //ARRANGE
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        List<Trip> journeys = transportService.findJourneys("Bordeaux", "Nice", departureDate, null, "PRICE", 0);
+
+        //ASSERT
+        assertTrue(journeys.isEmpty());
+    }
+
+    @Test
+    void testFindJourneys_ShouldCountCreatedAndPrunedLabels() {
+        //ARRANGE
+        JsonTransportService service = new JsonTransportService("data/transports.json");
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        //ACT
+        service.findJourneys("Bordeaux", "Nice", departureDate, null);
+        service.findJourneys("Bordeaux", "Nice", departureDate, null, "PRICE", 2);
+
+        //ASSERT
+        SearchStats stats = service.getSearchStats();
+        assertEquals(2, stats.getSearches());
+        assertTrue(stats.getLabelsCreated() > 0);
+        assertTrue(stats.getLabelsPruned() > 0);
+    }
+
+    @Test
+    void testFindBestJourneysByDate_ShouldMatchTheBestJourneyOfEachDay() {
+        //ARRANGE
+        LocalDate firstDate = LocalDate.of(2026, 2, 7);
+        LocalDate lastDate = LocalDate.of(2026, 2, 13);
+
+        for (String priority : List.of("PRICE", "DURATION")) {
+            //ACT
+            Map<LocalDate, Trip> calendar = transportService.findBestJourneysByDate("Bordeaux", "Nice",
+                firstDate, lastDate, null, priority);
+
+            //ASSERT
+            assertFalse(calendar.isEmpty());
+            for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+                List<Trip> best = transportService.findJourneys("Bordeaux", "Nice", date.atStartOfDay(), null, priority, 1);
+                if (best.isEmpty()) {
+                    // Days without any journey are left out of the calendar
+                    assertFalse(calendar.containsKey(date), date.toString());
+                } else {
+                    Trip trip = calendar.get(date);
+                    assertNotNull(trip, date.toString());
+                    assertEquals(best.get(0).getTotalPrice(), trip.getTotalPrice(), 0.001);
+                    assertEquals(best.get(0).getTotalDuration(), trip.getTotalDuration());
+                    assertEquals(date, trip.getTransports().get(0).getDepartureDateTime().toLocalDate());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindBestJourneysByDate_UnknownCity_ShouldReturnEmpty() {
+        //ACT
+        Map<LocalDate, Trip> calendar = transportService.findBestJourneysByDate("Bordeaux", "Atlantis",
+            LocalDate.of(2026, 2, 7), LocalDate.of(2026, 2, 13), null, "PRICE");
+
+        //ASSERT
+        assertTrue(calendar.isEmpty());
+    }
+
+    @Test
+    void testFindMinPrices_ShouldMatchTheBestJourneyByPriceOfEachDay() {
+        //ARRANGE
+        LocalDate firstDate = LocalDate.of(2026, 2, 7);
+        LocalDate lastDate = LocalDate.of(2026, 2, 22);
+        List<String> cities = List.of("Bordeaux", "Paris", "Lyon", "Nice", "Marseille", "Toulouse", "Lille", "Bruxelles");
+        JsonTransportService service = new JsonTransportService("data/transports.json");
+        service.prepareMinPrices().join();
+        Arrays.asList(null, "TRAIN", "plane").forEach(mode -> {
+            for (String from : cities) {
+                for (String to : cities) {
+                    //ACT
+                    Map<LocalDate, Double> prices = service.findMinPrices(from, to, firstDate, lastDate, mode);
+                    Map<LocalDate, Trip> best = service.findBestJourneysByDate(from, to, firstDate, lastDate,
+                        mode, "PRICE");
+
+                    //ASSERT
+                    assertEquals(best.keySet(), prices.keySet(), from + " -> " + to + " " + mode);
+                    best.forEach((date, trip) -> assertEquals(trip.getTotalPrice(), prices.get(date), 0.001));
+                }
+            }
+        });
+    }
+
+    @Test
+    void testFindMinPrices_AfterChanges_ShouldMatchCatalogLoadedWithTheChanges(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Transport train = transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 80.0);
+        Transport toNice = transport("Paris", "Nice", "2026-02-10T13:00", "2026-02-10T19:00", "TRAIN", 100.0);
+        Transport nextDay = transport("Paris", "Nice", "2026-02-11T13:00", "2026-02-11T19:00", "TRAIN", 90.0);
+        Transport cheaperTrain = transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 65.0);
+        Transport cheaperToNice = transport("Paris", "Nice", "2026-02-11T15:00", "2026-02-11T21:00", "TRAIN", 40.0);
+        Path base = dir.resolve("base.json");
+        Path expected = dir.resolve("expected.json");
+        Files.writeString(base, json(train, toNice, nextDay));
+        Files.writeString(expected, json(cheaperTrain, toNice, nextDay, cheaperToNice));
+        LocalDate firstDate = LocalDate.of(2026, 2, 10);
+        LocalDate lastDate = LocalDate.of(2026, 2, 11);
+
+        try (JsonTransportService service = new JsonTransportService(base, false, new CityRegistry());
+             JsonTransportService reloaded = new JsonTransportService(expected, false, new CityRegistry())) {
+            service.prepareMinPrices().join();
+            reloaded.prepareMinPrices().join();
+            Map<LocalDate, Double> before = service.findMinPrices("Bordeaux", "Nice", firstDate, lastDate, null);
+
+            //ACT
+            service.applyChanges(List.of(
+                new TransportChange(TransportChange.Operation.UPDATE, cheaperTrain),
+                new TransportChange(TransportChange.Operation.INSERT, cheaperToNice)));
+            service.prepareMinPrices().join();
+
+            //ASSERT
+            assertEquals(Map.of(firstDate, 170.0), before);
+            assertEquals(Map.of(firstDate, 105.0), service.findMinPrices("Bordeaux", "Nice", firstDate, lastDate, null));
+            for (String from : List.of("Bordeaux", "Paris", "Nice")) {
+                for (String to : List.of("Bordeaux", "Paris", "Nice")) {
+                    assertEquals(reloaded.findMinPrices(from, to, firstDate, lastDate, null),
+                        service.findMinPrices(from, to, firstDate, lastDate, null), from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindMinPrices_RandomBatches_ShouldMatchTheBestJourneyByPriceOfEachDay(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Random random = new Random(11);
+        List<String> cities = List.of("Bordeaux", "Paris", "Lyon", "Nice", "Lille");
+        List<Transport> transports = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            transports.add(randomTransport(random, cities));
+        }
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(transports.toArray(new Transport[0])));
+        LocalDate firstDate = LocalDate.of(2026, 2, 10);
+        LocalDate lastDate = LocalDate.of(2026, 2, 12);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            service.prepareMinPrices().join();
+            for (int batch = 0; batch < 40; batch++) {
+                List<TransportChange> changes = new ArrayList<>();
+                for (int c = 0; c < 1 + random.nextInt(4); c++) {
+                    Transport t = random.nextInt(3) == 0
+                        ? randomTransport(random, cities)
+                        : transports.get(random.nextInt(transports.size()));
+                    TransportChange.Operation operation = TransportChange.Operation.values()[random.nextInt(3)];
+                    if (operation != TransportChange.Operation.DELETE) {
+                        t = new Transport(t.getDepartureCity(), t.getArrivalCity(), t.getDepartureDateTime(),
+                            t.getDepartureDateTime().plusMinutes(30 + 30 * random.nextInt(8)), t.getMode(),
+                            5 + 5 * random.nextInt(6));
+                        transports.add(t);
+                    }
+                    changes.add(new TransportChange(operation, t));
+                }
+
+                //ACT
+                service.applyChanges(changes);
+                service.prepareMinPrices().join();
+
+                //ASSERT
+                for (String mode : Arrays.asList(null, "TRAIN")) {
+                    for (String from : cities) {
+                        for (String to : cities) {
+                            Map<LocalDate, Double> expected = new TreeMap<>();
+                            service.findBestJourneysByDate(from, to, firstDate, lastDate, mode, "PRICE")
+                                .forEach((date, trip) -> expected.put(date, trip.getTotalPrice()));
+                            assertEquals(expected, service.findMinPrices(from, to, firstDate, lastDate, mode),
+                                "batch " + batch + ": " + from + " -> " + to + " " + mode);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindJourneysTopK_WithCityLocations_ShouldMatchSearchWithout() {
+        //ARRANGE
+        JsonTransportService guided = new JsonTransportService("data/transports.json");
+        JsonTransportService plain = new JsonTransportService("data/transports.json");
+        plain.setCityLocations(CityLocations.empty());
+        List<String> cities = List.of("Bordeaux", "Paris", "Lyon", "Nice", "Marseille", "Toulouse", "Lille", "Bruxelles");
+
+        for (String from : cities) {
+            for (String to : cities) {
+                for (String priority : List.of("PRICE", "DURATION")) {
+                    //ACT
+                    List<Trip> expected = plain.findJourneys(from, to, null, null, priority, 5);
+                    List<Trip> actual = guided.findJourneys(from, to, null, null, priority, 5);
+
+                    //ASSERT
+                    assertEquals(expected.toString(), actual.toString(), from + " -> " + to + " " + priority);
+                }
+            }
+        }
+        // The bounds only skip partial journeys that cannot be among the best
+        assertEquals(plain.getSearchStats().getSearches(), guided.getSearchStats().getSearches());
+        assertTrue(guided.getSearchStats().getLabelsCreated() < plain.getSearchStats().getLabelsCreated());
+    }
+
+    @Test
+    void testCityLocations_ShouldReadBundledTableCaseInsensitively() {
+        //ACT
+        CityLocations locations = CityLocations.bundled();
+
+        //ASSERT
+        assertNotNull(locations.locate("Paris"));
+        assertEquals(locations.locate("Paris").getLatitude(), locations.locate(" PARIS ").getLatitude(), 0.0);
+        assertNull(locations.locate("Atlantis"));
+        assertEquals(0, CityLocations.fromResource("data/missing.json").size());
+    }
+
+    @Test
+    void testFindTransports_CityRegisteredElsewhere_ShouldKeepTheSpellingOfTheFile(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        CityRegistry cities = new CityRegistry();
+        cities.register(" BORDEAUX ");
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(
+            transport("Bordeaux", "Paris", "2026-02-10T06:00", "2026-02-10T08:00", "TRAIN", 50.0)));
+
+        try (JsonTransportService service = new JsonTransportService(file, false, cities)) {
+            //ACT
+            List<Transport> result = service.findTransports("bordeaux", "paris", LocalDateTime.of(2026, 2, 10, 6, 0), null);
+
+            //ASSERT
+            assertEquals(1, result.size());
+            assertEquals("Bordeaux", result.get(0).getDepartureCity());
+            assertEquals("Paris", result.get(0).getArrivalCity());
+        }
+    }
+
+    @Test
+    void testFindJourneys_PairBeyondMaxLegs_ShouldReturnWithoutSearching(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        // Bordeaux -> Paris -> Lille -> Bruxelles -> Eindhoven: Eindhoven needs 4 legs
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(
+            transport("Bordeaux", "Paris", "2026-02-10T06:00", "2026-02-10T08:00", "TRAIN", 50.0),
+            transport("Paris", "Lille", "2026-02-10T10:00", "2026-02-10T11:00", "TRAIN", 30.0),
+            transport("Lille", "Bruxelles", "2026-02-10T13:00", "2026-02-10T14:00", "TRAIN", 20.0),
+            transport("Bruxelles", "Eindhoven", "2026-02-10T16:00", "2026-02-10T17:30", "TRAIN", 25.0)));
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 6, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            List<Transport> tooFar = service.findTransports("Bordeaux", "Eindhoven", departureDate, null);
+            List<Trip> tooFarJourneys = service.findJourneys("Bordeaux", "Eindhoven", departureDate, null);
+            List<Trip> tooFarBest = service.findJourneys("Bordeaux", "Eindhoven", departureDate, "TRAIN", "PRICE", 3);
+            long searchesBefore = service.getSearchStats().getSearches();
+            List<Trip> reachable = service.findJourneys("Bordeaux", "Bruxelles", departureDate, null);
+
+            //ASSERT
+            assertTrue(tooFar.isEmpty());
+            assertTrue(tooFarJourneys.isEmpty());
+            assertTrue(tooFarBest.isEmpty());
+            assertEquals(0, searchesBefore);
+            assertEquals(1, reachable.size());
+            assertEquals(3, reachable.get(0).getTransports().size());
+        }
+    }
+
+    @Test
+    void testFindJourneys_DeparturesAtTheBoundsOfTheWindow_ShouldBeBinarySearchedExactly(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        // First legs at the first minute of the day, the last minute of the day before and the
+        // first minute of the day after; connections at exactly and just after the minimum
+        // connection time, two of them at the same minute
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(
+            transport("Bordeaux", "Paris", "2026-02-09T23:59", "2026-02-10T00:59", "TRAIN", 1.0),
+            transport("Bordeaux", "Paris", "2026-02-10T00:00", "2026-02-10T01:00", "TRAIN", 10.0),
+            transport("Bordeaux", "Paris", "2026-02-11T00:00", "2026-02-11T01:00", "TRAIN", 5.0),
+            transport("Paris", "Lyon", "2026-02-10T02:00", "2026-02-10T03:00", "TRAIN", 20.0),
+            transport("Paris", "Lyon", "2026-02-10T02:01", "2026-02-10T04:00", "TRAIN", 30.0),
+            transport("Paris", "Lyon", "2026-02-10T02:01", "2026-02-10T03:30", "TRAIN", 25.0),
+            transport("Paris", "Lyon", "2026-02-11T02:01", "2026-02-11T03:00", "TRAIN", 1.0)));
+        LocalDateTime tenth = LocalDateTime.of(2026, 2, 10, 0, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            List<Trip> pareto = service.findJourneys("Bordeaux", "Lyon", tenth, null);
+            List<Trip> byPrice = service.findJourneys("Bordeaux", "Lyon", tenth, null, "PRICE", 5);
+            List<Trip> nextDay = service.findJourneys("Bordeaux", "Lyon", tenth.plusDays(1), null);
+
+            //ASSERT
+            // The first leg of the day can still connect to the train of the next day
+            assertEquals(List.of(11.0, 35.0), pareto.stream().map(Trip::getTotalPrice).collect(Collectors.toList()));
+            assertEquals(tenth, pareto.get(1).getTransports().get(0).getDepartureDateTime());
+            assertEquals(LocalDateTime.of(2026, 2, 10, 3, 30), pareto.get(1).getTransports().get(1).getArrivalDateTime());
+            assertEquals(List.of(11.0, 35.0, 40.0), byPrice.stream().map(Trip::getTotalPrice).collect(Collectors.toList()));
+            assertEquals(1, nextDay.size());
+            assertEquals(6.0, nextDay.get(0).getTotalPrice(), 0.001);
+        }
+    }
+
+    @Test
+    void testFindLatestDepartures_ShouldReturnJourneysArrivingByTheDeadline(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(
+            transport("Nice", "Bordeaux", "2026-02-14T20:00", "2026-02-14T22:00", "PLANE", 90.0),
+            transport("Nice", "Bordeaux", "2026-02-15T08:00", "2026-02-15T10:00", "PLANE", 120.0),
+            transport("Nice", "Paris", "2026-02-15T12:00", "2026-02-15T17:30", "TRAIN", 60.0),
+            transport("Paris", "Bordeaux", "2026-02-15T19:00", "2026-02-15T21:00", "TRAIN", 50.0),
+            transport("Paris", "Bordeaux", "2026-02-15T21:00", "2026-02-15T23:30", "TRAIN", 40.0),
+            transport("Nice", "Bordeaux", "2026-02-15T18:00", "2026-02-16T00:30", "TRAIN", 70.0),
+            transport("Nice", "Paris", "2026-02-15T20:00", "2026-02-16T01:30", "TRAIN", 55.0)));
+        LocalDateTime sunday = LocalDateTime.of(2026, 2, 15, 0, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            List<Trip> byMidnight = service.findLatestDepartures("Nice", "Bordeaux", sunday, sunday.withHour(23).withMinute(59), null);
+            List<Trip> byTenPm = service.findLatestDepartures("Nice", "Bordeaux", null, sunday.withHour(22), null);
+            List<Trip> byPlane = service.findLatestDepartures("Nice", "Bordeaux", sunday, sunday.withHour(23).withMinute(59), "PLANE");
+            List<Trip> noTime = service.findLatestDepartures("Nice", "Bordeaux", sunday.withHour(12), sunday.withHour(11), null);
+
+            //ASSERT
+            // Latest departure first; after the first leg, the latest connection still in time
+            assertEquals(2, byMidnight.size());
+            List<Transport> train = byMidnight.get(0).getTransports();
+            assertEquals(2, train.size());
+            assertEquals(LocalDateTime.of(2026, 2, 15, 12, 0), train.get(0).getDepartureDateTime());
+            assertEquals(LocalDateTime.of(2026, 2, 15, 23, 30), train.get(1).getArrivalDateTime());
+            assertEquals(LocalDateTime.of(2026, 2, 15, 8, 0), byMidnight.get(1).getTransports().get(0).getDepartureDateTime());
+
+            assertEquals(2, byTenPm.size());
+            assertEquals(LocalDateTime.of(2026, 2, 15, 21, 0), byTenPm.get(0).getTransports().get(1).getArrivalDateTime());
+
+            assertEquals(1, byPlane.size());
+            assertEquals("PLANE", byPlane.get(0).getTransports().get(0).getMode());
+            assertTrue(noTime.isEmpty());
+        }
+    }
+
+    @Test
+    void testFindTransports_RouteWithSeveralPatterns_ShouldKeepDepartureOrder(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        // Same route, trips with different prices, durations and modes
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(
+            transport("Paris", "Lyon", "2026-02-10T12:00", "2026-02-10T14:00", "TRAIN", 60.0),
+            transport("Paris", "Lyon", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 60.0),
+            transport("Paris", "Lyon", "2026-02-10T10:00", "2026-02-10T12:30", "TRAIN", 45.0),
+            transport("Paris", "Lyon", "2026-02-10T09:00", "2026-02-10T10:00", "PLANE", 90.0),
+            transport("Paris", "Lyon", "2026-02-11T08:00", "2026-02-11T10:00", "TRAIN", 60.0)));
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 0, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            List<Transport> all = service.findTransports("Paris", "Lyon", departureDate, null);
+            service.applyChanges(List.of(new TransportChange(TransportChange.Operation.INSERT,
+                new Transport("Paris", "Lyon", departureDate.withHour(11), departureDate.withHour(13).withMinute(30), "TRAIN", 45.0))));
+            List<Transport> trains = service.findTransports("Paris", "Lyon", departureDate, "TRAIN");
+
+            //ASSERT
+            assertEquals(List.of(8, 9, 10, 12), all.stream().map(t -> t.getDepartureDateTime().getHour()).collect(Collectors.toList()));
+            assertEquals(LocalDateTime.of(2026, 2, 10, 12, 30), all.get(2).getArrivalDateTime());
+            assertEquals(45.0, all.get(2).getPrice(), 0.001);
+            assertEquals(List.of(8, 10, 11, 12), trains.stream().map(t -> t.getDepartureDateTime().getHour()).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testParallelModeSearch_ShouldMatchSequentialSearch() {
+        //ARRANGE
+        JsonTransportService sequential = new JsonTransportService("data/transports.json");
+        sequential.setParallelModeSearch(null, 0);
+        JsonTransportService parallel = new JsonTransportService("data/transports.json");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        parallel.setParallelModeSearch(executor, 0);
+        List<String> cities = List.of("Bordeaux", "Paris", "Lyon", "Nice", "Marseille", "Toulouse", "Lille", "Bruxelles");
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        try {
+            for (String from : cities) {
+                for (String to : cities) {
+                    //ACT / ASSERT
+                    String pair = from + " -> " + to;
+                    assertEquals(sequential.findTransports(from, to, departureDate, null).toString(),
+                        parallel.findTransports(from, to, departureDate, null).toString(), pair);
+                    assertEquals(sequential.findJourneys(from, to, null, null).toString(),
+                        parallel.findJourneys(from, to, null, null).toString(), pair);
+                    assertEquals(sequential.findJourneys(from, to, null, null, "DURATION", 3).toString(),
+                        parallel.findJourneys(from, to, null, null, "DURATION", 3).toString(), pair);
+                    assertEquals(sequential.findBestJourneysByDate(from, to, departureDate.toLocalDate(),
+                            departureDate.toLocalDate().plusDays(3), null, "PRICE").toString(),
+                        parallel.findBestJourneysByDate(from, to, departureDate.toLocalDate(),
+                            departureDate.toLocalDate().plusDays(3), null, "PRICE").toString(), pair);
+                }
+            }
+            // A split search still counts as one search
+            assertEquals(sequential.getSearchStats().getSearches(), parallel.getSearchStats().getSearches());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testHotReload_ShouldSwapSnapshotWhenFileChanges(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Path file = dir.resolve("transports.json");
+        String row = "{\"departureCity\": \"Bordeaux\", \"arrivalCity\": \"Paris\", "
+            + "\"departureDateTime\": \"2026-02-10T08:00:00\", \"arrivalDateTime\": \"2026-02-10T10:00:00\", "
+            + "\"mode\": \"TRAIN\", \"price\": %s}";
+        Files.writeString(file, "[" + String.format(row, "80.0") + "]");
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, true)) {
+            List<Transport> before = service.findTransports("Bordeaux", "Paris", departureDate, null);
+
+            //ACT
+            Files.writeString(file, "[" + String.format(row, "55.0") + "]");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (service.getSnapshotVersion() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            List<Transport> after = service.findTransports("Bordeaux", "Paris", departureDate, null);
+
+            //ASSERT
+            assertEquals(80.0, before.get(0).getPrice(), 0.001);
+            assertEquals(2, service.getSnapshotVersion());
+            assertEquals(55.0, after.get(0).getPrice(), 0.001);
+        }
+    }
+
+    private static Transport transport(String from, String to, String departure, String arrival, String mode, double price) {
+        return new Transport(from, to, LocalDateTime.parse(departure), LocalDateTime.parse(arrival), mode, price);
+    }
+
+    private static String json(Transport... transports) {
+        StringBuilder json = new StringBuilder("[");
+        for (Transport t : transports) {
+            json.append(json.length() > 1 ? "," : "").append(String.format(Locale.ROOT,
+                "{\"departureCity\": \"%s\", \"arrivalCity\": \"%s\", \"departureDateTime\": \"%s\", "
+                    + "\"arrivalDateTime\": \"%s\", \"mode\": \"%s\", \"price\": %s}",
+                t.getDepartureCity(), t.getArrivalCity(), t.getDepartureDateTime(), t.getArrivalDateTime(),
+                t.getMode(), t.getPrice()));
+        }
+        return json.append("]").toString();
+    }
+
+    @Test
+    void testApplyChanges_ShouldMatchCatalogLoadedWithTheChanges(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Transport train = transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 80.0);
+        Transport plane = transport("Bordeaux", "Paris", "2026-02-10T09:00", "2026-02-10T10:30", "PLANE", 120.0);
+        Transport toNice = transport("Paris", "Nice", "2026-02-10T13:00", "2026-02-10T19:00", "TRAIN", 100.0);
+        Transport cheaperTrain = transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 65.0);
+        Transport planeToNice = transport("Paris", "Nice", "2026-02-10T12:00", "2026-02-10T13:30", "PLANE", 90.0);
+        Transport toRome = transport("Nice", "Rome", "2026-02-11T09:00", "2026-02-11T10:30", "PLANE", 70.0);
+        Path base = dir.resolve("base.json");
+        Path expected = dir.resolve("expected.json");
+        Files.writeString(base, json(train, plane, toNice));
+        Files.writeString(expected, json(cheaperTrain, planeToNice, toNice, toRome));
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        try (JsonTransportService service = new JsonTransportService(base, false, new CityRegistry());
+             JsonTransportService reloaded = new JsonTransportService(expected, false, new CityRegistry())) {
+            List<Transport> before = service.findTransports("Bordeaux", "Paris", departureDate, null);
+
+            //ACT
+            service.applyChanges(List.of(
+                new TransportChange(TransportChange.Operation.UPDATE, cheaperTrain),
+                new TransportChange(TransportChange.Operation.DELETE,
+                    transport("bordeaux", "PARIS", "2026-02-10T09:00", "2026-02-10T09:00", "plane", 0)),
+                new TransportChange(TransportChange.Operation.INSERT, planeToNice),
+                new TransportChange(TransportChange.Operation.INSERT, toRome)));
+
+            //ASSERT
+            assertEquals(2, before.size());
+            assertEquals(2, service.getSnapshotVersion());
+            assertEquals(reloaded.findTransports(null, null, null, null).toString(),
+                service.findTransports(null, null, null, null).toString());
+            assertEquals(List.of(cheaperTrain).toString(),
+                service.findTransports("Bordeaux", "Paris", departureDate, null).toString());
+            assertTrue(service.findTransports("Bordeaux", "Paris", departureDate, "PLANE").isEmpty());
+            assertEquals(reloaded.findTransports("Bordeaux", "Rome", departureDate, null).toString(),
+                service.findTransports("Bordeaux", "Rome", departureDate, null).toString());
+            assertEquals(reloaded.findJourneys("Bordeaux", "Nice", departureDate, null).toString(),
+                service.findJourneys("Bordeaux", "Nice", departureDate, null).toString());
+        }
+    }
+
+    @Test
+    void testApplyChanges_RandomBatches_ShouldMatchCatalogLoadedWithTheChanges(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Random random = new Random(7);
+        List<String> cities = List.of("Bordeaux", "Paris", "Lyon", "Nice", "Lille");
+        List<Transport> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(randomTransport(random, cities.subList(0, 4))); // Lille only comes with the changes
+        }
+        Path base = dir.resolve("base.json");
+        Path reloadedFile = dir.resolve("expected.json");
+        Files.writeString(base, json(expected.toArray(new Transport[0])));
+        LocalDate firstDate = LocalDate.of(2026, 2, 10);
+        LocalDate lastDate = LocalDate.of(2026, 2, 12);
+
+        try (JsonTransportService service = new JsonTransportService(base, false, new CityRegistry())) {
+            for (int batch = 0; batch < 40; batch++) {
+                List<TransportChange> changes = new ArrayList<>();
+                for (int c = 0; c < 1 + random.nextInt(6); c++) {
+                    Transport t = random.nextInt(3) == 0 || expected.isEmpty()
+                        ? randomTransport(random, cities)
+                        : expected.get(random.nextInt(expected.size()));
+                    TransportChange.Operation operation = TransportChange.Operation.values()[random.nextInt(3)];
+                    if (operation != TransportChange.Operation.DELETE) {
+                        t = new Transport(t.getDepartureCity(), t.getArrivalCity(), t.getDepartureDateTime(),
+                            t.getDepartureDateTime().plusMinutes(30 + 30 * random.nextInt(8)), t.getMode(),
+                            10 + 5 * random.nextInt(4));
+                    }
+                    Transport changed = t;
+                    if (operation != TransportChange.Operation.INSERT) {
+                        expected.removeIf(other -> other.getDepartureDateTime().equals(changed.getDepartureDateTime())
+                            && other.getDepartureCity().equals(changed.getDepartureCity())
+                            && other.getArrivalCity().equals(changed.getArrivalCity())
+                            && other.getMode().equals(changed.getMode()));
+                    }
+                    if (operation != TransportChange.Operation.DELETE) {
+                        expected.add(changed);
+                    }
+                    changes.add(new TransportChange(operation, changed));
+                }
+                Files.writeString(reloadedFile, json(expected.toArray(new Transport[0])));
+
+                //ACT
+                service.applyChanges(changes);
+
+                //ASSERT
+                try (JsonTransportService reloaded = new JsonTransportService(reloadedFile, false, new CityRegistry())) {
+                    assertEquals(reloaded.findTransports(null, null, null, null).toString(),
+                        service.findTransports(null, null, null, null).toString(), "batch " + batch);
+                    for (String from : cities) {
+                        for (String to : cities) {
+                            LocalDateTime departureDate = firstDate.atTime(6, 0);
+                            assertEquals(reloaded.findJourneys(from, to, departureDate, null).toString(),
+                                service.findJourneys(from, to, departureDate, null).toString(), from + " -> " + to);
+                            assertEquals(reloaded.findJourneys(from, to, departureDate, null, "PRICE", 3).toString(),
+                                service.findJourneys(from, to, departureDate, null, "PRICE", 3).toString());
+                            assertEquals(reloaded.findBestJourneysByDate(from, to, firstDate, lastDate, null, "PRICE").toString(),
+                                service.findBestJourneysByDate(from, to, firstDate, lastDate, null, "PRICE").toString());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testApplyChanges_FasterConnection_ShouldRaiseTheSpeedBoundOfTheSearch(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Transport direct = transport("Bordeaux", "Lyon", "2026-02-10T08:00", "2026-02-10T17:00", "TRAIN", 90.0);
+        Transport toParis = transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T14:00", "TRAIN", 60.0);
+        Transport fastToLyon = transport("Paris", "Lyon", "2026-02-10T15:30", "2026-02-10T16:00", "TRAIN", 20.0);
+        Path file = dir.resolve("transports.json");
+        Files.writeString(file, json(direct, toParis));
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            service.applyChanges(List.of(new TransportChange(TransportChange.Operation.INSERT, fastToLyon)));
+            List<Trip> fastest = service.findJourneys("Bordeaux", "Lyon", departureDate, null, "DURATION", 1);
+
+            //ASSERT
+            assertEquals(1, fastest.size());
+            assertEquals(List.of(toParis, fastToLyon).toString(), fastest.get(0).getTransports().toString());
+        }
+    }
+
+    /**
+     * Transport on a half hour of three days, so that departures often share a minute.
+     */
+    private static Transport randomTransport(Random random, List<String> cities) {
+        String from = cities.get(random.nextInt(cities.size()));
+        String to = cities.get(random.nextInt(cities.size()));
+        while (to.equals(from)) {
+            to = cities.get(random.nextInt(cities.size()));
+        }
+        LocalDateTime departure = LocalDateTime.of(2026, 2, 10 + random.nextInt(3), 6 + random.nextInt(14),
+            30 * random.nextInt(2));
+        return new Transport(from, to, departure, departure.plusMinutes(30 + 30 * random.nextInt(8)),
+            random.nextBoolean() ? "TRAIN" : "PLANE", 10 + 5 * random.nextInt(4));
+    }
+
+    @Test
+    void testApplyChangeLog_LogLargerThanOneChunk_ShouldApplyEveryLine(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Path file = dir.resolve("transports.json");
+        Path changeLog = dir.resolve("changes.ndjson");
+        Files.writeString(file, json(transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 80.0)));
+        StringBuilder log = new StringBuilder();
+        LocalDateTime departure = LocalDateTime.of(2026, 2, 10, 0, 0);
+        for (int i = 0; i < 1500; i++) {
+            log.append("{\"operation\": \"INSERT\", \"transport\": {\"departureCity\": \"Bordeaux\", ")
+                .append("\"arrivalCity\": \"Paris\", \"departureDateTime\": \"").append(departure.plusMinutes(i))
+                .append("\", \"arrivalDateTime\": \"").append(departure.plusMinutes(i + 120))
+                .append("\", \"mode\": \"TRAIN\", \"price\": 50.0}}\n");
+        }
+        Files.writeString(changeLog, log);
+
+        try (JsonTransportService service = new JsonTransportService(file, false, new CityRegistry())) {
+            //ACT
+            long offset = service.applyChangeLog(changeLog, 0);
+
+            //ASSERT
+            assertTrue(Files.size(changeLog) > 3 * 64 * 1024);
+            assertEquals(Files.size(changeLog), offset);
+            assertEquals(1501, service.findTransports("Bordeaux", "Paris", null, null).size());
+        }
+    }
+
+    @Test
+    void testApplyChangeLog_ShouldOnlyApplyCompleteNewLines(@TempDir Path dir) throws Exception {
+        //ARRANGE
+        Path file = dir.resolve("transports.json");
+        Path changeLog = dir.resolve("changes.ndjson");
+        Files.writeString(file, json(transport("Bordeaux", "Paris", "2026-02-10T08:00", "2026-02-10T10:00", "TRAIN", 80.0)));
+        String insert = "{\"operation\": \"INSERT\", \"transport\": "
+            + "{\"departureCity\": \"Bordeaux\", \"arrivalCity\": \"Paris\", \"departureDateTime\": \"%s\", "
+            + "\"arrivalDateTime\": \"2026-02-10T23:00:00\", \"mode\": \"TRAIN\", \"price\": 50.0}}";
+        Files.writeString(changeLog, String.format(insert, "2026-02-10T18:00:00") + "\n"
+            + String.format(insert, "2026-02-10T19:00:00").substring(0, 40));
+        LocalDateTime departureDate = LocalDateTime.of(2026, 2, 10, 8, 0);
+
+        try (JsonTransportService service = new JsonTransportService(file, false)) {
+            //ACT
+            long offset = service.applyChangeLog(changeLog, 0);
+            int afterFirstRead = service.findTransports("Bordeaux", "Paris", departureDate, null).size();
+            Files.writeString(changeLog, String.format(insert, "2026-02-10T18:00:00") + "\n"
+                + String.format(insert, "2026-02-10T19:00:00") + "\n");
+            long next = service.applyChangeLog(changeLog, offset);
+
+            //ASSERT
+            assertEquals(2, afterFirstRead);
+            assertEquals(Files.size(changeLog), next);
+            assertEquals(3, service.findTransports("Bordeaux", "Paris", departureDate, null).size());
+            assertEquals(next, service.applyChangeLog(changeLog, next));
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package fr.univ.holitrip.testhelpers.data;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic generator of large GTFS feeds for benchmarks.
+ * Cities are named "City0", "City1", ...; each line stops at random cities and runs trips
+ * every day, on weekdays or at weekends from {@link SyntheticTimetable#FIRST_DAY} for the
+ * given number of days. Stop times carry a cumulative "price" column.
+ */
+public class SyntheticGtfsFeed {
+    private static final DateTimeFormatter GTFS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private SyntheticGtfsFeed() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * @param directory directory receiving the feed files
+     * @param cities number of cities
+     * @param lines number of lines (routes)
+     * @param stopsPerLine cities visited by each trip
+     * @param tripsPerLine trips of each line
+     * @param days number of days of the calendar
+     * @param seed random seed
+     */
+    public static void write(Path directory, int cities, int lines, int stopsPerLine, int tripsPerLine, int days,
+                             long seed) throws IOException {
+        Random random = new Random(seed);
+        Files.createDirectories(directory);
+        try (Writer out = writer(directory, "stops.txt")) {
+            out.write("stop_id,stop_name\n");
+            for (int city = 0; city < cities; city++) {
+                out.write("S" + city + ",City" + city + "\n");
+            }
+        }
+        String start = GTFS_DATE.format(SyntheticTimetable.FIRST_DAY);
+        String end = GTFS_DATE.format(SyntheticTimetable.FIRST_DAY.plusDays(days - 1L));
+        try (Writer out = writer(directory, "calendar.txt")) {
+            out.write("service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date\n");
+            out.write("DAILY,1,1,1,1,1,1,1," + start + "," + end + "\n");
+            out.write("WEEKDAYS,1,1,1,1,1,0,0," + start + "," + end + "\n");
+            out.write("WEEKENDS,0,0,0,0,0,1,1," + start + "," + end + "\n");
+        }
+        String[] services = {"DAILY", "WEEKDAYS", "WEEKENDS"};
+        try (Writer routes = writer(directory, "routes.txt");
+             Writer trips = writer(directory, "trips.txt");
+             Writer stopTimes = writer(directory, "stop_times.txt")) {
+            routes.write("route_id,route_type\n");
+            trips.write("route_id,service_id,trip_id\n");
+            stopTimes.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence,price\n");
+            int[] stops = new int[stopsPerLine];
+            int[] hops = new int[stopsPerLine];
+            for (int line = 0; line < lines; line++) {
+                boolean bus = random.nextInt(3) == 0;
+                routes.write("L" + line + "," + (bus ? 3 : 2) + "\n");
+                for (int s = 0; s < stopsPerLine; s++) {
+                    stops[s] = random.nextInt(cities);
+                    hops[s] = 20 + random.nextInt(70);
+                }
+                for (int trip = 0; trip < tripsPerLine; trip++) {
+                    String tripId = "L" + line + "T" + trip;
+                    trips.write("L" + line + "," + services[random.nextInt(services.length)] + "," + tripId + "\n");
+                    int minute = 5 * 60 + random.nextInt(17 * 60);
+                    int cents = 0;
+                    for (int s = 0; s < stopsPerLine; s++) {
+                        if (s > 0) {
+                            minute += hops[s];
+                            cents += hops[s] * (bus ? 8 : 15);
+                        }
+                        String arrival = time(minute);
+                        String departure = time(s > 0 && s < stopsPerLine - 1 ? minute + 2 : minute);
+                        stopTimes.write(String.format(Locale.ROOT, "%s,%s,%s,S%d,%d,%.2f%n", tripId, arrival,
+                            departure, stops[s], s + 1, cents / 100.0));
+                        if (s > 0 && s < stopsPerLine - 1) {
+                            minute += 2;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Writer writer(Path directory, String file) throws IOException {
+        return Files.newBufferedWriter(directory.resolve(file), StandardCharsets.UTF_8);
+    }
+
+    private static String time(int minute) {
+        return String.format(Locale.ROOT, "%02d:%02d:00", minute / 60, minute % 60);
+    }
+}
@@ -0,0 +1,102 @@
+package fr.univ.holitrip.testhelpers.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import fr.univ.holitrip.model.Transport;
+
+/**
+ * Deterministic generator of large, hub-heavy timetables for benchmarks.
+ * Cities are named "City0", "City1", ...; the first {@code hubs} cities receive
+ * half of all arrivals so that connections concentrate on them.
+ */
+public class SyntheticTimetable {
+    public static final LocalDate FIRST_DAY = LocalDate.of(2026, 2, 10);
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private SyntheticTimetable() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * @param cities number of cities
+     * @param hubs number of hub cities (at least 1)
+     * @param days number of consecutive days starting at {@link #FIRST_DAY}
+     * @param departuresPerCityPerDay departures generated for each city and day
+     * @param seed random seed
+     */
+    public static List<Transport> generate(int cities, int hubs, int days, int departuresPerCityPerDay, long seed) {
+        List<Transport> transports = new ArrayList<>(cities * days * departuresPerCityPerDay);
+        forEach(cities, hubs, days, departuresPerCityPerDay, seed, transports::add);
+        return transports;
+    }
+
+    /**
+     * Writes the same timetable as {@link #generate} as a JSON array, one row per line,
+     * without keeping the rows in memory.
+     */
+    public static void writeJson(Writer out, int cities, int hubs, int days, int departuresPerCityPerDay, long seed)
+            throws IOException {
+        writeJson(out, sink -> forEach(cities, hubs, days, departuresPerCityPerDay, seed, sink));
+    }
+
+    /**
+     * Writes transports as a JSON array, one row per line, in the order the source gives them.
+     *
+     * @param source passes each transport to the consumer it is given
+     */
+    public static void writeJson(Writer out, Consumer<Consumer<Transport>> source) throws IOException {
+        out.write("[\n");
+        boolean[] first = {true};
+        try {
+            source.accept(t -> {
+                try {
+                    out.write(first[0] ? "  " : ",\n  ");
+                    first[0] = false;
+                    out.write(String.format(Locale.ROOT,
+                        "{\"departureCity\": \"%s\", \"arrivalCity\": \"%s\", \"departureDateTime\": \"%s\", "
+                            + "\"arrivalDateTime\": \"%s\", \"mode\": \"%s\", \"price\": %.2f}",
+                        t.getDepartureCity(), t.getArrivalCity(), ISO.format(t.getDepartureDateTime()),
+                        ISO.format(t.getArrivalDateTime()), t.getMode(), t.getPrice()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.write("\n]\n");
+    }
+
+    private static void forEach(int cities, int hubs, int days, int departuresPerCityPerDay, long seed,
+                                Consumer<Transport> sink) {
+        Random random = new Random(seed);
+        for (int day = 0; day < days; day++) {
+            LocalDate date = FIRST_DAY.plusDays(day);
+            for (int from = 0; from < cities; from++) {
+                for (int d = 0; d < departuresPerCityPerDay; d++) {
+                    int to = random.nextBoolean() ? random.nextInt(hubs) : random.nextInt(cities);
+                    if (to == from) {
+                        to = (to + 1) % cities;
+                    }
+                    boolean plane = random.nextInt(3) == 0;
+                    LocalDateTime departure = date.atTime(5 + random.nextInt(17), random.nextInt(4) * 15);
+                    int minutes = plane ? 60 + random.nextInt(90) : 60 + random.nextInt(300);
+                    double price = plane ? 80 + random.nextInt(150) : 20 + random.nextInt(100);
+                    sink.accept(new Transport("City" + from, "City" + to, departure,
+                        departure.plusMinutes(minutes), plane ? "PLANE" : "TRAIN", price));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fr.univ.holitrip.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class CityRegistryTest {
+
+    @Test
+    void testRegister_SameCityDifferentCase_ShouldShareId() {
+        // ARRANGE
+        CityRegistry registry = new CityRegistry();
+
+        // ACT
+        int paris = registry.register("Paris");
+        int lowerCase = registry.register("paris");
+        int padded = registry.register("  PARIS ");
+
+        // ASSERT
+        assertEquals(paris, lowerCase);
+        assertEquals(paris, padded);
+        assertEquals(1, registry.size());
+        assertEquals("Paris", registry.nameOf(paris));
+    }
+
+    @Test
+    void testRegister_ShouldAssignDenseIds() {
+        // ARRANGE
+        CityRegistry registry = new CityRegistry();
+
+        // ACT
+        int bordeaux = registry.register("Bordeaux");
+        int lyon = registry.register("Lyon");
+
+        // ASSERT
+        assertEquals(0, bordeaux);
+        assertEquals(1, lyon);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void testFind_UnknownOrNullCity_ShouldReturnMinusOne() {
+        // ARRANGE
+        CityRegistry registry = new CityRegistry();
+        registry.register("Nice");
+
+        // ASSERT
+        assertEquals(-1, registry.find("Copenhagen"));
+        assertEquals(-1, registry.find(null));
+        assertEquals(-1, registry.register(null));
+        assertEquals(0, registry.find("NICE"));
+        assertEquals(1, registry.size(), "find must not register the city");
+    }
+
+    @Test
+    void testNameOf_UnknownId_ShouldThrow() {
+        // ARRANGE
+        CityRegistry registry = new CityRegistry();
+
+        // ASSERT
+        assertThrows(IllegalArgumentException.class, () -> registry.nameOf(0));
+    }
+
+    @Test
+    void testSameCity() {
+        // ASSERT
+        assertTrue(CityRegistry.sameCity("Paris", "PARIS"));
+        assertFalse(CityRegistry.sameCity("Paris", "Lyon"));
+        assertFalse(CityRegistry.sameCity(null, "Paris"));
+        assertFalse(CityRegistry.sameCity(null, null));
+    }
+
+    @Test
+    void testRegister_Concurrent_ShouldNotDuplicateIds() throws Exception {
+        // ARRANGE
+        CityRegistry registry = new CityRegistry();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int c = 0; c < 100; c++) {
+                    ids.add(registry.register("City" + c));
+                }
+            }));
+        }
+
+        // ACT
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        // ASSERT
+        assertEquals(100, registry.size());
+        assertEquals(100, ids.size());
+        for (int c = 0; c < 100; c++) {
+            assertEquals("City" + c, registry.nameOf(registry.find("city" + c)));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package fr.univ.holitrip.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
+import fr.univ.holitrip.util.RoundTripSelector.RoundTrip;
+
+class RoundTripSelectorTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 2, 10, 0, 0);
+
+    private static Trip trip(String from, String to, LocalDateTime departure, int minutes, String mode, double price) {
+        return new Trip(Collections.singletonList(
+            new Transport(from, to, departure, departure.plusMinutes(minutes), mode, price)));
+    }
+
+    @Test
+    void testSelectBestRoundTrip_ShouldSkipPairsThatDoNotConnect() {
+        // ARRANGE
+        // The cheapest outbound arrives after the cheapest return leaves
+        Trip lateCheap = trip("A", "B", DAY.plusDays(3), 120, "TRAIN", 20.0);
+        Trip early = trip("A", "B", DAY.plusHours(8), 120, "TRAIN", 50.0);
+        Trip cheapBack = trip("B", "A", DAY.plusDays(3).plusHours(1), 120, "TRAIN", 20.0);
+        Trip lateBack = trip("B", "A", DAY.plusDays(3).plusHours(18), 120, "TRAIN", 40.0);
+
+        // ACT
+        RoundTrip best = RoundTripSelector.selectBestRoundTrip(Arrays.asList(lateCheap, early),
+            Arrays.asList(cheapBack, lateBack), null, "PRICE", Double.POSITIVE_INFINITY);
+
+        // ASSERT
+        // 20 + 40 beats 50 + 20
+        assertSame(lateCheap, best.getOutbound());
+        assertSame(lateBack, best.getReturn());
+        assertEquals(60.0, best.getTotalPrice(), 0.001);
+    }
+
+    @Test
+    void testSelectBestRoundTrip_ByDuration_ShouldPreferPairsWithinBudget() {
+        // ARRANGE
+        Trip plane = trip("A", "B", DAY.plusHours(8), 60, "PLANE", 200.0);
+        Trip train = trip("A", "B", DAY.plusHours(8), 300, "TRAIN", 60.0);
+        Trip back = trip("B", "A", DAY.plusDays(3), 300, "TRAIN", 60.0);
+
+        // ACT
+        RoundTrip withinBudget = RoundTripSelector.selectBestRoundTrip(Arrays.asList(plane, train),
+            Collections.singletonList(back), null, "DURATION", 150.0);
+        RoundTrip overBudget = RoundTripSelector.selectBestRoundTrip(Arrays.asList(plane, train),
+            Collections.singletonList(back), null, "DURATION", 100.0);
+
+        // ASSERT
+        assertSame(train, withinBudget.getOutbound());
+        // No pair fits: the fastest pair is returned anyway
+        assertSame(plane, overBudget.getOutbound());
+    }
+
+    @Test
+    void testSelectBestRoundTrip_ReturnShouldPreferModeButAcceptAny() {
+        // ARRANGE
+        Trip out = trip("A", "B", DAY.plusHours(8), 120, "TRAIN", 50.0);
+        Trip planeBack = trip("B", "A", DAY.plusDays(3), 60, "PLANE", 30.0);
+        Trip trainBack = trip("B", "A", DAY.plusDays(3), 120, "TRAIN", 45.0);
+
+        // ACT
+        RoundTrip preferred = RoundTripSelector.selectBestRoundTrip(Collections.singletonList(out),
+            Arrays.asList(planeBack, trainBack), "TRAIN", "PRICE", Double.POSITIVE_INFINITY);
+        RoundTrip fallback = RoundTripSelector.selectBestRoundTrip(Collections.singletonList(out),
+            Collections.singletonList(planeBack), "TRAIN", "PRICE", Double.POSITIVE_INFINITY);
+        RoundTrip noOutbound = RoundTripSelector.selectBestRoundTrip(Collections.singletonList(out),
+            Collections.singletonList(planeBack), "PLANE", "PRICE", Double.POSITIVE_INFINITY);
+
+        // ASSERT
+        assertSame(trainBack, preferred.getReturn());
+        assertSame(planeBack, fallback.getReturn());
+        assertNull(noOutbound);
+    }
+
+    @Test
+    void testSelectBestRoundTrip_NoConnectingPair_ShouldReturnNull() {
+        // ARRANGE
+        Trip out = trip("A", "B", DAY.plusDays(4), 120, "TRAIN", 50.0);
+        Trip back = trip("B", "A", DAY.plusDays(3), 120, "TRAIN", 50.0);
+
+        // ACT / ASSERT
+        assertNull(RoundTripSelector.selectBestRoundTrip(Collections.singletonList(out),
+            Collections.singletonList(back), null, "PRICE", Double.POSITIVE_INFINITY));
+        assertNull(RoundTripSelector.selectBestRoundTrip(null, Collections.singletonList(back),
+            null, "PRICE", Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void testSelectBestRoundTrip_ShouldMatchExhaustiveSearch() {
+        // ARRANGE
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<Trip> outbound = new ArrayList<>();
+            List<Trip> returns = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                outbound.add(trip("A", "B", DAY.plusHours(random.nextInt(96)), 30 + random.nextInt(600),
+                    "TRAIN", 10 + random.nextInt(150)));
+            }
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                returns.add(trip("B", "A", DAY.plusHours(48 + random.nextInt(96)), 30 + random.nextInt(600),
+                    "TRAIN", 10 + random.nextInt(150)));
+            }
+            String priority = random.nextBoolean() ? "PRICE" : "DURATION";
+            double maxPrice = 100 + random.nextInt(200);
+
+            // ACT
+            RoundTrip best = RoundTripSelector.selectBestRoundTrip(outbound, returns, null, priority, maxPrice);
+
+            // ASSERT
+            double expected = Double.POSITIVE_INFINITY;
+            boolean anyWithinBudget = false;
+            for (Trip out : outbound) {
+                for (Trip back : returns) {
+                    if (RoundTripSelector.connects(out, back) && out.getTotalPrice() + back.getTotalPrice() <= maxPrice) {
+                        anyWithinBudget = true;
+                        expected = Math.min(expected, value(out, priority) + value(back, priority));
+                    }
+                }
+            }
+            if (anyWithinBudget) {
+                assertEquals(expected, value(best.getOutbound(), priority) + value(best.getReturn(), priority), 0.001);
+                assertTrue(best.getTotalPrice() <= maxPrice);
+            } else if (best != null) {
+                assertTrue(RoundTripSelector.connects(best.getOutbound(), best.getReturn()));
+            }
+        }
+    }
+
+    private static double value(Trip trip, String priority) {
+        return "PRICE".equals(priority) ? trip.getTotalPrice() : TransportHelper.journeyDurationMinutes(trip);
+    }
+}
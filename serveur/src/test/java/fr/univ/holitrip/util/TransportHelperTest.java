@@ -9,6 +9,7 @@ import java.util.Collections;
 import org.junit.jupiter.api.Test;
 
 import fr.univ.holitrip.model.Transport;
+import fr.univ.holitrip.model.Trip;
 
 class TransportHelperTest {
 
@@ -62,6 +63,21 @@ class TransportHelperTest {
         assertTrue(TransportHelper.isMultiLeg(Arrays.asList(t1, t2)));
     }
 
+    @Test
+    void testIsMultiLeg_CaseInsensitiveContinuity() {
+        // ARRANGE
+        Transport t1 = new Transport();
+        t1.setDepartureCity("Paris");
+        t1.setArrivalCity("Lyon");
+        
+        Transport t2 = new Transport();
+        t2.setDepartureCity("LYON");
+        t2.setArrivalCity("Marseille");
+        
+        // ASSERT
+        assertTrue(TransportHelper.isMultiLeg(Arrays.asList(t1, t2)));
+    }
+
     @Test
     void testIsMultiLeg_SingleTransport() {
         // ARRANGE
@@ -318,4 +334,59 @@ class TransportHelperTest {
         // ASSERT
         assertEquals(50.0, selected.getPrice());
     }
+
+    @Test
+    void testSelectBestJourney_PricePriority() {
+        // ARRANGE
+        Trip cheapSlow = new Trip(Arrays.asList(
+            new Transport("A", "B", LocalDateTime.of(2026, 2, 10, 8, 0), LocalDateTime.of(2026, 2, 10, 10, 0), "TRAIN", 40.0),
+            new Transport("B", "C", LocalDateTime.of(2026, 2, 10, 12, 0), LocalDateTime.of(2026, 2, 10, 15, 0), "TRAIN", 30.0)));
+        Trip fastExpensive = new Trip(Collections.singletonList(
+            new Transport("A", "C", LocalDateTime.of(2026, 2, 10, 9, 0), LocalDateTime.of(2026, 2, 10, 10, 0), "PLANE", 150.0)));
+
+        // ACT
+        Trip selected = TransportHelper.selectBestJourney(Arrays.asList(fastExpensive, cheapSlow), null, "PRICE");
+
+        // ASSERT
+        assertSame(cheapSlow, selected);
+    }
+
+    @Test
+    void testSelectBestJourney_DurationPriority() {
+        // ARRANGE
+        Trip cheapSlow = new Trip(Arrays.asList(
+            new Transport("A", "B", LocalDateTime.of(2026, 2, 10, 8, 0), LocalDateTime.of(2026, 2, 10, 10, 0), "TRAIN", 40.0),
+            new Transport("B", "C", LocalDateTime.of(2026, 2, 10, 12, 0), LocalDateTime.of(2026, 2, 10, 15, 0), "TRAIN", 30.0)));
+        Trip fastExpensive = new Trip(Collections.singletonList(
+            new Transport("A", "C", LocalDateTime.of(2026, 2, 10, 9, 0), LocalDateTime.of(2026, 2, 10, 10, 0), "PLANE", 150.0)));
+
+        // ACT
+        Trip selected = TransportHelper.selectBestJourney(Arrays.asList(cheapSlow, fastExpensive), null, "DURATION");
+
+        // ASSERT
+        assertSame(fastExpensive, selected);
+    }
+
+    @Test
+    void testSelectBestJourney_ModeMustMatchEveryLeg() {
+        // ARRANGE
+        Trip train = new Trip(Collections.singletonList(
+            new Transport("A", "C", LocalDateTime.of(2026, 2, 10, 8, 0), LocalDateTime.of(2026, 2, 10, 12, 0), "TRAIN", 60.0)));
+        Trip plane = new Trip(Collections.singletonList(
+            new Transport("A", "C", LocalDateTime.of(2026, 2, 10, 9, 0), LocalDateTime.of(2026, 2, 10, 10, 0), "PLANE", 50.0)));
+
+        // ACT
+        Trip selected = TransportHelper.selectBestJourney(Arrays.asList(plane, train), "TRAIN", "PRICE");
+
+        // ASSERT
+        assertSame(train, selected);
+        assertNull(TransportHelper.selectBestJourney(Collections.singletonList(plane), "TRAIN", "PRICE"));
+    }
+
+    @Test
+    void testSelectBestJourney_NullOrEmpty() {
+        // ASSERT
+        assertNull(TransportHelper.selectBestJourney(null, null, "PRICE"));
+        assertNull(TransportHelper.selectBestJourney(Collections.emptyList(), null, "PRICE"));
+    }
 }